@@ -0,0 +1,63 @@
+package com.florianwoelki.flow;
+
+/**
+ * The result of a program which was run by the {@link ExecutionService}.
+ */
+public class ExecutionResult {
+
+    private final int status;
+    private final String output;
+    private final String info;
+    private final long wallTime;
+    private final long cpuTime;
+
+    ExecutionResult(int status, String output, String info, long wallTime, long cpuTime) {
+        this.status = status;
+        this.output = output;
+        this.info = info;
+        this.wallTime = wallTime;
+        this.cpuTime = cpuTime;
+    }
+
+    /**
+     * @return the exit status, see {@link Runner}
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the output of the program, or <code>null</code> if it ran on its own console
+     */
+    public String getOutput() {
+        return output;
+    }
+
+    /**
+     * @return the info and error messages, or <code>null</code> if it ran on its own console
+     */
+    public String getInfo() {
+        return info;
+    }
+
+    /**
+     * @return the time from the start to the end of the program in nanoseconds
+     */
+    public long getWallTime() {
+        return wallTime;
+    }
+
+    /**
+     * @return the CPU time the program used in nanoseconds. On a thread which can not measure it, like a virtual thread,
+     * this is the time the program ran without the time it was yielded or waited for input.
+     */
+    public long getCpuTime() {
+        return cpuTime;
+    }
+
+    @Override
+    public String toString() {
+        return "ExecutionResult status=" + status + " wallTime=" + wallTime + " cpuTime=" + cpuTime;
+    }
+
+}
@@ -0,0 +1,144 @@
+package com.florianwoelki.flow;
+
+import com.florianwoelki.flow.console.Console;
+import com.florianwoelki.flow.console.MemoryConsole;
+import com.florianwoelki.flow.lang.Class;
+import com.florianwoelki.flow.lang.Governor;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs many programs at the same time. Every program gets its own frames and console, so programs never share state,
+ * not even when the same parsed {@link Class} is submitted twice.
+ * <p>
+ * On a Java runtime with virtual threads every program runs on its own virtual thread, otherwise on a fixed pool with
+ * one thread per core. Both start the programs in the order they were submitted. The {@link Governor} of a program
+ * yields its thread after every time slice, so on virtual threads the running programs take turns on the carrier
+ * threads. The threads of the pool are scheduled by the operating system instead, a program which waits for a thread
+ * of the pool only starts when an earlier program is done.
+ * <p>
+ * The JVM does not measure the CPU time of virtual threads. For them the CPU time of a program is the time it ran,
+ * without the time it was yielded to other programs and waited for input.
+ */
+public class ExecutionService implements AutoCloseable {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final ExecutorService executor;
+
+    public ExecutionService() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param threads the size of the pool if there are no virtual threads
+     */
+    public ExecutionService(int threads) {
+        ExecutorService virtual = newVirtualThreadExecutor();
+
+        this.executor = virtual != null ? virtual : Executors.newFixedThreadPool(threads, new PoolThreadFactory());
+    }
+
+    /**
+     * Parses and runs the code in memory.
+     *
+     * @param input the lines which are read by <code>getinput()</code>
+     */
+    public Future<ExecutionResult> submit(String[] code, String... input) {
+        return submit(code, new Governor(), input);
+    }
+
+    /**
+     * Parses and runs the code in memory within the limits of the governor.
+     */
+    public Future<ExecutionResult> submit(String[] code, Governor governor, String... input) {
+        return executor.submit(() -> {
+            MemoryConsole console = new MemoryConsole(input);
+            return measure(new Class(code), console, governor, console);
+        });
+    }
+
+    /**
+     * Runs the program on the console, the result has no output then.
+     */
+    public Future<ExecutionResult> submit(Class program, Console console) {
+        return submit(program, console, new Governor());
+    }
+
+    /**
+     * Runs the program on the console within the limits of the governor. The program can be stopped with
+     * {@link Governor#stop()}, cancelling the future interrupts it even while it waits for input.
+     */
+    public Future<ExecutionResult> submit(Class program, Console console, Governor governor) {
+        return executor.submit(() -> measure(program, console, governor, null));
+    }
+
+    private static ExecutionResult measure(Class program, Console console, Governor governor, MemoryConsole memory) {
+        long cpuStart = cpuTime();
+        long wallStart = System.nanoTime();
+
+        int status = Runner.execute(program, console, governor);
+
+        long wallTime = System.nanoTime() - wallStart;
+        long cpuEnd = cpuTime();
+
+        long cpuTime = cpuStart < 0 || cpuEnd < 0 ? wallTime - governor.getWaitTime() : cpuEnd - cpuStart;
+
+        return new ExecutionResult(status, memory == null ? null : memory.getOutput(), memory == null ? null : memory.getInfo(), wallTime, cpuTime);
+    }
+
+    /**
+     * @return the CPU time of the current thread, or <code>-1</code> if it can not be measured, like on a virtual thread
+     */
+    private static long cpuTime() {
+        try {
+            return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : -1;
+        } catch(UnsupportedOperationException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Looks up virtual threads by reflection, so the service still runs on Java 8.
+     *
+     * @return an executor which starts a virtual thread per program, or <code>null</code> if there are no virtual
+     * threads
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch(NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            // Before Java 21, or a preview which is not enabled.
+            return null;
+        }
+    }
+
+    /**
+     * Stops accepting programs, the running ones still finish.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private static class PoolThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "flow-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+
+    }
+
+}
@@ -0,0 +1,160 @@
+package com.florianwoelki.flow;
+
+import com.florianwoelki.flow.console.Console;
+import com.florianwoelki.flow.console.OutputType;
+import com.florianwoelki.flow.console.StreamConsole;
+import com.florianwoelki.flow.exception.ExecutionStoppedException;
+import com.florianwoelki.flow.exception.InvalidCodeException;
+import com.florianwoelki.flow.lang.Class;
+import com.florianwoelki.flow.lang.Flowc;
+import com.florianwoelki.flow.lang.Governor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Runs Flow programs without the IDE: <code>flow run &lt;file.flow&gt;</code>. The program talks to stdin and stdout,
+ * info and errors go to stderr. This class never touches AWT, Swing or WebLaF, so it starts fast and works on
+ * servers and in containers.
+ * <p>
+ * <code>flow compile &lt;file.flow&gt; &lt;file.flowc&gt;</code> precompiles a program, which can then be run from
+ * the <code>.flowc</code> file, see {@link Flowc}. With <code>-Dflow.cache=&lt;directory&gt;</code> every program
+ * which is run is precompiled into the directory once.
+ * <p>
+ * Exit status: <code>0</code> if the program terminated, <code>1</code> if it has an error, <code>2</code> for a
+ * wrong command or a file which can not be read and <code>3</code> if the program was stopped.
+ */
+public class Runner {
+
+    public static final int OK = 0;
+    public static final int INVALID_CODE = 1;
+    public static final int USAGE = 2;
+    public static final int STOPPED = 3;
+
+    public static void main(String[] args) {
+        System.exit(run(args, new StreamConsole(System.in, System.out, System.err)));
+    }
+
+    public static int run(String[] args, Console console) {
+        if(args.length == 3 && args[0].equals("compile")) {
+            return compile(Paths.get(args[1]), Paths.get(args[2]), console);
+        } else if(args.length != 2 || !args[0].equals("run")) {
+            console.writeLine(OutputType.ERROR, "Usage: flow run <file.flow|file.flowc> | flow compile <file.flow> <file.flowc>");
+            return USAGE;
+        }
+
+        Path path = Paths.get(args[1]);
+        Class program;
+
+        try {
+            program = path.toString().endsWith(".flowc") ? Flowc.read(path, null) : load(path, console);
+        } catch(IOException e) {
+            console.writeLine(OutputType.ERROR, "Could not read " + args[1] + ": " + e.getMessage());
+            return USAGE;
+        } catch(InvalidCodeException e) {
+            console.writeLine(OutputType.ERROR, "Error: " + e.getMessage());
+            return INVALID_CODE;
+        }
+
+        return execute(program, console);
+    }
+
+    /**
+     * Loads the program from the cache in the directory of <code>-Dflow.cache</code>, if it is set. A program which is
+     * not in the cache is parsed and added to it, the file of a program is named after the hash of its source.
+     */
+    private static Class load(Path path, Console console) throws IOException, InvalidCodeException {
+        String[] code = read(path);
+        String cache = System.getProperty("flow.cache");
+
+        if(cache == null) {
+            return new Class(code);
+        }
+
+        byte[] hash = Flowc.hash(code);
+        Path cached = Paths.get(cache, hex(hash) + ".flowc");
+
+        if(Files.isRegularFile(cached)) {
+            try {
+                return Flowc.read(cached, hash);
+            } catch(IOException | InvalidCodeException e) {
+                // A damaged or outdated file is replaced below.
+            }
+        }
+
+        Class program = new Class(code);
+        program.parse();
+
+        try {
+            Files.createDirectories(cached.getParent());
+            Flowc.write(program, hash, cached);
+        } catch(IOException e) {
+            console.writeLine(OutputType.INFO, "Could not cache " + path + ": " + e.getMessage());
+        }
+
+        return program;
+    }
+
+    private static int compile(Path source, Path target, Console console) {
+        try {
+            String[] code = read(source);
+            Class program = new Class(code);
+
+            program.parse();
+            Flowc.write(program, Flowc.hash(code), target);
+            return OK;
+        } catch(IOException e) {
+            console.writeLine(OutputType.ERROR, "Could not compile " + source + ": " + e.getMessage());
+            return USAGE;
+        } catch(InvalidCodeException e) {
+            console.writeLine(OutputType.ERROR, "Error: " + e.getMessage());
+            return INVALID_CODE;
+        }
+    }
+
+    private static String[] read(Path path) throws IOException {
+        List<String> code = Files.readAllLines(path, StandardCharsets.UTF_8);
+
+        return code.toArray(new String[code.size()]);
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder();
+
+        for(byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+
+        return hex.toString();
+    }
+
+    /**
+     * Runs the program and reports an error on the console.
+     *
+     * @return the exit status
+     */
+    static int execute(Class program, Console console) {
+        return execute(program, console, new Governor());
+    }
+
+    static int execute(Class program, Console console, Governor governor) {
+        try {
+            program.run(console, governor);
+            return OK;
+        } catch(ExecutionStoppedException e) {
+            console.writeLine(OutputType.ERROR, "Stopped: " + e.getMessage());
+            return STOPPED;
+        } catch(InvalidCodeException e) {
+            console.writeLine(OutputType.ERROR, "Error: " + e.getMessage());
+            return INVALID_CODE;
+        } catch(StackOverflowError e) {
+            console.writeLine(OutputType.ERROR, "Error: Recursion is too deep, the VM engine (-Dflow.engine=vm) runs deeper recursion.");
+            return INVALID_CODE;
+        }
+    }
+
+}
@@ -0,0 +1,169 @@
+package com.florianwoelki.flow.compiler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The code of one generated JVM method. Jumps go to {@link Label}s, whose offsets are filled in by
+ * {@link #toByteArray()}.
+ */
+class Bytecode {
+
+    static final int ICONST_0 = 0x03;
+    static final int ICONST_1 = 0x04;
+    static final int DCONST_0 = 0x0e;
+    static final int DCONST_1 = 0x0f;
+    static final int BIPUSH = 0x10;
+    static final int SIPUSH = 0x11;
+    static final int LDC_W = 0x13;
+    static final int LDC2_W = 0x14;
+    static final int ILOAD = 0x15;
+    static final int DLOAD = 0x18;
+    static final int ALOAD = 0x19;
+    static final int ALOAD_0 = 0x2a;
+    static final int ALOAD_1 = 0x2b;
+    static final int ALOAD_2 = 0x2c;
+    static final int DALOAD = 0x31;
+    static final int AALOAD = 0x32;
+    static final int ISTORE = 0x36;
+    static final int DSTORE = 0x39;
+    static final int ASTORE = 0x3a;
+    static final int IADD = 0x60;
+    static final int DADD = 0x63;
+    static final int ISUB = 0x64;
+    static final int DSUB = 0x67;
+    static final int IMUL = 0x68;
+    static final int DMUL = 0x6b;
+    static final int IDIV = 0x6c;
+    static final int DDIV = 0x6f;
+    static final int IREM = 0x70;
+    static final int DREM = 0x73;
+    static final int INEG = 0x74;
+    static final int DNEG = 0x77;
+    static final int IINC = 0x84;
+    static final int I2D = 0x87;
+    static final int D2I = 0x8e;
+    static final int DCMPL = 0x97;
+    static final int DCMPG = 0x98;
+    static final int IFEQ = 0x99;
+    static final int IFNE = 0x9a;
+    static final int IFLT = 0x9b;
+    static final int IFGE = 0x9c;
+    static final int IFGT = 0x9d;
+    static final int IFLE = 0x9e;
+    static final int IF_ICMPEQ = 0x9f;
+    static final int IF_ICMPNE = 0xa0;
+    static final int IF_ICMPLT = 0xa1;
+    static final int IF_ICMPGE = 0xa2;
+    static final int IF_ICMPGT = 0xa3;
+    static final int IF_ICMPLE = 0xa4;
+    static final int GOTO = 0xa7;
+    static final int RETURN = 0xb1;
+    static final int GETFIELD = 0xb4;
+    static final int INVOKEVIRTUAL = 0xb6;
+    static final int INVOKESPECIAL = 0xb7;
+    static final int INVOKESTATIC = 0xb8;
+    static final int CHECKCAST = 0xc0;
+
+    private final List<int[]> jumps = new ArrayList<>();
+    private final List<Label> jumpTargets = new ArrayList<>();
+
+    private byte[] code = new byte[256];
+    private int length;
+
+    void op(int opcode) {
+        u1(opcode);
+    }
+
+    /**
+     * Writes an instruction with a local variable index or constant pool index as operand.
+     */
+    void op(int opcode, int operand) {
+        u1(opcode);
+
+        if(opcode == ILOAD || opcode == DLOAD || opcode == ALOAD || opcode == ISTORE || opcode == DSTORE || opcode == ASTORE || opcode == BIPUSH) {
+            u1(operand);
+        } else {
+            u2(operand);
+        }
+    }
+
+    void iinc(int local, int amount) {
+        u1(IINC);
+        u1(local);
+        u1(amount);
+    }
+
+    /**
+     * Pushes a value from <code>-1</code> to {@link Short#MAX_VALUE}, larger values have to be loaded from the
+     * constant pool.
+     */
+    void pushInt(int value) {
+        if(value >= -1 && value <= 5) {
+            op(ICONST_0 + value);
+        } else if(value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            op(BIPUSH, value & 0xff);
+        } else {
+            op(SIPUSH, value);
+        }
+    }
+
+    void jump(int opcode, Label target) {
+        jumps.add(new int[]{length});
+        jumpTargets.add(target);
+
+        u1(opcode);
+        u2(0);
+    }
+
+    void mark(Label label) {
+        label.position = length;
+    }
+
+    int length() {
+        return length;
+    }
+
+    byte[] toByteArray() {
+        for(int i = 0; i < jumps.size(); i++) {
+            int from = jumps.get(i)[0];
+            int to = jumpTargets.get(i).position;
+
+            if(to == -1) {
+                throw new IllegalStateException("Jump to a label that was never placed.");
+            }
+
+            int offset = to - from;
+
+            if(offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+                throw new IllegalStateException("Method is too large to compile.");
+            }
+
+            code[from + 1] = (byte) (offset >> 8);
+            code[from + 2] = (byte) offset;
+        }
+
+        return Arrays.copyOf(code, length);
+    }
+
+    private void u1(int value) {
+        if(length == code.length) {
+            code = Arrays.copyOf(code, code.length * 2);
+        }
+
+        code[length++] = (byte) value;
+    }
+
+    private void u2(int value) {
+        u1(value >> 8);
+        u1(value);
+    }
+
+    static class Label {
+
+        private int position = -1;
+
+    }
+
+}
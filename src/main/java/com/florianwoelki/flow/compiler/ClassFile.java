@@ -0,0 +1,200 @@
+package com.florianwoelki.flow.compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes a JVM class file. Only what the {@link Compiler} needs is supported.
+ * <p>
+ * The class files use version 49, which is verified without stack map frames, so the generated code does not have
+ * to track the types of the stack and local variables at every jump.
+ */
+class ClassFile {
+
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+
+    private static final int VERSION = 49;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream pool = new DataOutputStream(poolBytes);
+    private final Map<String, Integer> constants = new HashMap<>();
+    private int constantCount = 1;
+
+    private final ByteArrayOutputStream methodBytes = new ByteArrayOutputStream();
+    private final DataOutputStream methods = new DataOutputStream(methodBytes);
+    private int methodCount;
+
+    private final String name;
+    private final String superName;
+
+    ClassFile(String name, String superName) {
+        this.name = name;
+        this.superName = superName;
+    }
+
+    int classInfo(String internalName) throws IOException {
+        String key = "C" + internalName;
+        Integer index = constants.get(key);
+
+        if(index == null) {
+            int nameIndex = utf8(internalName);
+
+            pool.writeByte(CONSTANT_CLASS);
+            pool.writeShort(nameIndex);
+            index = add(key);
+        }
+
+        return index;
+    }
+
+    int integer(int value) throws IOException {
+        String key = "I" + value;
+        Integer index = constants.get(key);
+
+        if(index == null) {
+            pool.writeByte(CONSTANT_INTEGER);
+            pool.writeInt(value);
+            index = add(key);
+        }
+
+        return index;
+    }
+
+    int decimal(double value) throws IOException {
+        String key = "D" + Double.doubleToRawLongBits(value);
+        Integer index = constants.get(key);
+
+        if(index == null) {
+            pool.writeByte(CONSTANT_DOUBLE);
+            pool.writeDouble(value);
+            index = add(key);
+            // A double takes two entries of the pool.
+            constantCount++;
+        }
+
+        return index;
+    }
+
+    int fieldRef(String owner, String name, String descriptor) throws IOException {
+        return memberRef(CONSTANT_FIELDREF, owner, name, descriptor);
+    }
+
+    int methodRef(String owner, String name, String descriptor) throws IOException {
+        return memberRef(CONSTANT_METHODREF, owner, name, descriptor);
+    }
+
+    void addMethod(int access, String name, String descriptor, Bytecode code, int maxStack, int maxLocals) throws IOException {
+        byte[] bytes = code.toByteArray();
+
+        if(bytes.length > 0xffff) {
+            throw new IllegalStateException("Method is too large to compile.");
+        }
+
+        methods.writeShort(access);
+        methods.writeShort(utf8(name));
+        methods.writeShort(utf8(descriptor));
+        methods.writeShort(1);
+
+        methods.writeShort(utf8("Code"));
+        methods.writeInt(12 + bytes.length);
+        methods.writeShort(maxStack);
+        methods.writeShort(maxLocals);
+        methods.writeInt(bytes.length);
+        methods.write(bytes);
+        methods.writeShort(0);
+        methods.writeShort(0);
+
+        methodCount++;
+    }
+
+    byte[] toByteArray() throws IOException {
+        int thisIndex = classInfo(name);
+        int superIndex = classInfo(superName);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeInt(0xcafebabe);
+        out.writeShort(0);
+        out.writeShort(VERSION);
+        out.writeShort(constantCount);
+        poolBytes.writeTo(out);
+        out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+        out.writeShort(thisIndex);
+        out.writeShort(superIndex);
+        out.writeShort(0);
+        out.writeShort(0);
+        out.writeShort(methodCount);
+        methodBytes.writeTo(out);
+        out.writeShort(0);
+
+        return bytes.toByteArray();
+    }
+
+    private int utf8(String value) throws IOException {
+        String key = "U" + value;
+        Integer index = constants.get(key);
+
+        if(index == null) {
+            pool.writeByte(CONSTANT_UTF8);
+            pool.writeUTF(value);
+            index = add(key);
+        }
+
+        return index;
+    }
+
+    private int memberRef(int tag, String owner, String name, String descriptor) throws IOException {
+        String key = tag + owner + "." + name + descriptor;
+        Integer index = constants.get(key);
+
+        if(index == null) {
+            int classIndex = classInfo(owner);
+            int nameAndTypeIndex = nameAndType(name, descriptor);
+
+            pool.writeByte(tag);
+            pool.writeShort(classIndex);
+            pool.writeShort(nameAndTypeIndex);
+            index = add(key);
+        }
+
+        return index;
+    }
+
+    private int nameAndType(String name, String descriptor) throws IOException {
+        String key = "N" + name + ":" + descriptor;
+        Integer index = constants.get(key);
+
+        if(index == null) {
+            int nameIndex = utf8(name);
+            int descriptorIndex = utf8(descriptor);
+
+            pool.writeByte(CONSTANT_NAME_AND_TYPE);
+            pool.writeShort(nameIndex);
+            pool.writeShort(descriptorIndex);
+            index = add(key);
+        }
+
+        return index;
+    }
+
+    private int add(String key) {
+        int index = constantCount++;
+        constants.put(key, index);
+        return index;
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.florianwoelki.flow.compiler;
+
+import com.florianwoelki.flow.exception.InvalidCodeException;
+import com.florianwoelki.flow.lang.Block;
+import com.florianwoelki.flow.lang.Frame;
+import com.florianwoelki.flow.lang.Slot;
+import com.florianwoelki.flow.lang.Variable;
+
+/**
+ * Base class of compiled method bodies: the classes generated by the {@link Compiler} and the bytecode of the
+ * {@link com.florianwoelki.flow.vm.VmMethod}. A compiled body runs the body of one method, its statements are the
+ * parsed nodes in {@link #nodes} and its variables are in the frame it is executed with. The slots and expressions
+ * which the compiled code uses directly are in {@link #constants}.
+ */
+public abstract class CompiledMethod {
+
+    protected final Block[] nodes;
+    protected final Object[] constants;
+
+    protected CompiledMethod(Block[] nodes, Object[] constants) {
+        this.nodes = nodes;
+        this.constants = constants;
+    }
+
+    public abstract void execute(Frame frame) throws InvalidCodeException;
+
+    /*
+    A variable which lives in a local of the compiled code is written back to the frame before a statement which can
+    read it and read again after a statement which can change it. Variables which are not declared yet are skipped,
+    reading them fails in the frame like in the other engines. The locals are kept by the type of the declaration, so a
+    variable which was declared again with another type belongs to another local and is skipped as well.
+     */
+
+    protected static void spill(Slot slot, Frame frame, int value) {
+        Variable variable = declared(slot, frame);
+
+        if(variable != null) {
+            variable.setInteger(value);
+        }
+    }
+
+    protected static void spill(Slot slot, Frame frame, double value) {
+        Variable variable = declared(slot, frame);
+
+        if(variable != null) {
+            variable.setDecimal(value);
+        }
+    }
+
+    /**
+     * @return the value of the variable, or the value of the local if the variable is not declared yet
+     */
+    protected static int fill(Slot slot, Frame frame, int value) {
+        Variable variable = declared(slot, frame);
+
+        return variable != null ? variable.getInteger() : value;
+    }
+
+    /**
+     * @return the value of the variable, or the value of the local if the variable is not declared yet
+     */
+    protected static double fill(Slot slot, Frame frame, double value) {
+        Variable variable = declared(slot, frame);
+
+        return variable != null ? variable.getDecimal() : value;
+    }
+
+    /**
+     * @return the variable of the slot, or <code>null</code> if it is not declared yet or not declared with the type of
+     * the slot
+     */
+    protected static Variable declared(Slot slot, Frame frame) {
+        Variable variable = slot.find(frame);
+
+        return variable != null && variable.getType() == slot.getType() && !variable.isArray() && !variable.isTable() ? variable : null;
+    }
+
+    /**
+     * @param expression the division, for the error message
+     */
+    protected static int divisor(int value, Object expression) throws InvalidCodeException {
+        if(value == 0) {
+            throw new InvalidCodeException("Division by zero in " + expression + ".");
+        }
+
+        return value;
+    }
+
+}
@@ -0,0 +1,695 @@
+package com.florianwoelki.flow.compiler;
+
+import com.florianwoelki.flow.expression.Binary;
+import com.florianwoelki.flow.expression.Constant;
+import com.florianwoelki.flow.expression.Element;
+import com.florianwoelki.flow.expression.Expression;
+import com.florianwoelki.flow.expression.Negate;
+import com.florianwoelki.flow.expression.Reference;
+import com.florianwoelki.flow.function.CallSite;
+import com.florianwoelki.flow.function.Math;
+import com.florianwoelki.flow.lang.Block;
+import com.florianwoelki.flow.lang.ConditionalBlock;
+import com.florianwoelki.flow.lang.DoWhile;
+import com.florianwoelki.flow.lang.Else;
+import com.florianwoelki.flow.lang.ElseIf;
+import com.florianwoelki.flow.lang.For;
+import com.florianwoelki.flow.lang.Foreach;
+import com.florianwoelki.flow.lang.If;
+import com.florianwoelki.flow.lang.Line;
+import com.florianwoelki.flow.lang.Method;
+import com.florianwoelki.flow.lang.Return;
+import com.florianwoelki.flow.lang.Slot;
+import com.florianwoelki.flow.lang.Variable;
+import com.florianwoelki.flow.lang.While;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles the body of a {@link Method} to a JVM class.
+ * <p>
+ * The blocks of the method become jumps and loops in one JVM method, so HotSpot can compile a Flow loop like a Java
+ * loop. Like in the {@link com.florianwoelki.flow.vm.VmCompiler}, <code>math</code> and conditions on numbers are
+ * compiled to JVM arithmetic and compares, and the integer and decimal variables of the method live in JVM locals
+ * while it runs. Every other statement gets its own call site which runs the parsed node, the locals are written back
+ * to the frame before it and read again after it. The classes of one program are defined by their own class loader.
+ * <p>
+ * This is the default {@link com.florianwoelki.flow.lang.Engine}.
+ */
+public class Compiler {
+
+    private static final String COMPILED_METHOD = "com/florianwoelki/flow/compiler/CompiledMethod";
+    private static final String BLOCK = "com/florianwoelki/flow/lang/Block";
+    private static final String CONDITIONAL_BLOCK = "com/florianwoelki/flow/lang/ConditionalBlock";
+    private static final String SLOT = "com/florianwoelki/flow/lang/Slot";
+    private static final String FRAME = "com/florianwoelki/flow/lang/Frame";
+    private static final String FOR = "com/florianwoelki/flow/lang/For";
+    private static final String FOREACH = "com/florianwoelki/flow/lang/Foreach";
+    private static final String VARIABLE = "com/florianwoelki/flow/lang/Variable";
+
+    /*
+    The jumps by the ordinal of the compare operation: ==, !=, >, <
+     */
+    private static final int[] INTEGER_JUMPS_IF = {Bytecode.IF_ICMPEQ, Bytecode.IF_ICMPNE, Bytecode.IF_ICMPGT, Bytecode.IF_ICMPLT};
+    private static final int[] INTEGER_JUMPS_UNLESS = {Bytecode.IF_ICMPNE, Bytecode.IF_ICMPEQ, Bytecode.IF_ICMPLE, Bytecode.IF_ICMPGE};
+
+    /*
+    Decimals are compared with DCMPL or DCMPG, so a comparison with NaN is false like in Java.
+     */
+    private static final int[] DECIMAL_COMPARES_IF = {Bytecode.DCMPL, Bytecode.DCMPL, Bytecode.DCMPL, Bytecode.DCMPG};
+    private static final int[] DECIMAL_JUMPS_IF = {Bytecode.IFEQ, Bytecode.IFNE, Bytecode.IFGT, Bytecode.IFLT};
+    private static final int[] DECIMAL_JUMPS_UNLESS = {Bytecode.IFNE, Bytecode.IFEQ, Bytecode.IFLE, Bytecode.IFGE};
+
+    private static final int MAX_LOCALS = 255;
+    private static final int MIN_STACK = 8;
+
+    private final FlowClassLoader classLoader = new FlowClassLoader();
+    private int classCount;
+
+    /**
+     * @return the compiled method, or <code>null</code> if the method is too large to be compiled and has to be
+     * interpreted
+     */
+    public CompiledMethod compile(Method method) {
+        String name = "com/florianwoelki/flow/compiler/Flow$" + method.getName() + "$" + classCount++;
+
+        try {
+            // Like the VmCompiler, the first pass finds the variables which get a local, so every statement of the
+            // second pass knows all of them when it writes them back to the frame.
+            Generator first = new Generator(name);
+            first.generate(method);
+
+            Generator generator = new Generator(name);
+
+            for(Slot slot : first.variableSlots.values()) {
+                generator.variable(slot);
+            }
+
+            byte[] bytes = generator.generate(method);
+
+            if(bytes == null) {
+                return null;
+            }
+
+            Block[] nodes = generator.nodes.toArray(new Block[generator.nodes.size()]);
+            Object[] constants = generator.constants.toArray();
+
+            return (CompiledMethod) classLoader.define(name.replace('/', '.'), bytes).getConstructor(Block[].class, Object[].class).newInstance(nodes, constants);
+        } catch(ReflectiveOperationException | IOException e) {
+            throw new IllegalStateException("Could not compile method " + method.getName() + ".", e);
+        }
+    }
+
+    private static class Generator {
+
+        private final List<Block> nodes = new ArrayList<>();
+        private final List<Object> constants = new ArrayList<>();
+
+        /*
+        The locals of the integer and decimal variables of the method and the constants with their slots.
+         */
+        private final Map<String, Slot> variableSlots = new LinkedHashMap<>();
+        private final Map<Slot, Integer> variables = new LinkedHashMap<>();
+        private final Map<Slot, Integer> variableConstants = new LinkedHashMap<>();
+
+        private final ClassFile classFile;
+        private final Bytecode code;
+        private final Bytecode.Label epilogue;
+
+        private int nextLocal = 2;
+        private int maxStack = MIN_STACK;
+
+        private Generator(String name) {
+            this.classFile = new ClassFile(name, COMPILED_METHOD);
+            this.code = new Bytecode();
+            this.epilogue = new Bytecode.Label();
+        }
+
+        private byte[] generate(Method method) throws IOException {
+            Bytecode constructor = new Bytecode();
+            constructor.op(Bytecode.ALOAD_0);
+            constructor.op(Bytecode.ALOAD_1);
+            constructor.op(Bytecode.ALOAD_2);
+            constructor.op(Bytecode.INVOKESPECIAL, classFile.methodRef(COMPILED_METHOD, "<init>", "([L" + BLOCK + ";[Ljava/lang/Object;)V"));
+            constructor.op(Bytecode.RETURN);
+
+            for(Map.Entry<Slot, Integer> variable : variables.entrySet()) {
+                boolean decimal = variable.getKey().getType() == Variable.VariableType.DECIMAL;
+
+                code.op(decimal ? Bytecode.DCONST_0 : Bytecode.ICONST_0);
+                code.op(decimal ? Bytecode.DSTORE : Bytecode.ISTORE, variable.getValue());
+            }
+
+            fill();
+            statements(method);
+
+            code.mark(epilogue);
+            code.op(Bytecode.RETURN);
+
+            if(nextLocal > MAX_LOCALS || nodes.size() > Short.MAX_VALUE || constants.size() > Short.MAX_VALUE) {
+                return null;
+            }
+
+            try {
+                classFile.addMethod(ClassFile.ACC_PUBLIC, "<init>", "([L" + BLOCK + ";[Ljava/lang/Object;)V", constructor, 3, 3);
+                classFile.addMethod(ClassFile.ACC_PUBLIC, "execute", "(L" + FRAME + ";)V", code, maxStack, nextLocal);
+            } catch(IllegalStateException e) {
+                return null;
+            }
+
+            return classFile.toByteArray();
+        }
+
+        private void statements(Block block) throws IOException {
+            for(Block node : block.getSubBlocks()) {
+                if(node instanceof If) {
+                    ifBlock((If) node);
+                } else if(node instanceof While) {
+                    whileBlock((While) node);
+                } else if(node instanceof DoWhile) {
+                    doWhileBlock((DoWhile) node);
+                } else if(node instanceof For) {
+                    forBlock((For) node);
+                } else if(node instanceof Foreach) {
+                    foreachBlock((Foreach) node);
+                } else if(node instanceof Line && ((Line) node).getCallSite().getFunction() instanceof Math) {
+                    math(((Line) node).getCallSite());
+                } else if(node instanceof Return) {
+                    spill();
+                    invoke(node(node), BLOCK, "run", "(L" + FRAME + ";)V");
+                    code.jump(Bytecode.GOTO, epilogue);
+                } else {
+                    spill();
+                    invoke(node(node), BLOCK, "run", "(L" + FRAME + ";)V");
+                    fill();
+                }
+            }
+        }
+
+        /*
+        frame.step(); <variable> = <expression>;
+         */
+        private void math(CallSite callSite) throws IOException {
+            Expression expression = callSite.getArguments()[0].getExpression();
+            Slot target = callSite.getReceiver() != null ? callSite.getReceiver() : callSite.getArguments()[0].getSlot();
+            boolean decimal = target.getType() == Variable.VariableType.DECIMAL;
+            int local = variable(target);
+
+            step();
+            stack(expression);
+
+            if(local != -1) {
+                value(expression, decimal);
+                code.op(decimal ? Bytecode.DSTORE : Bytecode.ISTORE, local);
+            } else {
+                variable(target, "get");
+                value(expression, decimal);
+                code.op(Bytecode.INVOKEVIRTUAL, classFile.methodRef(VARIABLE, decimal ? "setDecimal" : "setInteger", decimal ? "(D)V" : "(I)V"));
+            }
+        }
+
+        /*
+        if(<condition>) { ... } else if(<condition>) { ... } else { ... }
+         */
+        private void ifBlock(If node) throws IOException {
+            Bytecode.Label end = new Bytecode.Label();
+
+            branch(node, end);
+
+            for(ElseIf elseIf : node.getElseIfs()) {
+                branch(elseIf, end);
+            }
+
+            Else elze = node.getElse();
+
+            if(elze != null) {
+                statements(elze);
+            }
+
+            code.mark(end);
+        }
+
+        private void branch(ConditionalBlock node, Bytecode.Label end) throws IOException {
+            Bytecode.Label next = new Bytecode.Label();
+
+            jumpUnless(node, next);
+            statements(node);
+            code.jump(Bytecode.GOTO, end);
+            code.mark(next);
+        }
+
+        /*
+        while(<condition>) { ... frame.step(); }
+         */
+        private void whileBlock(While node) throws IOException {
+            Bytecode.Label condition = new Bytecode.Label(), end = new Bytecode.Label();
+
+            code.mark(condition);
+            jumpUnless(node, end);
+            statements(node);
+            step();
+            code.jump(Bytecode.GOTO, condition);
+            code.mark(end);
+        }
+
+        /*
+        do { ... frame.step(); } while(<condition>);
+         */
+        private void doWhileBlock(DoWhile node) throws IOException {
+            Bytecode.Label body = new Bytecode.Label();
+
+            code.mark(body);
+            statements(node);
+            step();
+            jumpIf(node, body);
+        }
+
+        /*
+        double[] bounds = for.bounds(frame);
+        Variable counter = for.getCounter(frame);
+        for(double i = bounds[0]; i < bounds[1]; i++) { for.count(counter, i); ... frame.step(); }
+         */
+        private void forBlock(For block) throws IOException {
+            int node = node(block);
+            int bounds = nextLocal++, counter = nextLocal++, i = nextLocal;
+            int local = block.getCounterSlot() == null ? -1 : variable(block.getCounterSlot());
+            nextLocal += 2;
+
+            Bytecode.Label condition = new Bytecode.Label(), end = new Bytecode.Label();
+
+            spill();
+            invoke(node, FOR, "bounds", "(L" + FRAME + ";)[D");
+            code.op(Bytecode.ASTORE, bounds);
+            invoke(node, FOR, "getCounter", "(L" + FRAME + ";)L" + VARIABLE + ";");
+            code.op(Bytecode.ASTORE, counter);
+            code.op(Bytecode.ALOAD, bounds);
+            code.op(Bytecode.ICONST_0);
+            code.op(Bytecode.DALOAD);
+            code.op(Bytecode.DSTORE, i);
+
+            code.mark(condition);
+            code.op(Bytecode.DLOAD, i);
+            code.op(Bytecode.ALOAD, bounds);
+            code.op(Bytecode.ICONST_1);
+            code.op(Bytecode.DALOAD);
+            code.op(Bytecode.DCMPG);
+            code.jump(Bytecode.IFGE, end);
+
+            load(node, FOR);
+            code.op(Bytecode.ALOAD, counter);
+            code.op(Bytecode.DLOAD, i);
+            code.op(Bytecode.INVOKEVIRTUAL, classFile.methodRef(FOR, "count", "(L" + VARIABLE + ";D)V"));
+
+            if(local != -1) {
+                code.op(Bytecode.DLOAD, i);
+
+                if(block.getCounterSlot().getType() == Variable.VariableType.INTEGER) {
+                    code.op(Bytecode.D2I);
+                    code.op(Bytecode.ISTORE, local);
+                } else {
+                    code.op(Bytecode.DSTORE, local);
+                }
+            }
+
+            statements(block);
+            step();
+
+            code.op(Bytecode.DLOAD, i);
+            code.op(Bytecode.DCONST_1);
+            code.op(Bytecode.DADD);
+            code.op(Bytecode.DSTORE, i);
+            code.jump(Bytecode.GOTO, condition);
+            code.mark(end);
+        }
+
+        /*
+        Variable values = foreach.values(frame);
+        Variable variable = foreach.declareElement(frame);
+        for(int i = 0; i < values.getLength(); i++) { variable.copyElement(values, i); ... frame.step(); }
+         */
+        private void foreachBlock(Foreach block) throws IOException {
+            int node = node(block);
+            int values = nextLocal++, variable = nextLocal++, i = nextLocal++;
+            int local = variable(block.getElementSlot());
+
+            Bytecode.Label condition = new Bytecode.Label(), end = new Bytecode.Label();
+
+            spill();
+            invoke(node, FOREACH, "values", "(L" + FRAME + ";)L" + VARIABLE + ";");
+            code.op(Bytecode.ASTORE, values);
+            invoke(node, FOREACH, "declareElement", "(L" + FRAME + ";)L" + VARIABLE + ";");
+            code.op(Bytecode.ASTORE, variable);
+            code.op(Bytecode.ICONST_0);
+            code.op(Bytecode.ISTORE, i);
+
+            code.mark(condition);
+            code.op(Bytecode.ILOAD, i);
+            code.op(Bytecode.ALOAD, values);
+            code.op(Bytecode.INVOKEVIRTUAL, classFile.methodRef(VARIABLE, "getLength", "()I"));
+            code.jump(Bytecode.IF_ICMPGE, end);
+
+            code.op(Bytecode.ALOAD, variable);
+            code.op(Bytecode.ALOAD, values);
+            code.op(Bytecode.ILOAD, i);
+            code.op(Bytecode.INVOKEVIRTUAL, classFile.methodRef(VARIABLE, "copyElement", "(L" + VARIABLE + ";I)V"));
+
+            if(local != -1) {
+                boolean decimal = block.getElementSlot().getType() == Variable.VariableType.DECIMAL;
+
+                code.op(Bytecode.ALOAD, variable);
+                code.op(Bytecode.INVOKEVIRTUAL, classFile.methodRef(VARIABLE, decimal ? "getDecimal" : "getInteger", decimal ? "()D" : "()I"));
+                code.op(decimal ? Bytecode.DSTORE : Bytecode.ISTORE, local);
+            }
+
+            statements(block);
+            step();
+
+            code.iinc(i, 1);
+            code.jump(Bytecode.GOTO, condition);
+            code.mark(end);
+        }
+
+        private void jumpUnless(ConditionalBlock node, Bytecode.Label target) throws IOException {
+            Expression left = node.getLeft(), right = node.getRight();
+            int operation = node.getCompareOperation().ordinal();
+
+            if(left == null) {
+                spill();
+                invoke(node(node), CONDITIONAL_BLOCK, "test", "(L" + FRAME + ";)Z");
+                code.jump(Bytecode.IFEQ, target);
+            } else if(isInteger(left, right)) {
+                compare(left, right, false);
+                code.jump(INTEGER_JUMPS_UNLESS[operation], target);
+            } else {
+                compare(left, right, true);
+                code.op(DECIMAL_COMPARES_IF[operation]);
+                code.jump(DECIMAL_JUMPS_UNLESS[operation], target);
+            }
+        }
+
+        private void jumpIf(ConditionalBlock node, Bytecode.Label target) throws IOException {
+            Expression left = node.getLeft(), right = node.getRight();
+            int operation = node.getCompareOperation().ordinal();
+
+            if(left == null) {
+                spill();
+                invoke(node(node), CONDITIONAL_BLOCK, "test", "(L" + FRAME + ";)Z");
+                code.jump(Bytecode.IFNE, target);
+            } else if(isInteger(left, right)) {
+                compare(left, right, false);
+                code.jump(INTEGER_JUMPS_IF[operation], target);
+            } else {
+                compare(left, right, true);
+                code.op(DECIMAL_COMPARES_IF[operation]);
+                code.jump(DECIMAL_JUMPS_IF[operation], target);
+            }
+        }
+
+        private void compare(Expression left, Expression right, boolean decimal) throws IOException {
+            maxStack = java.lang.Math.max(maxStack, stack(left) + stack(right));
+            value(left, decimal);
+            value(right, decimal);
+        }
+
+        private static boolean isInteger(Expression left, Expression right) {
+            return left.getType() == Variable.VariableType.INTEGER && right.getType() == Variable.VariableType.INTEGER;
+        }
+
+        private void value(Expression expression, boolean decimal) throws IOException {
+            if(decimal) {
+                decimal(expression);
+            } else {
+                integer(expression);
+            }
+        }
+
+        /**
+         * Pushes the value of the expression like {@link Expression#evaluateInteger}.
+         */
+        private void integer(Expression expression) throws IOException {
+            if(expression instanceof Constant) {
+                int value = ((Constant) expression).evaluateInteger(null);
+
+                if(value >= -1 && value <= Short.MAX_VALUE) {
+                    code.pushInt(value);
+                } else {
+                    code.op(Bytecode.LDC_W, classFile.integer(value));
+                }
+            } else if(expression.getType() == Variable.VariableType.DECIMAL) {
+                decimal(expression);
+                code.op(Bytecode.D2I);
+            } else if(expression instanceof Reference) {
+                Slot slot = ((Reference) expression).getSlot();
+                int local = variable(slot);
+
+                if(local != -1) {
+                    code.op(Bytecode.ILOAD, local);
+                } else {
+                    variable(slot, "get");
+                    code.op(Bytecode.INVOKEVIRTUAL, classFile.methodRef(VARIABLE, "getInteger", "()I"));
+                }
+            } else if(expression instanceof Element) {
+                variable(((Element) expression).getSlot(), "get");
+                integer(((Element) expression).getIndex());
+                code.op(Bytecode.INVOKEVIRTUAL, classFile.methodRef(VARIABLE, "getInteger", "(I)I"));
+            } else if(expression instanceof Negate) {
+                integer(((Negate) expression).getOperand());
+                code.op(Bytecode.INEG);
+            } else {
+                Binary binary = (Binary) expression;
+
+                integer(binary.getLeft());
+                integer(binary.getRight());
+
+                switch(binary.getOperator()) {
+                    case '+':
+                        code.op(Bytecode.IADD);
+                        break;
+                    case '-':
+                        code.op(Bytecode.ISUB);
+                        break;
+                    case '*':
+                        code.op(Bytecode.IMUL);
+                        break;
+                    default:
+                        // divisor(b, binary) fails on zero like the interpreter.
+                        code.op(Bytecode.ALOAD_0);
+                        code.op(Bytecode.GETFIELD, classFile.fieldRef(COMPILED_METHOD, "constants", "[Ljava/lang/Object;"));
+                        code.pushInt(constant(binary));
+                        code.op(Bytecode.AALOAD);
+                        code.op(Bytecode.INVOKESTATIC, classFile.methodRef(COMPILED_METHOD, "divisor", "(ILjava/lang/Object;)I"));
+                        code.op(binary.getOperator() == '/' ? Bytecode.IDIV : Bytecode.IREM);
+                }
+            }
+        }
+
+        /**
+         * Pushes the value of the expression like {@link Expression#evaluateDecimal}.
+         */
+        private void decimal(Expression expression) throws IOException {
+            if(expression instanceof Constant) {
+                double value = ((Constant) expression).evaluateDecimal(null);
+
+                if(value == 0 && 1 / value > 0) {
+                    code.op(Bytecode.DCONST_0);
+                } else if(value == 1) {
+                    code.op(Bytecode.DCONST_1);
+                } else {
+                    code.op(Bytecode.LDC2_W, classFile.decimal(value));
+                }
+            } else if(expression.getType() == Variable.VariableType.INTEGER) {
+                integer(expression);
+                code.op(Bytecode.I2D);
+            } else if(expression instanceof Reference) {
+                Slot slot = ((Reference) expression).getSlot();
+                int local = variable(slot);
+
+                if(local != -1) {
+                    code.op(Bytecode.DLOAD, local);
+                } else {
+                    variable(slot, "get");
+                    code.op(Bytecode.INVOKEVIRTUAL, classFile.methodRef(VARIABLE, "getDecimal", "()D"));
+                }
+            } else if(expression instanceof Element) {
+                variable(((Element) expression).getSlot(), "get");
+                integer(((Element) expression).getIndex());
+                code.op(Bytecode.INVOKEVIRTUAL, classFile.methodRef(VARIABLE, "getDecimal", "(I)D"));
+            } else if(expression instanceof Negate) {
+                decimal(((Negate) expression).getOperand());
+                code.op(Bytecode.DNEG);
+            } else {
+                Binary binary = (Binary) expression;
+
+                decimal(binary.getLeft());
+                decimal(binary.getRight());
+
+                switch(binary.getOperator()) {
+                    case '+':
+                        code.op(Bytecode.DADD);
+                        break;
+                    case '-':
+                        code.op(Bytecode.DSUB);
+                        break;
+                    case '*':
+                        code.op(Bytecode.DMUL);
+                        break;
+                    case '/':
+                        code.op(Bytecode.DDIV);
+                        break;
+                    default:
+                        code.op(Bytecode.DREM);
+                }
+            }
+        }
+
+        /**
+         * @return an upper bound of the stack the expression needs: every part pushes at most a decimal and the
+         * operands of a call
+         */
+        private int stack(Expression expression) {
+            int size = 4;
+
+            if(expression instanceof Element) {
+                size += stack(((Element) expression).getIndex());
+            } else if(expression instanceof Negate) {
+                size += stack(((Negate) expression).getOperand());
+            } else if(expression instanceof Binary) {
+                size += stack(((Binary) expression).getLeft()) + stack(((Binary) expression).getRight());
+            }
+
+            maxStack = java.lang.Math.max(maxStack, size + 2);
+
+            return size;
+        }
+
+        /**
+         * @return the local of a scalar integer or decimal variable in the frame of the method, or <code>-1</code> if
+         * the variable stays in the frame
+         */
+        private int variable(Slot slot) {
+            if(slot.getDepth() != 0 || slot.isArray() || slot.isTable() || (slot.getType() != Variable.VariableType.INTEGER && slot.getType() != Variable.VariableType.DECIMAL)) {
+                return -1;
+            }
+
+            // Slots of the same variable are different objects, so they are told apart by their index and type.
+            String key = slot.getType().name() + slot.getIndex();
+            Slot known = variableSlots.get(key);
+
+            if(known == null) {
+                variableSlots.put(key, known = slot);
+            }
+
+            Integer local = variables.get(known);
+
+            if(local == null) {
+                variables.put(known, local = nextLocal);
+                nextLocal += slot.getType() == Variable.VariableType.DECIMAL ? 2 : 1;
+            }
+
+            return local;
+        }
+
+        /*
+        ((Slot) this.constants[constant]).<name>(frame)
+         */
+        private void variable(Slot slot, String name) throws IOException {
+            slot(constant(slot));
+            code.op(Bytecode.ALOAD_1);
+            code.op(Bytecode.INVOKEVIRTUAL, classFile.methodRef(SLOT, name, "(L" + FRAME + ";)L" + VARIABLE + ";"));
+        }
+
+        /*
+        spill((Slot) this.constants[constant], frame, <local>); for every variable in a local
+         */
+        private void spill() throws IOException {
+            for(Map.Entry<Slot, Integer> variable : variables.entrySet()) {
+                boolean decimal = variable.getKey().getType() == Variable.VariableType.DECIMAL;
+
+                slot(variableConstant(variable.getKey()));
+                code.op(Bytecode.ALOAD_1);
+                code.op(decimal ? Bytecode.DLOAD : Bytecode.ILOAD, variable.getValue());
+                code.op(Bytecode.INVOKESTATIC, classFile.methodRef(COMPILED_METHOD, "spill", "(L" + SLOT + ";L" + FRAME + ";" + (decimal ? "D" : "I") + ")V"));
+            }
+        }
+
+        /*
+        <local> = fill((Slot) this.constants[constant], frame, <local>); for every variable in a local
+         */
+        private void fill() throws IOException {
+            for(Map.Entry<Slot, Integer> variable : variables.entrySet()) {
+                boolean decimal = variable.getKey().getType() == Variable.VariableType.DECIMAL;
+
+                slot(variableConstant(variable.getKey()));
+                code.op(Bytecode.ALOAD_1);
+                code.op(decimal ? Bytecode.DLOAD : Bytecode.ILOAD, variable.getValue());
+                code.op(Bytecode.INVOKESTATIC, classFile.methodRef(COMPILED_METHOD, "fill", "(L" + SLOT + ";L" + FRAME + ";" + (decimal ? "D)D" : "I)I")));
+                code.op(decimal ? Bytecode.DSTORE : Bytecode.ISTORE, variable.getValue());
+            }
+        }
+
+        private void slot(int constant) throws IOException {
+            code.op(Bytecode.ALOAD_0);
+            code.op(Bytecode.GETFIELD, classFile.fieldRef(COMPILED_METHOD, "constants", "[Ljava/lang/Object;"));
+            code.pushInt(constant);
+            code.op(Bytecode.AALOAD);
+            code.op(Bytecode.CHECKCAST, classFile.classInfo(SLOT));
+        }
+
+        /*
+        frame.step();
+         */
+        private void step() throws IOException {
+            code.op(Bytecode.ALOAD_1);
+            code.op(Bytecode.INVOKEVIRTUAL, classFile.methodRef(FRAME, "step", "()V"));
+        }
+
+        private int node(Block block) {
+            nodes.add(block);
+            return nodes.size() - 1;
+        }
+
+        private int constant(Object value) {
+            constants.add(value);
+            return constants.size() - 1;
+        }
+
+        private int variableConstant(Slot slot) {
+            Integer constant = variableConstants.get(slot);
+
+            if(constant == null) {
+                variableConstants.put(slot, constant = constant(slot));
+            }
+
+            return constant;
+        }
+
+        /*
+        ((<type>) this.nodes[node])
+         */
+        private void load(int node, String type) throws IOException {
+            code.op(Bytecode.ALOAD_0);
+            code.op(Bytecode.GETFIELD, classFile.fieldRef(COMPILED_METHOD, "nodes", "[L" + BLOCK + ";"));
+            code.pushInt(node);
+            code.op(Bytecode.AALOAD);
+
+            if(!type.equals(BLOCK)) {
+                code.op(Bytecode.CHECKCAST, classFile.classInfo(type));
+            }
+        }
+
+        /*
+        ((<owner>) this.nodes[node]).<name>(frame)
+         */
+        private void invoke(int node, String owner, String name, String descriptor) throws IOException {
+            load(node, owner);
+            code.op(Bytecode.ALOAD_1);
+            code.op(Bytecode.INVOKEVIRTUAL, classFile.methodRef(owner, name, descriptor));
+        }
+
+    }
+
+}
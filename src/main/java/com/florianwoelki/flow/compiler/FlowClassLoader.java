@@ -0,0 +1,17 @@
+package com.florianwoelki.flow.compiler;
+
+/**
+ * Defines the classes generated for one program. The classes can only be reached through this loader, so they are
+ * unloaded together with the program.
+ */
+class FlowClassLoader extends ClassLoader {
+
+    FlowClassLoader() {
+        super(FlowClassLoader.class.getClassLoader());
+    }
+
+    Class<?> define(String name, byte[] bytes) {
+        return defineClass(name, bytes, 0, bytes.length);
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.florianwoelki.flow.console;
+
+import com.florianwoelki.flow.exception.InvalidCodeException;
+
+/**
+ * The input and output of a running program. The interpreter only talks to this interface, so a program can run in
+ * the IDE, on the command line or in memory.
+ */
+public interface Console {
+
+    void write(OutputType outputType, String text);
+
+    default void writeLine(OutputType outputType, String text) {
+        write(outputType, text + "\n");
+    }
+
+    /**
+     * Waits for the next line of input.
+     */
+    String prompt() throws InvalidCodeException;
+
+    void clear();
+
+}
@@ -0,0 +1,66 @@
+package com.florianwoelki.flow.console;
+
+import com.florianwoelki.flow.exception.ExecutionStoppedException;
+import com.florianwoelki.flow.exception.InvalidCodeException;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Hands lines of input to a running program. Any thread can send lines, the program blocks in {@link #receive()}
+ * until a line arrives and wakes up as soon as it is sent. After {@link #close()} the lines which were already sent
+ * can still be received, then the program is told that there is no more input.
+ */
+public class InputChannel {
+
+    /**
+     * Marks the end of the input. It is compared by identity, so it can not be mixed up with a line of input.
+     */
+    private static final String END = new String("");
+
+    private final BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+
+    public InputChannel(String... lines) {
+        for(String line : lines) {
+            send(line);
+        }
+    }
+
+    public void send(String line) {
+        if(line == null) {
+            throw new IllegalArgumentException("Line must not be null.");
+        }
+
+        lines.add(line);
+    }
+
+    public void close() {
+        lines.add(END);
+    }
+
+    /**
+     * Waits for the next line.
+     *
+     * @throws InvalidCodeException        if the channel was closed
+     * @throws ExecutionStoppedException if the waiting thread was interrupted
+     */
+    public String receive() throws InvalidCodeException {
+        String line;
+
+        try {
+            line = lines.take();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExecutionStoppedException("Cancelled while waiting for input.");
+        }
+
+        if(line == END) {
+            // Keep the channel closed for the next call.
+            lines.add(END);
+            throw new InvalidCodeException("No more input.");
+        }
+
+        return line;
+    }
+
+}
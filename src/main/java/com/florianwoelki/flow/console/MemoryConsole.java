@@ -0,0 +1,51 @@
+package com.florianwoelki.flow.console;
+
+import com.florianwoelki.flow.exception.InvalidCodeException;
+
+/**
+ * A console in memory. The input is given up front or sent through an {@link InputChannel} while the program runs,
+ * the output is collected and info and errors are kept apart from the output of the program.
+ */
+public class MemoryConsole implements Console {
+
+    private final InputChannel input;
+    private final StringBuilder output = new StringBuilder();
+    private final StringBuilder info = new StringBuilder();
+
+    public MemoryConsole(String... input) {
+        this(new InputChannel(input));
+        this.input.close();
+    }
+
+    public MemoryConsole(InputChannel input) {
+        this.input = input;
+    }
+
+    @Override
+    public synchronized void write(OutputType outputType, String text) {
+        (outputType == OutputType.OUTPUT ? output : info).append(text);
+    }
+
+    @Override
+    public String prompt() throws InvalidCodeException {
+        return input.receive();
+    }
+
+    @Override
+    public synchronized void clear() {
+        output.setLength(0);
+        info.setLength(0);
+    }
+
+    public synchronized String getOutput() {
+        return output.toString();
+    }
+
+    /**
+     * @return the info and error messages
+     */
+    public synchronized String getInfo() {
+        return info.toString();
+    }
+
+}
@@ -0,0 +1,14 @@
+package com.florianwoelki.flow.console;
+
+/**
+ * Created by Florian Woelki on 23.07.17.
+ */
+public enum OutputType {
+
+    OUTPUT,
+
+    INFO,
+
+    ERROR
+
+}
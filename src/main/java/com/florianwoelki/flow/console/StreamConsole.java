@@ -0,0 +1,54 @@
+package com.florianwoelki.flow.console;
+
+import com.florianwoelki.flow.exception.InvalidCodeException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A console on streams, like stdin and stdout. The output of the program goes to the output stream, info and errors
+ * go to the error stream, so the output can be piped in scripts.
+ */
+public class StreamConsole implements Console {
+
+    private final BufferedReader in;
+    private final PrintStream out;
+    private final PrintStream err;
+
+    public StreamConsole(InputStream in, PrintStream out, PrintStream err) {
+        this.in = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        this.out = out;
+        this.err = err;
+    }
+
+    @Override
+    public void write(OutputType outputType, String text) {
+        (outputType == OutputType.OUTPUT ? out : err).print(text);
+    }
+
+    @Override
+    public String prompt() throws InvalidCodeException {
+        out.flush();
+
+        try {
+            String line = in.readLine();
+
+            if(line == null) {
+                throw new InvalidCodeException("No more input.");
+            }
+
+            return line;
+        } catch(IOException e) {
+            throw new InvalidCodeException("Could not read input: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void clear() {
+    }
+
+}
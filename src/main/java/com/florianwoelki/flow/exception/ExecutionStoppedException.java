@@ -0,0 +1,12 @@
+package com.florianwoelki.flow.exception;
+
+/**
+ * Thrown when a running program is stopped, because it was cancelled or went over one of its limits.
+ */
+public class ExecutionStoppedException extends InvalidCodeException {
+
+    public ExecutionStoppedException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.florianwoelki.flow.expression;
+
+import com.florianwoelki.flow.exception.InvalidCodeException;
+import com.florianwoelki.flow.lang.Frame;
+import com.florianwoelki.flow.lang.Variable;
+
+/**
+ * An arithmetic operation on two operands: <code>+ - * / %</code>. The operation is an integer operation if both
+ * operands are integers, otherwise it is a decimal operation.
+ */
+public class Binary extends Expression {
+
+    private final char operator;
+    private final Expression left, right;
+    private final Variable.VariableType type;
+
+    public Binary(char operator, Expression left, Expression right) {
+        this.operator = operator;
+        this.left = left;
+        this.right = right;
+        this.type = left.getType() == Variable.VariableType.INTEGER && right.getType() == Variable.VariableType.INTEGER ? Variable.VariableType.INTEGER : Variable.VariableType.DECIMAL;
+    }
+
+    @Override
+    public Variable.VariableType getType() {
+        return type;
+    }
+
+    public char getOperator() {
+        return operator;
+    }
+
+    public Expression getLeft() {
+        return left;
+    }
+
+    public Expression getRight() {
+        return right;
+    }
+
+    @Override
+    public int evaluateInteger(Frame frame) throws InvalidCodeException {
+        if(type == Variable.VariableType.DECIMAL) {
+            return (int) evaluateDecimal(frame);
+        }
+
+        int a = left.evaluateInteger(frame), b = right.evaluateInteger(frame);
+
+        switch(operator) {
+            case '+':
+                return a + b;
+            case '-':
+                return a - b;
+            case '*':
+                return a * b;
+            default:
+                if(b == 0) {
+                    throw new InvalidCodeException("Division by zero in " + this + ".");
+                }
+
+                return operator == '/' ? a / b : a % b;
+        }
+    }
+
+    @Override
+    public double evaluateDecimal(Frame frame) throws InvalidCodeException {
+        if(type == Variable.VariableType.INTEGER) {
+            return evaluateInteger(frame);
+        }
+
+        double a = left.evaluateDecimal(frame), b = right.evaluateDecimal(frame);
+
+        switch(operator) {
+            case '+':
+                return a + b;
+            case '-':
+                return a - b;
+            case '*':
+                return a * b;
+            case '/':
+                return a / b;
+            default:
+                return a % b;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "(" + left + " " + operator + " " + right + ")";
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.florianwoelki.flow.expression;
+
+import com.florianwoelki.flow.lang.Frame;
+import com.florianwoelki.flow.lang.Variable;
+
+/**
+ * A literal number in a math expression.
+ */
+public class Constant extends Expression {
+
+    private final Variable.VariableType type;
+    private final int integerValue;
+    private final double decimalValue;
+
+    public Constant(int value) {
+        this.type = Variable.VariableType.INTEGER;
+        this.integerValue = value;
+        this.decimalValue = value;
+    }
+
+    public Constant(double value) {
+        this.type = Variable.VariableType.DECIMAL;
+        this.integerValue = (int) value;
+        this.decimalValue = value;
+    }
+
+    @Override
+    public Variable.VariableType getType() {
+        return type;
+    }
+
+    @Override
+    public int evaluateInteger(Frame frame) {
+        return integerValue;
+    }
+
+    @Override
+    public double evaluateDecimal(Frame frame) {
+        return decimalValue;
+    }
+
+    @Override
+    public boolean isConstant() {
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return type == Variable.VariableType.INTEGER ? Integer.toString(integerValue) : Double.toString(decimalValue);
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.florianwoelki.flow.expression;
+
+import com.florianwoelki.flow.exception.InvalidCodeException;
+import com.florianwoelki.flow.lang.Frame;
+import com.florianwoelki.flow.lang.Slot;
+import com.florianwoelki.flow.lang.Variable;
+
+/**
+ * Reads an element of an integer or decimal array.
+ */
+public class Element extends Expression {
+
+    private final Slot slot;
+    private final Expression index;
+
+    public Element(Slot slot, Expression index) {
+        this.slot = slot;
+        this.index = index;
+    }
+
+    @Override
+    public Variable.VariableType getType() {
+        return slot.getType();
+    }
+
+    public Slot getSlot() {
+        return slot;
+    }
+
+    public Expression getIndex() {
+        return index;
+    }
+
+    @Override
+    public int evaluateInteger(Frame frame) throws InvalidCodeException {
+        return slot.get(frame).getInteger(index.evaluateInteger(frame));
+    }
+
+    @Override
+    public double evaluateDecimal(Frame frame) throws InvalidCodeException {
+        return slot.get(frame).getDecimal(index.evaluateInteger(frame));
+    }
+
+    @Override
+    public String toString() {
+        return slot.getName() + "[" + index + "]";
+    }
+
+}
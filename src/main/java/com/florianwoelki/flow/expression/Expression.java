@@ -0,0 +1,33 @@
+package com.florianwoelki.flow.expression;
+
+import com.florianwoelki.flow.exception.InvalidCodeException;
+import com.florianwoelki.flow.lang.Frame;
+import com.florianwoelki.flow.lang.Variable;
+
+/**
+ * A compiled arithmetic expression. An expression is parsed once by the {@link ExpressionParser} and only evaluated
+ * afterwards. Its type is {@link Variable.VariableType#INTEGER} if every operand is an integer and
+ * {@link Variable.VariableType#DECIMAL} otherwise.
+ */
+public abstract class Expression {
+
+    public abstract Variable.VariableType getType();
+
+    /**
+     * Evaluates an integer expression. Integer division and modulo round towards zero like in Java.
+     */
+    public abstract int evaluateInteger(Frame frame) throws InvalidCodeException;
+
+    /**
+     * Evaluates the expression as decimal, integer operands are widened.
+     */
+    public abstract double evaluateDecimal(Frame frame) throws InvalidCodeException;
+
+    /**
+     * @return whether the expression does not use any variable, constant expressions are folded while parsing
+     */
+    public boolean isConstant() {
+        return false;
+    }
+
+}
@@ -0,0 +1,146 @@
+package com.florianwoelki.flow.expression;
+
+import com.florianwoelki.flow.exception.InvalidCodeException;
+import com.florianwoelki.flow.lang.Scope;
+import com.florianwoelki.flow.lang.Slot;
+import com.florianwoelki.flow.lang.Variable;
+import com.florianwoelki.flow.lexer.Lexer;
+import com.florianwoelki.flow.lexer.TokenType;
+
+/**
+ * Parses an arithmetic expression into an {@link Expression} tree. Variables are resolved in the scope of the
+ * expression, operations on constants are folded right away.
+ * <p>
+ * <pre>
+ * expression = term (("+" | "-") term)*
+ * term       = unary (("*" | "/" | "%") unary)*
+ * unary      = "-" unary | primary
+ * primary    = number | variable [index] | "(" expression ")"
+ * </pre>
+ */
+public class ExpressionParser {
+
+    private final String source;
+    private final Scope scope;
+    private final Lexer lexer;
+
+    public ExpressionParser(String source, Scope scope) {
+        this.source = source;
+        this.scope = scope;
+        this.lexer = new Lexer(source);
+    }
+
+    public Expression parse() throws InvalidCodeException {
+        lexer.next();
+
+        Expression expression = expression();
+
+        if(lexer.getType() != TokenType.EOF) {
+            throw new InvalidCodeException("Unexpected " + lexer.getText() + " in math expression " + source + ".");
+        }
+
+        return expression;
+    }
+
+    private Expression expression() throws InvalidCodeException {
+        Expression expression = term();
+
+        while(lexer.is(TokenType.OPERATOR, "+") || lexer.is(TokenType.OPERATOR, "-")) {
+            char operator = lexer.getText().charAt(0);
+            lexer.next();
+            expression = binary(operator, expression, term());
+        }
+
+        return expression;
+    }
+
+    private Expression term() throws InvalidCodeException {
+        Expression expression = unary();
+
+        while(lexer.is(TokenType.OPERATOR, "*") || lexer.is(TokenType.OPERATOR, "/") || lexer.is(TokenType.OPERATOR, "%")) {
+            char operator = lexer.getText().charAt(0);
+            lexer.next();
+            expression = binary(operator, expression, unary());
+        }
+
+        return expression;
+    }
+
+    private Expression unary() throws InvalidCodeException {
+        if(lexer.is(TokenType.OPERATOR, "-")) {
+            lexer.next();
+
+            Expression operand = unary();
+
+            if(operand.isConstant()) {
+                return operand.getType() == Variable.VariableType.INTEGER ? new Constant(-operand.evaluateInteger(null)) : new Constant(-operand.evaluateDecimal(null));
+            }
+
+            return new Negate(operand);
+        }
+
+        return primary();
+    }
+
+    private Expression primary() throws InvalidCodeException {
+        TokenType type = lexer.getType();
+        String text = lexer.getText();
+
+        if(type == TokenType.NUMBER) {
+            lexer.next();
+
+            return text.indexOf('.') == -1 ? new Constant(Integer.parseInt(text)) : new Constant(Double.parseDouble(text));
+        } else if(type == TokenType.LPAREN) {
+            lexer.next();
+
+            Expression expression = expression();
+
+            if(lexer.getType() != TokenType.RPAREN) {
+                throw new InvalidCodeException("Missing ) in math expression " + source + ".");
+            }
+
+            lexer.next();
+            return expression;
+        } else if(type == TokenType.IDENTIFIER) {
+            Slot slot = scope.lookup(text);
+
+            if(slot == null) {
+                throw new InvalidCodeException("Variable " + text + " is not declared.");
+            } else if(slot.getType() != Variable.VariableType.INTEGER && slot.getType() != Variable.VariableType.DECIMAL) {
+                throw new InvalidCodeException("Attempted to use " + slot.getType().name().toLowerCase() + " " + text + " in math expression.");
+            }
+
+            if(lexer.next() == TokenType.INDEX) {
+                if(!slot.isArray()) {
+                    throw new InvalidCodeException("Attempted to use index on non-array " + text + ".");
+                }
+
+                Expression index = new ExpressionParser(lexer.getValue(), scope).parse();
+
+                if(index.getType() != Variable.VariableType.INTEGER) {
+                    throw new InvalidCodeException("Array index " + index + " is not an integer.");
+                }
+
+                lexer.next();
+                return new Element(slot, index);
+            } else if(slot.isArray()) {
+                throw new InvalidCodeException("Attempted to use array " + text + " in math expression.");
+            }
+
+            return new Reference(slot);
+        }
+
+        throw new InvalidCodeException(type == TokenType.EOF ? "Incomplete math expression " + source + "." : "Unexpected " + text + " in math expression " + source + ".");
+    }
+
+    private Expression binary(char operator, Expression left, Expression right) throws InvalidCodeException {
+        Expression expression = new Binary(operator, left, right);
+
+        if(left.isConstant() && right.isConstant()) {
+            return expression.getType() == Variable.VariableType.INTEGER ? new Constant(expression.evaluateInteger(null)) : new Constant(expression.evaluateDecimal(null));
+        }
+
+        return expression;
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.florianwoelki.flow.expression;
+
+import com.florianwoelki.flow.exception.InvalidCodeException;
+import com.florianwoelki.flow.lang.Frame;
+import com.florianwoelki.flow.lang.Variable;
+
+/**
+ * The negation of an operand: <code>-x</code>.
+ */
+public class Negate extends Expression {
+
+    private final Expression operand;
+
+    public Negate(Expression operand) {
+        this.operand = operand;
+    }
+
+    @Override
+    public Variable.VariableType getType() {
+        return operand.getType();
+    }
+
+    public Expression getOperand() {
+        return operand;
+    }
+
+    @Override
+    public int evaluateInteger(Frame frame) throws InvalidCodeException {
+        return -operand.evaluateInteger(frame);
+    }
+
+    @Override
+    public double evaluateDecimal(Frame frame) throws InvalidCodeException {
+        return -operand.evaluateDecimal(frame);
+    }
+
+    @Override
+    public String toString() {
+        return "-" + operand;
+    }
+
+}
@@ -0,0 +1,47 @@
+package com.florianwoelki.flow.expression;
+
+import com.florianwoelki.flow.exception.InvalidCodeException;
+import com.florianwoelki.flow.lang.Frame;
+import com.florianwoelki.flow.lang.Slot;
+import com.florianwoelki.flow.lang.Variable;
+
+/**
+ * Reads an integer or decimal variable.
+ */
+public class Reference extends Expression {
+
+    private final Slot slot;
+
+    public Reference(Slot slot) {
+        this.slot = slot;
+    }
+
+    @Override
+    public Variable.VariableType getType() {
+        return slot.getType();
+    }
+
+    public Slot getSlot() {
+        return slot;
+    }
+
+    @Override
+    public int evaluateInteger(Frame frame) throws InvalidCodeException {
+        Variable variable = slot.get(frame);
+
+        return slot.getType() == Variable.VariableType.INTEGER ? variable.getInteger() : (int) variable.getDecimal();
+    }
+
+    @Override
+    public double evaluateDecimal(Frame frame) throws InvalidCodeException {
+        Variable variable = slot.get(frame);
+
+        return slot.getType() == Variable.VariableType.INTEGER ? variable.getInteger() : variable.getDecimal();
+    }
+
+    @Override
+    public String toString() {
+        return slot.getName();
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.florianwoelki.flow.function;
+
+import com.florianwoelki.flow.exception.InvalidCodeException;
+import com.florianwoelki.flow.lang.Argument;
+import com.florianwoelki.flow.lang.Class;
+import com.florianwoelki.flow.lang.Frame;
+import com.florianwoelki.flow.lang.Method;
+import com.florianwoelki.flow.lang.Slot;
+import com.florianwoelki.flow.lang.Variable;
+
+/**
+ * A call which was bound to its target while resolving. Methods are bound by their index in the class, so a method
+ * which is parsed again is picked up by the call.
+ */
+public class CallSite {
+
+    private final Class clazz;
+    private final int method;
+    private final Function function;
+
+    private final Argument[] args;
+    private final Slot receiver;
+
+    CallSite(Class clazz, int method, Argument[] args, Slot receiver) {
+        this.clazz = clazz;
+        this.method = method;
+        this.function = null;
+        this.args = args;
+        this.receiver = receiver;
+    }
+
+    CallSite(Function function, Argument[] args, Slot receiver) {
+        this.clazz = null;
+        this.method = -1;
+        this.function = function;
+        this.args = args;
+        this.receiver = receiver;
+    }
+
+    /**
+     * @return the bound function, or <code>null</code> if a method is called
+     */
+    public Function getFunction() {
+        return function;
+    }
+
+    /**
+     * @return the bound method, or <code>null</code> if a built-in function is called
+     */
+    public Method getMethod() {
+        return function == null ? clazz.getMethod(method) : null;
+    }
+
+    public Argument[] getArguments() {
+        return args.clone();
+    }
+
+    public Slot getReceiver() {
+        return receiver;
+    }
+
+    /**
+     * @return the values of the arguments for a method
+     */
+    public Object[] evaluateArguments(Frame frame) throws InvalidCodeException {
+        Object[] values = new Object[args.length];
+
+        for(int i = 0; i < args.length; i++) {
+            values[i] = args[i].evaluateValue(frame);
+        }
+
+        return values;
+    }
+
+    public void call(Frame frame) throws InvalidCodeException {
+        Variable receiverVar = receiver == null ? null : receiver.get(frame);
+
+        if(function != null) {
+            function.run(frame.getConsole(), frame, args, receiverVar);
+            return;
+        }
+
+        Object retValue = clazz.getMethod(method).invoke(frame, evaluateArguments(frame));
+
+        if(receiverVar != null) {
+            receiverVar.setValue(retValue);
+        }
+    }
+
+}
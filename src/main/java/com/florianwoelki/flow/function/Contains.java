@@ -0,0 +1,49 @@
+package com.florianwoelki.flow.function;
+
+import com.florianwoelki.flow.console.Console;
+import com.florianwoelki.flow.exception.InvalidCodeException;
+import com.florianwoelki.flow.lang.Argument;
+import com.florianwoelki.flow.lang.Frame;
+import com.florianwoelki.flow.lang.Scope;
+import com.florianwoelki.flow.lang.Slot;
+import com.florianwoelki.flow.lang.Variable;
+
+/**
+ * Tells whether a map or set contains a key: <code>contains(map, key) result</code>.
+ */
+public class Contains extends TableFunction {
+
+    public Contains() {
+        super("contains");
+    }
+
+    @Override
+    public void resolve(Scope scope, Argument[] args, Slot receiver) throws InvalidCodeException {
+        super.resolve(scope, args, receiver);
+
+        Slot table = checkTable(args.length == 2 ? args[0].getSlot() : null, false);
+
+        args[1].check(table.getKeyType());
+
+        if(receiver == null || receiver.isArray() || receiver.isTable()) {
+            throw new InvalidCodeException("Attempted to check " + table.getName() + " but no variable specified.");
+        }
+
+        receiver.getType().check(Variable.VariableType.BOOLEAN, "result of contains");
+    }
+
+    /*
+    Usage: contains(<map or set>, <key>) <var>
+     */
+    @Override
+    public void run(Console console, Frame frame, Argument[] args, Variable receiver) throws InvalidCodeException {
+        boolean contains = indexOf(args[0].getSlot().get(frame).getTable(), args[1], frame) != -1;
+
+        if(receiver.getType() == Variable.VariableType.BOOLEAN) {
+            receiver.setBoolean(contains);
+        } else {
+            receiver.setValue(contains);
+        }
+    }
+
+}
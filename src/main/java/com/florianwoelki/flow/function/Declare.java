@@ -1,13 +1,13 @@
 package com.florianwoelki.flow.function;
 
-import com.florianwoelki.flow.FlowLang;
+import com.florianwoelki.flow.console.Console;
 import com.florianwoelki.flow.exception.InvalidCodeException;
-import com.florianwoelki.flow.gui.Console;
-import com.florianwoelki.flow.lang.Block;
+import com.florianwoelki.flow.lang.Argument;
+import com.florianwoelki.flow.lang.Frame;
+import com.florianwoelki.flow.lang.Scope;
+import com.florianwoelki.flow.lang.Slot;
 import com.florianwoelki.flow.lang.Variable;
 
-import java.util.Arrays;
-
 /**
  * Created by Florian Woelki on 08.11.16.
  */
@@ -17,37 +17,119 @@ public class Declare extends Function {
         super("declare");
     }
 
-    /*
-    Usage: declare(<type>([]), <varname>, [value])
-     */
     @Override
-    public void run(Console console, Block block, String[] args, Variable receiver) throws InvalidCodeException {
-        boolean isArray = args[0].endsWith("[]");
+    public void resolve(Scope scope, Argument[] args, Slot receiver) throws InvalidCodeException {
+        if(args.length < 2) {
+            throw new InvalidCodeException("Missing variable name for declare.");
+        }
+
+        String type = args[0].getText();
+        Variable.VariableType[] table = Variable.VariableType.matchTable(type);
 
-        if(isArray) {
-            args[0] = args[0].substring(0, args[0].length() - 2);
+        if(table != null) {
+            if(args.length > 2) {
+                throw new InvalidCodeException("Attempted to declare " + type + " " + args[1].getText() + " with values.");
+            }
+
+            args[1].declare(scope, table[0], table[1]);
+            return;
         }
 
-        Variable.VariableType t = Variable.VariableType.match(args[0]);
+        boolean isArray = type.endsWith("]");
+        int size = size(type);
+        Variable.VariableType t = Variable.VariableType.match(isArray ? type.substring(0, type.indexOf('[')).trim() : type);
 
         if(t == Variable.VariableType.VOID) {
             throw new InvalidCodeException("Attempted to declare void variable.");
         }
 
-        String name = args[1];
+        if(size != -1 && args.length - 2 > size) {
+            throw new InvalidCodeException("Too many values for array " + args[1].getText() + " of size " + size + ".");
+        }
 
-        Object value = null;
+        for(int i = 2; i < args.length; i++) {
+            args[i].resolve(scope);
 
-        if(args.length >= 3) {
-            if(t == Variable.VariableType.STRING) {
-                value = FlowLang.implode(args[2], block);
+            if(!isArray || args.length > 3 || size != -1) {
+                args[i].check(t);
+            }
+        }
+
+        args[1].declare(scope, t, isArray, size);
+    }
+
+    /**
+     * @return the size of an array type like <code>integer[1000]</code>, or <code>-1</code> if it has none
+     */
+    private static int size(String type) throws InvalidCodeException {
+        int open = type.indexOf('[');
+
+        if(open == -1 || !type.endsWith("]")) {
+            return -1;
+        }
+
+        String size = type.substring(open + 1, type.length() - 1).trim();
+
+        if(size.isEmpty()) {
+            return -1;
+        }
+
+        try {
+            return Integer.parseInt(size);
+        } catch(NumberFormatException e) {
+            throw new InvalidCodeException("Size " + size + " of array type " + type + " is not a number.");
+        }
+    }
+
+    /*
+    Usage: declare(<type>([]), <varname>, [value], ...)
+           declare(<type>[<size>], <varname>, [value], ...)
+           declare(map<<key type>,<value type>>, <varname>)
+           declare(set<<key type>>, <varname>)
+
+    The type was read while resolving, the slot of the name knows it.
+     */
+    @Override
+    public void run(Console console, Frame frame, Argument[] args, Variable receiver) throws InvalidCodeException {
+        Slot slot = args[1].getSlot();
+        String name = args[1].getText();
+
+        if(slot.isTable()) {
+            slot.set(frame, Variable.table(name, slot.getKeyType(), slot.getValueType()));
+            return;
+        }
+
+        Variable.VariableType t = slot.getType();
+        int size = slot.getSize();
+        boolean isArray = slot.isArray();
+
+        Variable variable;
+
+        if(size != -1) {
+            variable = Variable.fixed(t, name, size);
+
+            for(int i = 2; i < args.length; i++) {
+                variable.setValue(args[i].evaluateValue(frame), i - 2);
+            }
+        } else if(isArray) {
+            if(args.length == 3) {
+                variable = new Variable(t, name, true, args[2].evaluate(frame));
             } else {
-                t.validateValue(args[2], block);
-                value = args[2];
+                variable = new Variable(t, name, true, null);
+
+                for(int i = 2; i < args.length; i++) {
+                    variable.push(args[i].evaluateValue(frame));
+                }
+            }
+        } else {
+            variable = new Variable(t, name, false, null);
+
+            if(args.length >= 3) {
+                args[2].assignTo(variable, frame);
             }
         }
 
-        block.addVariable(t, name, isArray, value);
+        slot.set(frame, variable);
     }
 
 }
@@ -1,8 +1,11 @@
 package com.florianwoelki.flow.function;
 
+import com.florianwoelki.flow.console.Console;
 import com.florianwoelki.flow.exception.InvalidCodeException;
-import com.florianwoelki.flow.gui.Console;
-import com.florianwoelki.flow.lang.Block;
+import com.florianwoelki.flow.lang.Argument;
+import com.florianwoelki.flow.lang.Frame;
+import com.florianwoelki.flow.lang.Scope;
+import com.florianwoelki.flow.lang.Slot;
 import com.florianwoelki.flow.lang.Variable;
 
 /**
@@ -16,7 +19,34 @@ public abstract class Function {
         this.name = name;
     }
 
-    public abstract void run(Console console, Block block, String[] args, Variable receiver) throws InvalidCodeException;
+    public abstract void run(Console console, Frame frame, Argument[] args, Variable receiver) throws InvalidCodeException;
+
+    /**
+     * Resolves the variables used by the arguments. Functions which declare variables override this to declare them
+     * in the scope, functions which assign a value check its type here.
+     */
+    public void resolve(Scope scope, Argument[] args, Slot receiver) throws InvalidCodeException {
+        for(Argument arg : args) {
+            arg.resolve(scope);
+        }
+    }
+
+    /**
+     * Evaluates all arguments and joins them to one text, like print does with its message parts.
+     */
+    protected String concat(Argument[] args, Frame frame) throws InvalidCodeException {
+        if(args.length == 1) {
+            return args[0].evaluate(frame);
+        }
+
+        StringBuilder builder = new StringBuilder();
+
+        for(Argument arg : args) {
+            builder.append(arg.evaluate(frame));
+        }
+
+        return builder.toString();
+    }
 
     public String getName() {
         return name;
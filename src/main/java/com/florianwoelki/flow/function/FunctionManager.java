@@ -1,80 +1,74 @@
 package com.florianwoelki.flow.function;
 
-import com.florianwoelki.flow.FlowLang;
 import com.florianwoelki.flow.exception.InvalidCodeException;
-import com.florianwoelki.flow.gui.Console;
-import com.florianwoelki.flow.lang.Block;
+import com.florianwoelki.flow.lang.Argument;
 import com.florianwoelki.flow.lang.Class;
-import com.florianwoelki.flow.lang.Method;
-import com.florianwoelki.flow.lang.Variable;
+import com.florianwoelki.flow.lang.Scope;
+import com.florianwoelki.flow.lang.Slot;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
+ * The dispatch table of a program. Every call is bound to its method or built-in function once while resolving, so
+ * running a call never has to look up its name.
+ * <p>
  * Created by Florian Woelki on 08.11.16.
  */
 public class FunctionManager {
 
-    private final List<Function> functions = new ArrayList<>();
-
-    private final Console console;
-
-    public FunctionManager(Console console) {
-        this.console = console;
+    private final Map<String, Function> functions = new HashMap<>();
+
+    private final Class clazz;
+
+    public FunctionManager(Class clazz) {
+        this.clazz = clazz;
+
+        register(new Print());
+        register(new PrintLn());
+        register(new Declare());
+        register(new Random());
+        register(new GetInput());
+        register(new Set());
+        register(new Math());
+        register(new Range());
+        register(new Push());
+        register(new Length());
+        register(new Put());
+        register(new Get());
+        register(new Remove());
+        register(new Contains());
+        register(new Size());
+    }
 
-        this.functions.add(new Print());
-        this.functions.add(new PrintLn());
-        this.functions.add(new Declare());
-        this.functions.add(new Random());
-        this.functions.add(new GetInput());
-        this.functions.add(new Set());
-        this.functions.add(new Math());
-        this.functions.add(new Range());
+    private void register(Function function) {
+        functions.put(function.getName().intern(), function);
     }
 
-    public void parse(Block block, String input) throws InvalidCodeException {
-        String funct = input.substring(0, input.indexOf("(")).trim();
+    /**
+     * Resolves the variables of a call, checks their types and binds the call. Methods of the class come before the
+     * built-in functions.
+     */
+    public CallSite bind(Scope scope, String funct, Argument[] args, Slot receiver) throws InvalidCodeException {
+        int method = clazz.indexOfMethod(funct);
 
-        String[] args = FlowLang.changeCommas(input.substring(input.indexOf("(") + 1, input.indexOf(")"))).split(",");
+        if(method != -1) {
+            for(Argument arg : args) {
+                arg.resolve(scope);
+            }
 
-        for(int i = 0; i < args.length; i++) {
-            args[i] = FlowLang.unchangeCommas(args[i]);
+            clazz.getMethod(method).checkCall(args, receiver);
+            return new CallSite(clazz, method, args, receiver);
         }
 
-        Variable receiver = null;
+        Function fun = functions.get(funct);
 
-        try {
-            receiver = block.getVariable(input.substring(input.indexOf(")") + 1).trim());
-        } catch(InvalidCodeException e) {
+        if(fun == null) {
+            throw new InvalidCodeException("Function " + funct + " does not exist.");
         }
 
-        try {
-            Method method = ((Class) block.getBlockTree()[0]).getMethod(funct);
-            Object retValue = method.invoke(args);
-            if(receiver != null) {
-                if(method.getReturnType() == Variable.VariableType.VOID) {
-                    throw new InvalidCodeException("Attempted to store result of void method to variable.");
-                }
-
-                receiver.getType().validateValue(retValue, block);
-                receiver.setValue(retValue);
-            }
-        } catch(InvalidCodeException e) {
-            Function fun = null;
-
-            for(Function f : functions) {
-                if(f.getName().equals(funct)) {
-                    fun = f;
-                }
-            }
-
-            if(fun == null) {
-                throw new InvalidCodeException("Function " + funct + " does not exist.");
-            } else {
-                fun.run(console, block, args, receiver);
-            }
-        }
+        fun.resolve(scope, args, receiver);
+        return new CallSite(fun, args, receiver);
     }
 
 }
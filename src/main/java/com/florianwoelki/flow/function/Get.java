@@ -0,0 +1,51 @@
+package com.florianwoelki.flow.function;
+
+import com.florianwoelki.flow.console.Console;
+import com.florianwoelki.flow.exception.InvalidCodeException;
+import com.florianwoelki.flow.lang.Argument;
+import com.florianwoelki.flow.lang.Frame;
+import com.florianwoelki.flow.lang.Scope;
+import com.florianwoelki.flow.lang.Slot;
+import com.florianwoelki.flow.lang.Table;
+import com.florianwoelki.flow.lang.Variable;
+
+/**
+ * Reads the value of a key from a map: <code>get(map, key) result</code>.
+ */
+public class Get extends TableFunction {
+
+    public Get() {
+        super("get");
+    }
+
+    @Override
+    public void resolve(Scope scope, Argument[] args, Slot receiver) throws InvalidCodeException {
+        super.resolve(scope, args, receiver);
+
+        Slot map = checkTable(args.length == 2 ? args[0].getSlot() : null, true);
+
+        args[1].check(map.getKeyType());
+
+        if(receiver == null || receiver.isArray() || receiver.isTable()) {
+            throw new InvalidCodeException("Attempted to get value of " + map.getName() + " but no variable specified.");
+        }
+
+        receiver.getType().check(map.getValueType(), "value of " + map.getName());
+    }
+
+    /*
+    Usage: get(<map>, <key>) <var>
+     */
+    @Override
+    public void run(Console console, Frame frame, Argument[] args, Variable receiver) throws InvalidCodeException {
+        Table table = args[0].getSlot().get(frame).getTable();
+        int index = indexOf(table, args[1], frame);
+
+        if(index == -1) {
+            throw new InvalidCodeException("Key " + args[1].evaluate(frame) + " is not in " + args[0].getText() + ".");
+        }
+
+        table.copyValue(index, receiver);
+    }
+
+}
@@ -1,8 +1,9 @@
 package com.florianwoelki.flow.function;
 
+import com.florianwoelki.flow.console.Console;
 import com.florianwoelki.flow.exception.InvalidCodeException;
-import com.florianwoelki.flow.gui.Console;
-import com.florianwoelki.flow.lang.Block;
+import com.florianwoelki.flow.lang.Argument;
+import com.florianwoelki.flow.lang.Frame;
 import com.florianwoelki.flow.lang.Variable;
 
 /**
@@ -18,11 +19,11 @@ public class GetInput extends Function {
     Usage: getinput() <var>
      */
     @Override
-    public void run(Console console, Block block, String[] args, Variable receiver) throws InvalidCodeException {
+    public void run(Console console, Frame frame, Argument[] args, Variable receiver) throws InvalidCodeException {
         String input = console.prompt();
 
         if(receiver != null) {
-            receiver.getType().validateValue(input, block);
+            receiver.getType().validateValue(input);
             receiver.setValue(input);
         }
     }
@@ -0,0 +1,47 @@
+package com.florianwoelki.flow.function;
+
+import com.florianwoelki.flow.console.Console;
+import com.florianwoelki.flow.exception.InvalidCodeException;
+import com.florianwoelki.flow.lang.Argument;
+import com.florianwoelki.flow.lang.Frame;
+import com.florianwoelki.flow.lang.Scope;
+import com.florianwoelki.flow.lang.Slot;
+import com.florianwoelki.flow.lang.Variable;
+
+/**
+ * Stores the length of an array in a variable: <code>length(array) result</code>.
+ */
+public class Length extends Function {
+
+    public Length() {
+        super("length");
+    }
+
+    @Override
+    public void resolve(Scope scope, Argument[] args, Slot receiver) throws InvalidCodeException {
+        super.resolve(scope, args, receiver);
+
+        if(args.length == 0 || args[0].getSlot() == null || !args[0].getSlot().isArray()) {
+            throw new InvalidCodeException("Attempted to get length but no array specified.");
+        }
+
+        if(receiver == null || receiver.isArray() || (receiver.getType() != Variable.VariableType.INTEGER && receiver.getType() != Variable.VariableType.DECIMAL)) {
+            throw new InvalidCodeException("Attempted to assign length to non-integer.");
+        }
+    }
+
+    /*
+    Usage: length(<array>) <var>
+     */
+    @Override
+    public void run(Console console, Frame frame, Argument[] args, Variable receiver) throws InvalidCodeException {
+        int length = args[0].getSlot().get(frame).getLength();
+
+        if(receiver.getType() == Variable.VariableType.INTEGER) {
+            receiver.setInteger(length);
+        } else {
+            receiver.setDecimal(length);
+        }
+    }
+
+}
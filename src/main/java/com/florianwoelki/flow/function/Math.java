@@ -1,42 +1,58 @@
 package com.florianwoelki.flow.function;
 
-import com.florianwoelki.flow.FlowLang;
+import com.florianwoelki.flow.console.Console;
 import com.florianwoelki.flow.exception.InvalidCodeException;
-import com.florianwoelki.flow.gui.Console;
-import com.florianwoelki.flow.lang.Block;
+import com.florianwoelki.flow.expression.Expression;
+import com.florianwoelki.flow.lang.Argument;
+import com.florianwoelki.flow.lang.Frame;
+import com.florianwoelki.flow.lang.Scope;
+import com.florianwoelki.flow.lang.Slot;
 import com.florianwoelki.flow.lang.Variable;
 
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
-import java.util.Arrays;
-
 /**
  * Created by Florian Woelki on 22.07.17.
  */
 public class Math extends Function {
 
-    private ScriptEngine scriptEngine;
-
     public Math() {
         super("math");
     }
 
+    /**
+     * The expression is compiled once for every call. Without a receiver the expression has to be a single variable,
+     * which also receives the result.
+     */
     @Override
-    public void run(Console console, Block block, String[] args, Variable receiver) throws InvalidCodeException {
-        if(scriptEngine == null) {
-            scriptEngine = new ScriptEngineManager().getEngineByName("JavaScript");
+    public void resolve(Scope scope, Argument[] args, Slot receiver) throws InvalidCodeException {
+        super.resolve(scope, args, receiver);
+
+        if(args.length != 1 || args[0].isEmpty()) {
+            throw new InvalidCodeException("Usage: math(<expression>) [variable]");
         }
 
-        Variable variable = block.getVariable(args[0]);
+        Slot target = receiver != null ? receiver : args[0].getSlot();
 
-        if(variable.getType() != Variable.VariableType.INTEGER) {
-            throw new InvalidCodeException("Attempted to assign math output to non-integer.");
+        if(target == null) {
+            throw new InvalidCodeException("Missing variable for math.");
+        } else if(target.isArray() || (target.getType() != Variable.VariableType.INTEGER && target.getType() != Variable.VariableType.DECIMAL)) {
+            throw new InvalidCodeException("Attempted to assign math output to non-number.");
         }
 
-        try {
-            variable.setValue(new Double(Double.parseDouble(scriptEngine.eval(FlowLang.implode(args[0], block)).toString())).intValue());
-        } catch(Exception e) {
-            throw new InvalidCodeException("Invalid math expression!");
+        args[0].compile(scope);
+    }
+
+    /*
+    Usage: math(<expression>) [var]
+     */
+    @Override
+    public void run(Console console, Frame frame, Argument[] args, Variable receiver) throws InvalidCodeException {
+        Variable variable = receiver != null ? receiver : args[0].getSlot().get(frame);
+        Expression expression = args[0].getExpression();
+
+        if(variable.getType() == Variable.VariableType.DECIMAL) {
+            variable.setDecimal(expression.evaluateDecimal(frame));
+        } else {
+            variable.setInteger(expression.evaluateInteger(frame));
         }
     }
 
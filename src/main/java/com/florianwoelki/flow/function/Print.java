@@ -1,10 +1,10 @@
 package com.florianwoelki.flow.function;
 
-import com.florianwoelki.flow.FlowLang;
+import com.florianwoelki.flow.console.Console;
+import com.florianwoelki.flow.console.OutputType;
 import com.florianwoelki.flow.exception.InvalidCodeException;
-import com.florianwoelki.flow.gui.Console;
-import com.florianwoelki.flow.gui.OutputType;
-import com.florianwoelki.flow.lang.Block;
+import com.florianwoelki.flow.lang.Argument;
+import com.florianwoelki.flow.lang.Frame;
 import com.florianwoelki.flow.lang.Variable;
 
 /**
@@ -20,8 +20,8 @@ public class Print extends Function {
     Usage: print("<message>", <variable>, "<message>")
      */
     @Override
-    public void run(Console console, Block block, String[] args, Variable receiver) throws InvalidCodeException {
-        console.write(OutputType.OUTPUT, FlowLang.implode(args[0], block));
+    public void run(Console console, Frame frame, Argument[] args, Variable receiver) throws InvalidCodeException {
+        console.write(OutputType.OUTPUT, concat(args, frame));
     }
 
 }
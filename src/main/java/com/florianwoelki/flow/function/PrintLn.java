@@ -1,10 +1,10 @@
 package com.florianwoelki.flow.function;
 
-import com.florianwoelki.flow.FlowLang;
+import com.florianwoelki.flow.console.Console;
+import com.florianwoelki.flow.console.OutputType;
 import com.florianwoelki.flow.exception.InvalidCodeException;
-import com.florianwoelki.flow.gui.Console;
-import com.florianwoelki.flow.gui.OutputType;
-import com.florianwoelki.flow.lang.Block;
+import com.florianwoelki.flow.lang.Argument;
+import com.florianwoelki.flow.lang.Frame;
 import com.florianwoelki.flow.lang.Variable;
 
 /**
@@ -17,11 +17,11 @@ public class PrintLn extends Function {
     }
 
     /*
-        Usage: println("<message>", <variable>, "<message>")
-         */
+    Usage: println("<message>", <variable>, "<message>")
+     */
     @Override
-    public void run(Console console, Block block, String[] args, Variable receiver) throws InvalidCodeException {
-        console.writeLine(OutputType.OUTPUT, FlowLang.implode(args[0], block));
+    public void run(Console console, Frame frame, Argument[] args, Variable receiver) throws InvalidCodeException {
+        console.writeLine(OutputType.OUTPUT, concat(args, frame));
     }
 
 }
@@ -0,0 +1,43 @@
+package com.florianwoelki.flow.function;
+
+import com.florianwoelki.flow.console.Console;
+import com.florianwoelki.flow.exception.InvalidCodeException;
+import com.florianwoelki.flow.lang.Argument;
+import com.florianwoelki.flow.lang.Frame;
+import com.florianwoelki.flow.lang.Scope;
+import com.florianwoelki.flow.lang.Slot;
+import com.florianwoelki.flow.lang.Variable;
+
+/**
+ * Appends a value to an array: <code>push(array, value)</code>.
+ */
+public class Push extends Function {
+
+    public Push() {
+        super("push");
+    }
+
+    @Override
+    public void resolve(Scope scope, Argument[] args, Slot receiver) throws InvalidCodeException {
+        super.resolve(scope, args, receiver);
+
+        if(receiver == null || !receiver.isArray()) {
+            throw new InvalidCodeException("Attempted to push value but no array specified.");
+        }
+
+        if(args.length == 0 || args[0].isEmpty()) {
+            throw new InvalidCodeException("Missing value for push.");
+        }
+
+        args[0].check(receiver.getType());
+    }
+
+    /*
+    Usage: push(<value>) <array>
+     */
+    @Override
+    public void run(Console console, Frame frame, Argument[] args, Variable receiver) throws InvalidCodeException {
+        receiver.push(args[0].evaluateValue(frame));
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.florianwoelki.flow.function;
+
+import com.florianwoelki.flow.console.Console;
+import com.florianwoelki.flow.exception.InvalidCodeException;
+import com.florianwoelki.flow.lang.Argument;
+import com.florianwoelki.flow.lang.Frame;
+import com.florianwoelki.flow.lang.Scope;
+import com.florianwoelki.flow.lang.Slot;
+import com.florianwoelki.flow.lang.Table;
+import com.florianwoelki.flow.lang.Variable;
+
+/**
+ * Adds a key to a set or sets the value of a key in a map.
+ */
+public class Put extends TableFunction {
+
+    public Put() {
+        super("put");
+    }
+
+    @Override
+    public void resolve(Scope scope, Argument[] args, Slot receiver) throws InvalidCodeException {
+        super.resolve(scope, args, receiver);
+        checkTable(receiver, false);
+
+        boolean map = receiver.getValueType() != null;
+
+        if(args.length != (map ? 2 : 1) || args[0].isEmpty()) {
+            throw new InvalidCodeException("Put into " + receiver.getName() + " needs " + (map ? "a key and a value." : "a key."));
+        }
+
+        args[0].check(receiver.getKeyType());
+
+        if(map) {
+            args[1].check(receiver.getValueType());
+        }
+    }
+
+    /*
+    Usage: put(<key>, <value>) <map>
+           put(<key>) <set>
+     */
+    @Override
+    public void run(Console console, Frame frame, Argument[] args, Variable receiver) throws InvalidCodeException {
+        Table table = receiver.getTable();
+        int index = add(table, args[0], frame);
+
+        if(table.getValueType() != null) {
+            table.setValue(index, args[1].evaluateValue(frame));
+        }
+    }
+
+}
@@ -1,49 +1,61 @@
 package com.florianwoelki.flow.function;
 
+import com.florianwoelki.flow.console.Console;
 import com.florianwoelki.flow.exception.InvalidCodeException;
-import com.florianwoelki.flow.gui.Console;
-import com.florianwoelki.flow.lang.Block;
+import com.florianwoelki.flow.lang.Argument;
+import com.florianwoelki.flow.lang.Frame;
+import com.florianwoelki.flow.lang.Scope;
+import com.florianwoelki.flow.lang.Slot;
 import com.florianwoelki.flow.lang.Variable;
 
+import java.util.concurrent.ThreadLocalRandom;
+
 /**
  * Created by Florian Woelki on 08.11.16.
  */
 public class Random extends Function {
 
-    private java.util.Random random;
-
     public Random() {
         super("random");
     }
 
+    @Override
+    public void resolve(Scope scope, Argument[] args, Slot receiver) throws InvalidCodeException {
+        super.resolve(scope, args, receiver);
+
+        if(receiver != null && receiver.getType() != Variable.VariableType.INTEGER && receiver.getType() != Variable.VariableType.DECIMAL) {
+            throw new InvalidCodeException("Attempted to assign random number to non-integer.");
+        }
+
+        if(args.length > 0 && !args[0].isEmpty()) {
+            args[0].check(Variable.VariableType.INTEGER);
+        }
+    }
+
     /*
     Usage: random([ceiling]) <var>
      */
     @Override
-    public void run(Console console, Block block, String[] args, Variable receiver) throws InvalidCodeException {
-        if(random == null) {
-            random = new java.util.Random();
-        }
-
+    public void run(Console console, Frame frame, Argument[] args, Variable receiver) throws InvalidCodeException {
         if(receiver != null) {
-            if(receiver.getType() != Variable.VariableType.INTEGER && receiver.getType() != Variable.VariableType.DECIMAL) {
-                throw new InvalidCodeException("Attempted to assign random number to non-integer.");
-            }
-
             int ceil = -1;
 
-            if(!args[0].equals("")) {
+            if(args.length > 0 && !args[0].isEmpty()) {
                 try {
-                    ceil = Integer.parseInt(args[0]);
-                } catch(Exception e) {
+                    ceil = args[0].evaluateInteger(frame);
+                } catch(InvalidCodeException e) {
                     throw new InvalidCodeException("Invalid ceiling.");
                 }
+            }
 
-                if(ceil == -1) {
-                    receiver.setValue(random.nextInt());
-                } else {
-                    receiver.setValue(random.nextInt(ceil));
-                }
+            // Programs run on many threads at once, so every thread draws from its own generator.
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int value = ceil == -1 ? random.nextInt() : random.nextInt(ceil);
+
+            if(receiver.getType() == Variable.VariableType.INTEGER) {
+                receiver.setInteger(value);
+            } else {
+                receiver.setDecimal(value);
             }
         }
     }
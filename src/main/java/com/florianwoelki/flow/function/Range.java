@@ -1,12 +1,17 @@
 package com.florianwoelki.flow.function;
 
-import com.florianwoelki.flow.FlowLang;
+import com.florianwoelki.flow.console.Console;
 import com.florianwoelki.flow.exception.InvalidCodeException;
-import com.florianwoelki.flow.gui.Console;
-import com.florianwoelki.flow.lang.Block;
+import com.florianwoelki.flow.lang.Argument;
+import com.florianwoelki.flow.lang.Frame;
+import com.florianwoelki.flow.lang.Scope;
+import com.florianwoelki.flow.lang.Slot;
 import com.florianwoelki.flow.lang.Variable;
 
 /**
+ * Declares an integer array from the start value up to but without the end value. The range only keeps its start,
+ * step and length until it is changed, see {@link Variable#range}.
+ * <p>
  * Created by Florian Woelki on 19.11.17.
  */
 public class Range extends Function {
@@ -15,35 +20,52 @@ public class Range extends Function {
         super("range");
     }
 
+    @Override
+    public void resolve(Scope scope, Argument[] args, Slot receiver) throws InvalidCodeException {
+        if(args.length < 3) {
+            throw new InvalidCodeException("Wrong or missing start value and end value. Both need to be integers.");
+        }
+
+        for(int i = 1; i < args.length; i++) {
+            args[i].resolve(scope);
+            args[i].check(Variable.VariableType.INTEGER);
+        }
+
+        args[0].declare(scope, Variable.VariableType.INTEGER, true);
+    }
+
     /*
-    Usage: range(<name>, <start value>, <end value>)
+    Usage: range(<name>, <start value>, <end value>, [step])
      */
     @Override
-    public void run(Console console, Block block, String[] args, Variable receiver) throws InvalidCodeException {
-        Variable.VariableType variableType = Variable.VariableType.STRING;
-        String name = args[0];
+    public void run(Console console, Frame frame, Argument[] args, Variable receiver) throws InvalidCodeException {
+        String name = args[0].getText();
 
         int startValue;
         int endValue;
+        int step = 1;
 
         try {
-            startValue = Integer.parseInt(args[1]);
-            endValue = Integer.parseInt(args[2]);
-        } catch(Exception e) {
+            startValue = args[1].evaluateInteger(frame);
+            endValue = args[2].evaluateInteger(frame);
+
+            if(args.length > 3) {
+                step = args[3].evaluateInteger(frame);
+            }
+        } catch(InvalidCodeException e) {
             throw new InvalidCodeException("Wrong or missing start value and end value. Both need to be integers.");
         }
 
-        StringBuilder rangeBuilder = new StringBuilder();
-        for(int i = startValue; i < endValue; i++) {
-            if(i + 1 == endValue) {
-                rangeBuilder.append("").append(i);
-            } else {
-                rangeBuilder.append("").append(i).append(",");
-            }
+        if(step == 0) {
+            throw new InvalidCodeException("Step of range " + name + " is zero.");
         }
 
-        variableType.validateValue(rangeBuilder.toString(), block);
-        block.addVariable(variableType, name, true, rangeBuilder.toString());
+        // A negative step counts down from the start value.
+        long distance = step > 0 ? (long) endValue - startValue : (long) startValue - endValue;
+        long absStep = java.lang.Math.abs((long) step);
+        int length = (int) java.lang.Math.max(0, (distance + absStep - 1) / absStep);
+
+        args[0].getSlot().set(frame, Variable.range(name, startValue, step, length));
     }
 
 }
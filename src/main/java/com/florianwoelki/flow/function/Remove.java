@@ -0,0 +1,47 @@
+package com.florianwoelki.flow.function;
+
+import com.florianwoelki.flow.console.Console;
+import com.florianwoelki.flow.exception.InvalidCodeException;
+import com.florianwoelki.flow.lang.Argument;
+import com.florianwoelki.flow.lang.Frame;
+import com.florianwoelki.flow.lang.Scope;
+import com.florianwoelki.flow.lang.Slot;
+import com.florianwoelki.flow.lang.Table;
+import com.florianwoelki.flow.lang.Variable;
+
+/**
+ * Removes a key from a map or set.
+ */
+public class Remove extends TableFunction {
+
+    public Remove() {
+        super("remove");
+    }
+
+    @Override
+    public void resolve(Scope scope, Argument[] args, Slot receiver) throws InvalidCodeException {
+        super.resolve(scope, args, receiver);
+        checkTable(receiver, false);
+
+        if(args.length != 1 || args[0].isEmpty()) {
+            throw new InvalidCodeException("Missing key for remove.");
+        }
+
+        args[0].check(receiver.getKeyType());
+    }
+
+    /*
+    Usage: remove(<key>) <map or set>
+     */
+    @Override
+    public void run(Console console, Frame frame, Argument[] args, Variable receiver) throws InvalidCodeException {
+        Table table = receiver.getTable();
+
+        if(table.getKeyType() == Variable.VariableType.INTEGER) {
+            table.remove(args[0].evaluateInteger(frame));
+        } else {
+            table.remove(args[0].evaluate(frame));
+        }
+    }
+
+}
@@ -1,9 +1,11 @@
 package com.florianwoelki.flow.function;
 
-import com.florianwoelki.flow.FlowLang;
+import com.florianwoelki.flow.console.Console;
 import com.florianwoelki.flow.exception.InvalidCodeException;
-import com.florianwoelki.flow.gui.Console;
-import com.florianwoelki.flow.lang.Block;
+import com.florianwoelki.flow.lang.Argument;
+import com.florianwoelki.flow.lang.Frame;
+import com.florianwoelki.flow.lang.Scope;
+import com.florianwoelki.flow.lang.Slot;
 import com.florianwoelki.flow.lang.Variable;
 
 /**
@@ -15,19 +17,42 @@ public class Set extends Function {
         super("set");
     }
 
-    /*
-    Usage: set(<value>, [index]) <var>
-     */
     @Override
-    public void run(Console console, Block block, String[] args, Variable receiver) throws InvalidCodeException {
+    public void resolve(Scope scope, Argument[] args, Slot receiver) throws InvalidCodeException {
+        super.resolve(scope, args, receiver);
+
         if(receiver == null) {
             throw new InvalidCodeException("Attempted to set variable but no variable specified.");
         }
 
+        if(args.length == 0) {
+            throw new InvalidCodeException("Missing value for set.");
+        }
+
+        if(receiver.isTable()) {
+            throw new InvalidCodeException("Use put to change " + receiver.getType().name().toLowerCase() + " " + receiver.getName() + ".");
+        }
+
+        args[0].check(receiver.getType());
+
+        if(receiver.isArray()) {
+            if(args.length < 2) {
+                throw new InvalidCodeException("Missing index for set of array " + receiver.getName() + ".");
+            }
+
+            args[1].check(Variable.VariableType.INTEGER);
+        }
+    }
+
+    /*
+    Usage: set(<value>, [index]) <var>
+     */
+    @Override
+    public void run(Console console, Frame frame, Argument[] args, Variable receiver) throws InvalidCodeException {
         if(receiver.isArray()) {
-            receiver.setValue(FlowLang.implode(args[0], block), Integer.parseInt(args[1]));
+            receiver.setValue(args[0].evaluateValue(frame), args[1].evaluateInteger(frame));
         } else {
-            receiver.setValue(FlowLang.implode(args[0], block));
+            args[0].assignTo(receiver, frame);
         }
     }
 
@@ -0,0 +1,44 @@
+package com.florianwoelki.flow.function;
+
+import com.florianwoelki.flow.console.Console;
+import com.florianwoelki.flow.exception.InvalidCodeException;
+import com.florianwoelki.flow.lang.Argument;
+import com.florianwoelki.flow.lang.Frame;
+import com.florianwoelki.flow.lang.Scope;
+import com.florianwoelki.flow.lang.Slot;
+import com.florianwoelki.flow.lang.Variable;
+
+/**
+ * Stores the number of keys of a map or set in a variable.
+ */
+public class Size extends TableFunction {
+
+    public Size() {
+        super("size");
+    }
+
+    @Override
+    public void resolve(Scope scope, Argument[] args, Slot receiver) throws InvalidCodeException {
+        super.resolve(scope, args, receiver);
+        checkTable(args.length == 1 ? args[0].getSlot() : null, false);
+
+        if(receiver == null || receiver.isArray() || (receiver.getType() != Variable.VariableType.INTEGER && receiver.getType() != Variable.VariableType.DECIMAL)) {
+            throw new InvalidCodeException("Attempted to assign size to non-integer.");
+        }
+    }
+
+    /*
+    Usage: size(<map or set>) <var>
+     */
+    @Override
+    public void run(Console console, Frame frame, Argument[] args, Variable receiver) throws InvalidCodeException {
+        int size = args[0].getSlot().get(frame).getTable().size();
+
+        if(receiver.getType() == Variable.VariableType.INTEGER) {
+            receiver.setInteger(size);
+        } else {
+            receiver.setDecimal(size);
+        }
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.florianwoelki.flow.function;
+
+import com.florianwoelki.flow.exception.InvalidCodeException;
+import com.florianwoelki.flow.lang.Argument;
+import com.florianwoelki.flow.lang.Frame;
+import com.florianwoelki.flow.lang.Slot;
+import com.florianwoelki.flow.lang.Table;
+import com.florianwoelki.flow.lang.Variable;
+
+/**
+ * A function on a map or set. Integer keys are looked up as <code>int</code>s, so they are never boxed.
+ */
+abstract class TableFunction extends Function {
+
+    TableFunction(String name) {
+        super(name);
+    }
+
+    /**
+     * Checks while resolving that the variable is a map or set, or only a map.
+     */
+    Slot checkTable(Slot slot, boolean map) throws InvalidCodeException {
+        if(slot == null || !slot.isTable() || (map && slot.getValueType() == null)) {
+            throw new InvalidCodeException("Attempted to " + getName() + " but no " + (map ? "map" : "map or set") + " specified.");
+        }
+
+        return slot;
+    }
+
+    /**
+     * @return the position of the key, or <code>-1</code> if it is not in the table
+     */
+    static int indexOf(Table table, Argument key, Frame frame) throws InvalidCodeException {
+        return table.getKeyType() == Variable.VariableType.INTEGER ? table.indexOf(key.evaluateInteger(frame)) : table.indexOf(key.evaluate(frame));
+    }
+
+    /**
+     * Adds the key if it is not in the table yet.
+     *
+     * @return the position of the key
+     */
+    static int add(Table table, Argument key, Frame frame) throws InvalidCodeException {
+        return table.getKeyType() == Variable.VariableType.INTEGER ? table.add(key.evaluateInteger(frame)) : table.add(key.evaluate(frame));
+    }
+
+}
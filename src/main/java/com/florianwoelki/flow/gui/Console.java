@@ -1,23 +1,51 @@
 package com.florianwoelki.flow.gui;
 
 import com.alee.laf.text.WebTextPane;
+import com.florianwoelki.flow.ExecutionResult;
+import com.florianwoelki.flow.ExecutionService;
+import com.florianwoelki.flow.console.InputChannel;
+import com.florianwoelki.flow.console.OutputType;
 import com.florianwoelki.flow.exception.InvalidCodeException;
+import com.florianwoelki.flow.lang.Governor;
 
 import javax.swing.*;
 import javax.swing.text.*;
 import java.awt.*;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
 
 /**
  * Created by Florian Woelki on 08.11.16.
  */
-public class Console extends WebTextPane {
+public class Console extends WebTextPane implements com.florianwoelki.flow.console.Console {
 
-    private String lastInput;
+    private static final Map<OutputType, SimpleAttributeSet> ATTRIBUTES = new EnumMap<>(OutputType.class);
 
+    static {
+        ATTRIBUTES.put(OutputType.OUTPUT, attributes(Color.BLACK));
+        ATTRIBUTES.put(OutputType.INFO, attributes(Color.GREEN));
+        ATTRIBUTES.put(OutputType.ERROR, attributes(Color.RED));
+    }
+
+    /**
+     * How often per second the pending output is shown.
+     */
+    private static final int FLUSH_RATE = 30;
+
+    private static final ExecutionService EXECUTION = new ExecutionService();
+
+    private final OutputBuffer output = new OutputBuffer();
+    // Replaced for every run, so a line typed for a stopped program is not read by the next one.
+    private volatile InputChannel input = new InputChannel();
+
+    // Only used on the event dispatch thread.
     private boolean waiting;
-    private String result;
+    private Governor governor;
+    private Future<ExecutionResult> running;
 
     public Console() {
         Filter filter = new Filter();
@@ -30,66 +58,103 @@ public class Console extends WebTextPane {
                 if(event.getKeyCode() == KeyEvent.VK_UP) {
                     event.consume();
                 } else if(event.getKeyCode() == KeyEvent.VK_ENTER) {
-                    lastInput = getText().split("\n")[getText().split("\n").length - 1];
+                    String[] lines = getText().split("\n");
 
-                    if(waiting)
-                        result = lastInput;
+                    if(waiting) {
+                        waiting = false;
+                        setEditable(false);
+                        input.send(lines[lines.length - 1]);
+                    }
                 }
             }
         });
+
+        new Timer(1000 / FLUSH_RATE, (e) -> flush()).start();
     }
 
+    /**
+     * Runs the program in the background, errors are shown on the console. A program which is still running is
+     * stopped first.
+     */
     public void run(final com.florianwoelki.flow.lang.Class clazz) {
-        new Thread(() -> {
-            try {
-                clazz.run(Console.this);
-            } catch(InvalidCodeException e) {
-                Thread.getDefaultUncaughtExceptionHandler().uncaughtException(Thread.currentThread(), e);
-            }
-        }).start();
-    }
+        stop();
 
-    public String prompt() {
-        waiting = true;
-        setEditable(true);
+        governor = new Governor();
+        running = EXECUTION.submit(clazz, this, governor);
+    }
 
-        while(result == null) {
-            try {
-                Thread.sleep(100);
-            } catch(InterruptedException e) {
-                e.printStackTrace();
-            }
+    /**
+     * Stops the running program at its next step, or while it waits for input. Input which was not read yet is
+     * dropped.
+     */
+    public void stop() {
+        if(running != null && !running.isDone()) {
+            governor.stop();
+            running.cancel(true);
         }
 
         waiting = false;
         setEditable(false);
-
-        String localResult = result;
-        result = null;
-        return localResult;
+        input = new InputChannel();
     }
 
-    public void clear() {
+    /**
+     * Lets the user type a line and blocks until it is entered. The key listener hands the line over, so the program
+     * continues right after enter is pressed.
+     */
+    @Override
+    public String prompt() throws InvalidCodeException {
+        final InputChannel channel = input;
+
         SwingUtilities.invokeLater(() -> {
-            setText("");
-            setCaret();
+            // The program may have been stopped in the meantime.
+            if(channel == input) {
+                waiting = true;
+                setEditable(true);
+            }
         });
+
+        return channel.receive();
     }
 
+    @Override
+    public void clear() {
+        output.clear();
+    }
+
+    /**
+     * Adds the text to the pending output, which is shown by the next {@link #flush()}.
+     */
+    @Override
     public void write(OutputType outputType, String text) {
-        SwingUtilities.invokeLater(() -> {
+        output.write(outputType, text);
+    }
+
+    /**
+     * Shows the pending output. This runs on the event dispatch thread a few times per second, so a program which
+     * prints in a loop does not flood the event queue.
+     */
+    private void flush() {
+        List<OutputBuffer.Chunk> chunks = output.drain();
+
+        if(chunks.isEmpty()) {
+            return;
+        }
+
+        for(OutputBuffer.Chunk chunk : chunks) {
+            if(chunk == OutputBuffer.Chunk.CLEAR) {
+                setText("");
+                continue;
+            }
+
             try {
-                getDocument().insertString(getDocument().getLength(), text, outputType.getAttributes());
+                getDocument().insertString(getDocument().getLength(), chunk.text, ATTRIBUTES.get(chunk.outputType));
             } catch(BadLocationException e) {
                 e.printStackTrace();
             }
+        }
 
-            setCaret();
-        });
-    }
-
-    public void writeLine(OutputType outputType, String text) {
-        write(outputType, text + "\n");
+        setCaret();
     }
 
     public void remove(final DocumentFilter.FilterBypass fb, final int offset, final int length) throws BadLocationException {
@@ -130,6 +195,12 @@ public class Console extends WebTextPane {
         }
     }
 
+    private static SimpleAttributeSet attributes(Color color) {
+        SimpleAttributeSet attributes = new SimpleAttributeSet();
+        StyleConstants.setForeground(attributes, color);
+        return attributes;
+    }
+
     private void setCaret() {
         setCaretPosition(getDocument().getLength());
     }
@@ -138,7 +209,7 @@ public class Console extends WebTextPane {
         public void insertString(final FilterBypass fb, final int offset, final String string, final AttributeSet attr) {
             try {
                 if(getLineStartOffset(getLineOfOffset(offset)) == getLineStartOffset(getLineOfOffset(getDocument().getLength()))) {
-                    super.insertString(fb, getDocument().getLength(), string, null);
+                    super.insertString(fb, getDocument().getLength(), string, attr);
                 }
             } catch(BadLocationException e) {
                 e.printStackTrace();
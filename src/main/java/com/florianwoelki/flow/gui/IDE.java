@@ -25,7 +25,7 @@ import java.util.regex.Pattern;
  */
 public class IDE extends WebFrame {
 
-    public static final String[] FLOW_KEYWORDS = new String[]{"range", "declare", "getinput", "math", "print", "println", "random", "set", "fn", "void", "for", "end", "integer", "while", "if", "elseif", "else", "string", "boolean", "dowhile"};
+    public static final String[] FLOW_KEYWORDS = new String[]{"range", "declare", "getinput", "math", "print", "println", "random", "set", "fn", "void", "for", "end", "integer", "while", "if", "elseif", "else", "string", "boolean", "dowhile", "parallel", "push", "length", "map", "put", "get", "remove", "contains", "size"};
     public static final String FLOW_KEYWORDS_REGEX;
     public static final int WIDTH = 1280;
     public static final int HEIGHT = 720;
@@ -43,6 +43,11 @@ public class IDE extends WebFrame {
 
     private final Console console;
     private final WebTextPane text;
+
+    /**
+     * The program of the editor. It is updated for every run, so methods which did not change are not parsed again.
+     */
+    private final com.florianwoelki.flow.lang.Class program = new com.florianwoelki.flow.lang.Class(new String[0]);
     private final Preferences prefs;
     private StyledDocument textEditorDoc;
 
@@ -97,11 +102,12 @@ public class IDE extends WebFrame {
 
         WebMenuBar menuBar = new WebMenuBar();
         WebMenu menu = new WebMenu("File");
-        WebMenuItem run = new WebMenuItem("Run"), save = new WebMenuItem("Save"), load = new WebMenuItem("Load"), preferences = new WebMenuItem("Preferences");
+        WebMenuItem run = new WebMenuItem("Run"), stop = new WebMenuItem("Stop"), save = new WebMenuItem("Save"), load = new WebMenuItem("Load"), preferences = new WebMenuItem("Preferences");
 
         menuBar.add(menu);
 
         menu.add(run);
+        menu.add(stop);
         menu.add(save);
         menu.add(load);
         menu.addSeparator();
@@ -112,7 +118,13 @@ public class IDE extends WebFrame {
         int meta = KeyEvent.CTRL_DOWN_MASK;
 
         run.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_R, meta));
-        run.addActionListener((e) -> console.run(new com.florianwoelki.flow.lang.Class(text.getText().split("\n"))));
+        run.addActionListener((e) -> {
+            program.update(text.getText().split("\n"));
+            console.run(program);
+        });
+
+        stop.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_PERIOD, meta));
+        stop.addActionListener((e) -> console.stop());
 
         save.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_S, meta));
         save.addActionListener((event) -> {
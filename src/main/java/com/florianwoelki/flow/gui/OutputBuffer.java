@@ -0,0 +1,93 @@
+package com.florianwoelki.flow.gui;
+
+import com.florianwoelki.flow.console.OutputType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Collects the output of a running program until the event dispatch thread takes it. Writing never locks, but a
+ * program which writes faster than the console can show it is slowed down once too much output is pending.
+ */
+class OutputBuffer {
+
+    /**
+     * The number of pending characters at which writing programs have to wait for the console.
+     */
+    private static final long MAX_PENDING = 1 << 20;
+
+    private final ConcurrentLinkedQueue<Chunk> chunks = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pending = new AtomicLong();
+
+    void write(OutputType outputType, String text) {
+        while(pending.get() > MAX_PENDING && !Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+
+        pending.addAndGet(text.length());
+        chunks.add(new Chunk(outputType, text));
+    }
+
+    /**
+     * Drops everything written so far.
+     */
+    void clear() {
+        chunks.add(Chunk.CLEAR);
+    }
+
+    /**
+     * Takes all pending output. Consecutive writes of the same type are joined to one chunk, so they can be
+     * inserted at once.
+     */
+    List<Chunk> drain() {
+        List<Chunk> drained = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        OutputType outputType = null;
+        Chunk chunk;
+
+        while((chunk = chunks.poll()) != null) {
+            if(chunk == Chunk.CLEAR) {
+                drained.clear();
+                text.setLength(0);
+                outputType = null;
+                drained.add(Chunk.CLEAR);
+                continue;
+            }
+
+            pending.addAndGet(-chunk.text.length());
+
+            if(chunk.outputType != outputType && text.length() > 0) {
+                drained.add(new Chunk(outputType, text.toString()));
+                text.setLength(0);
+            }
+
+            outputType = chunk.outputType;
+            text.append(chunk.text);
+        }
+
+        if(text.length() > 0) {
+            drained.add(new Chunk(outputType, text.toString()));
+        }
+
+        return drained;
+    }
+
+    static class Chunk {
+
+        static final Chunk CLEAR = new Chunk(null, "");
+
+        final OutputType outputType;
+        final String text;
+
+        private Chunk(OutputType outputType, String text) {
+            this.outputType = outputType;
+            this.text = text;
+        }
+
+    }
+
+}
@@ -0,0 +1,429 @@
+package com.florianwoelki.flow.lang;
+
+import com.florianwoelki.flow.exception.InvalidCodeException;
+import com.florianwoelki.flow.expression.Expression;
+import com.florianwoelki.flow.expression.ExpressionParser;
+import com.florianwoelki.flow.lexer.Lexer;
+import com.florianwoelki.flow.lexer.TokenType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A function argument or condition operand. It is lexed once while parsing and keeps its tokens, so evaluating it
+ * only has to look up variables.
+ */
+public class Argument {
+
+    final String text;
+    final TokenType[] types;
+    final String[] values;
+
+    /**
+     * The resolved variable of every identifier and non-numeric index, <code>null</code> for other tokens.
+     */
+    private final Slot[] slots;
+
+    /**
+     * The pool of the program and the index of the value of a constant argument in it, converted to the type it was
+     * checked for, or <code>-1</code>.
+     */
+    private ConstantPool constants;
+    private int constant = -1;
+
+    /**
+     * The arithmetic expression of this argument, if it was compiled as one.
+     */
+    private Expression expression;
+
+    Argument(String text, TokenType[] types, String[] values) {
+        this.text = text;
+        this.types = types;
+        this.values = values;
+        this.slots = new Slot[types.length];
+    }
+
+    /**
+     * Reads the tokens from the current token of the lexer up to the next comma or closing parenthesis on the same
+     * level. Condition operands also end at a comparison operator. The lexer stays on the token that ended the
+     * argument.
+     */
+    public static Argument read(Lexer lexer, boolean operand) throws InvalidCodeException {
+        List<TokenType> types = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+
+        int from = lexer.getStart(), to = from;
+        int depth = 0;
+
+        // The types of a map or set like map<string,integer> are one argument.
+        int typeDepth = 0;
+
+        while(lexer.getType() != TokenType.EOF) {
+            TokenType type = lexer.getType();
+
+            if(depth == 0 && typeDepth == 0 && (type == TokenType.COMMA || type == TokenType.RPAREN || (operand && isComparison(lexer)))) {
+                break;
+            }
+
+            if(type == TokenType.LPAREN) {
+                depth++;
+            } else if(type == TokenType.RPAREN) {
+                depth--;
+            } else if(lexer.is(TokenType.OPERATOR, "<") && !types.isEmpty() && types.get(types.size() - 1) == TokenType.IDENTIFIER && isTableType(values.get(values.size() - 1))) {
+                typeDepth++;
+            } else if(typeDepth > 0 && lexer.is(TokenType.OPERATOR, ">")) {
+                typeDepth--;
+            }
+
+            types.add(type);
+            values.add(lexer.getValue());
+            to = lexer.getEnd();
+
+            lexer.next();
+        }
+
+        return new Argument(lexer.getSource().substring(from, to), types.toArray(new TokenType[types.size()]), values.toArray(new String[values.size()]));
+    }
+
+    private static boolean isTableType(String name) {
+        return name.equalsIgnoreCase("map") || name.equalsIgnoreCase("set");
+    }
+
+    private static boolean isComparison(Lexer lexer) {
+        return lexer.is(TokenType.OPERATOR, "==") || lexer.is(TokenType.OPERATOR, "!=") || lexer.is(TokenType.OPERATOR, "<") || lexer.is(TokenType.OPERATOR, ">");
+    }
+
+    /**
+     * Resolves the variables used by this argument. Identifiers which are no variable are used as text.
+     */
+    public void resolve(Scope scope) throws InvalidCodeException {
+        constants = scope.getConstants();
+
+        for(int i = 0; i < types.length; i++) {
+            if(types[i] == TokenType.IDENTIFIER) {
+                slots[i] = scope.lookup(values[i]);
+            } else if(types[i] == TokenType.INDEX && !isNumber(values[i])) {
+                slots[i] = scope.lookup(values[i]);
+
+                if(slots[i] == null) {
+                    throw new InvalidCodeException("Variable " + values[i] + " is not declared.");
+                }
+            }
+        }
+    }
+
+    /**
+     * Declares the variable named by this argument in the scope.
+     */
+    public Slot declare(Scope scope, Variable.VariableType type, boolean array) throws InvalidCodeException {
+        return declare(scope, type, array, -1);
+    }
+
+    /**
+     * Declares the array named by this argument in the scope, with a fixed size or without one for <code>-1</code>.
+     */
+    public Slot declare(Scope scope, Variable.VariableType type, boolean array, int size) throws InvalidCodeException {
+        if(types.length != 1 || types[0] != TokenType.IDENTIFIER) {
+            throw new InvalidCodeException("Invalid variable name " + text + ".");
+        }
+
+        slots[0] = scope.declare(values[0], type, array, size);
+        return slots[0];
+    }
+
+    /**
+     * Declares the map or set named by this argument in the scope.
+     */
+    public Slot declare(Scope scope, Variable.VariableType keyType, Variable.VariableType valueType) throws InvalidCodeException {
+        if(types.length != 1 || types[0] != TokenType.IDENTIFIER) {
+            throw new InvalidCodeException("Invalid variable name " + text + ".");
+        }
+
+        slots[0] = scope.declare(values[0], keyType, valueType);
+        return slots[0];
+    }
+
+    /**
+     * Infers the type of the resolved argument. Literals and single variables have a type, everything else is joined
+     * to text which is only known while running.
+     *
+     * @return the type, or <code>null</code> if it is not known before running
+     */
+    public Variable.VariableType getType() {
+        if(types.length == 1) {
+            if(slots[0] != null) {
+                return slots[0].isArray() ? Variable.VariableType.STRING : slots[0].getType();
+            } else if(types[0] == TokenType.NUMBER) {
+                return values[0].indexOf('.') == -1 ? Variable.VariableType.INTEGER : Variable.VariableType.DECIMAL;
+            } else if(values[0].equals("true") || values[0].equals("false")) {
+                return Variable.VariableType.BOOLEAN;
+            }
+
+            return Variable.VariableType.STRING;
+        } else if(types.length == 2 && slots[0] != null && slots[0].isArray() && types[1] == TokenType.INDEX) {
+            return slots[0].getType();
+        }
+
+        return null;
+    }
+
+    /**
+     * Checks while resolving that the argument can be stored in a variable of the type. A constant is converted to
+     * the type right away and put into the constant pool, so it is never converted again while running.
+     *
+     * @return whether the value still has to be checked while running
+     */
+    public boolean check(Variable.VariableType target) throws InvalidCodeException {
+        if(types.length == 1 && slots[0] == null) {
+            try {
+                constant = constants.add(target.formatValue(values[0]));
+            } catch(InvalidCodeException e) {
+                throw new InvalidCodeException("Invalid value " + text + " for variable type " + target.name().toLowerCase() + ".");
+            }
+
+            return false;
+        }
+
+        Variable.VariableType type = getType();
+
+        return type == null || target.check(type, text);
+    }
+
+    /**
+     * @return the variable if this argument is nothing but a variable, <code>null</code> otherwise
+     */
+    public Slot getSlot() {
+        return types.length == 1 ? slots[0] : null;
+    }
+
+    /**
+     * @return whether the argument uses the variable of the slot, as a value or as an index
+     */
+    public boolean uses(Slot slot) {
+        for(Slot used : slots) {
+            if(used != null && used.getDepth() == slot.getDepth() && used.getIndex() == slot.getIndex()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Evaluates the argument to its text. String literals are used without their quotes, variables are replaced by
+     * their value and everything else is used as it is written. Separate tokens are joined by a space.
+     */
+    public String evaluate(Frame frame) throws InvalidCodeException {
+        if(types.length == 1) {
+            return slots[0] == null ? values[0] : value(slots[0].get(frame), frame, 0);
+        }
+
+        StringBuilder builder = new StringBuilder();
+
+        for(int i = 0; i < types.length; i++) {
+            if(i > 0) {
+                builder.append(' ');
+            }
+
+            if(slots[i] == null || types[i] != TokenType.IDENTIFIER) {
+                builder.append(values[i]);
+            } else {
+                builder.append(value(slots[i].get(frame), frame, i));
+
+                if(i + 1 < types.length && types[i + 1] == TokenType.INDEX) {
+                    i++;
+                }
+            }
+        }
+
+        return builder.toString();
+    }
+
+    private String value(Variable variable, Frame frame, int i) throws InvalidCodeException {
+        if(!variable.isArray()) {
+            return variable.getText();
+        }
+
+        if(i + 1 < types.length && types[i + 1] == TokenType.INDEX) {
+            return variable.getText(getIndex(i + 1, frame));
+        }
+
+        StringBuilder builder = new StringBuilder();
+        int length = variable.getLength();
+
+        for(int j = 0; j < length; j++) {
+            builder.append(j == 0 ? "" : ",").append(variable.getText(j));
+        }
+
+        return builder.toString();
+    }
+
+    private int getIndex(int i, Frame frame) throws InvalidCodeException {
+        if(slots[i] == null) {
+            return Integer.parseInt(values[i]);
+        }
+
+        Variable index = slots[i].get(frame);
+
+        if(index.getType() == Variable.VariableType.INTEGER && !index.isArray()) {
+            return index.getInteger();
+        }
+
+        try {
+            return Integer.parseInt(index.getText());
+        } catch(NumberFormatException e) {
+            throw new InvalidCodeException("Array index " + values[i] + " is not an integer.");
+        }
+    }
+
+    private static boolean isNumber(String value) {
+        if(value.isEmpty()) {
+            return false;
+        }
+
+        for(int i = 0; i < value.length(); i++) {
+            if(value.charAt(i) < '0' || value.charAt(i) > '9') {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Assigns the value of this argument to the variable. A single variable is copied without turning its value into
+     * text first.
+     */
+    public void assignTo(Variable target, Frame frame) throws InvalidCodeException {
+        if(constant != -1) {
+            Variable.VariableType type = constants.getType(constant);
+
+            if(type == Variable.VariableType.INTEGER && target.getType() == type) {
+                target.setInteger(constants.getInteger(constant));
+            } else if(type == Variable.VariableType.DECIMAL && target.getType() == type) {
+                target.setDecimal(constants.getDecimal(constant));
+            } else {
+                target.setValue(constants.get(constant));
+            }
+
+            return;
+        }
+
+        Slot slot = getSlot();
+
+        if(slot != null) {
+            Variable source = slot.get(frame);
+
+            if(!source.isArray()) {
+                target.setValue(source);
+                return;
+            }
+        }
+
+        target.setValue(evaluate(frame));
+    }
+
+    /**
+     * Compiles the argument as arithmetic expression, so it does not have to be parsed again while running.
+     */
+    public Expression compile(Scope scope) throws InvalidCodeException {
+        expression = new ExpressionParser(text, scope).parse();
+        return expression;
+    }
+
+    public Expression getExpression() {
+        return expression;
+    }
+
+    /**
+     * Evaluates the argument like {@link #evaluate(Frame)}, but a checked constant is used as its converted value and
+     * a single variable as its typed value.
+     */
+    public Object evaluateValue(Frame frame) throws InvalidCodeException {
+        if(constant != -1) {
+            return constants.get(constant);
+        }
+
+        Slot slot = getSlot();
+
+        if(slot != null && !slot.isArray()) {
+            return slot.get(frame).getValue();
+        }
+
+        return evaluate(frame);
+    }
+
+    /**
+     * Evaluates the argument to an integer. A checked constant and an integer variable are used without turning them
+     * into text.
+     */
+    public int evaluateInteger(Frame frame) throws InvalidCodeException {
+        if(constant != -1 && constants.getType(constant) == Variable.VariableType.INTEGER) {
+            return constants.getInteger(constant);
+        }
+
+        Slot slot = getSlot();
+
+        if(slot != null && !slot.isArray() && slot.getType() == Variable.VariableType.INTEGER) {
+            return slot.get(frame).getInteger();
+        }
+
+        String value = evaluate(frame);
+
+        try {
+            return Integer.parseInt(value);
+        } catch(NumberFormatException e) {
+            throw new InvalidCodeException("Formatted invalid value " + value + " for variable type integer");
+        }
+    }
+
+    /**
+     * Evaluates the argument to a decimal. A checked number constant and a number variable are used without turning
+     * them into text.
+     */
+    public double evaluateDecimal(Frame frame) throws InvalidCodeException {
+        if(constant != -1 && (constants.getType(constant) == Variable.VariableType.INTEGER || constants.getType(constant) == Variable.VariableType.DECIMAL)) {
+            return constants.getDecimal(constant);
+        }
+
+        Slot slot = getSlot();
+
+        if(slot != null && !slot.isArray() && slot.getType() == Variable.VariableType.INTEGER) {
+            return slot.get(frame).getInteger();
+        } else if(slot != null && !slot.isArray() && slot.getType() == Variable.VariableType.DECIMAL) {
+            return slot.get(frame).getDecimal();
+        }
+
+        String value = evaluate(frame);
+
+        try {
+            return Double.parseDouble(value);
+        } catch(NumberFormatException e) {
+            throw new InvalidCodeException("Formatted invalid value " + value + " for variable type decimal");
+        }
+    }
+
+    /**
+     * @return whether the argument is a single literal
+     */
+    public boolean isLiteral() {
+        return types.length == 1 && slots[0] == null;
+    }
+
+    public boolean isEmpty() {
+        return types.length == 0;
+    }
+
+    /**
+     * @return the argument exactly as written in the source, for arguments like types or variable names
+     */
+    public String getText() {
+        return text;
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+
+}
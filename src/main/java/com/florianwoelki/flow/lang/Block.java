@@ -1,10 +1,10 @@
 package com.florianwoelki.flow.lang;
 
 import com.florianwoelki.flow.exception.InvalidCodeException;
+import com.florianwoelki.flow.lexer.Lexer;
+import com.florianwoelki.flow.lexer.TokenType;
 
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -12,145 +12,153 @@ import java.util.List;
  */
 public abstract class Block {
 
-    private final List<CustomLineHandler> handlers;
+    private static final Block[] NO_BLOCKS = new Block[0];
 
     private final Block superBlock;
-    private final List<Variable> vars;
-    private final List<Block> subBlocks;
+    private final Method method;
+    private final Class clazz;
     private final List<String> lines;
 
-    public Block(Block superBlock) {
-        this.handlers = new ArrayList<>();
+    /**
+     * The node tree of this block. It is built once by {@link #parse()} and only walked afterwards.
+     */
+    private Block[] subBlocks;
 
+    public Block(Block superBlock) {
         this.superBlock = superBlock;
-        this.vars = new ArrayList<>();
-        this.subBlocks = new ArrayList<>();
+        this.method = this instanceof Method ? (Method) this : superBlock != null ? superBlock.method : null;
+        this.clazz = this instanceof Class ? (Class) this : superBlock != null ? superBlock.clazz : null;
         this.lines = new ArrayList<>();
+        this.subBlocks = NO_BLOCKS;
     }
 
-    protected abstract void runAfterParse() throws InvalidCodeException;
-
-    public void registerCustomLineHandler(CustomLineHandler h) {
-        handlers.add(h);
-    }
+    protected abstract void runAfterParse(Frame frame) throws InvalidCodeException;
 
     public void addLine(String line) {
         lines.add(line);
     }
 
-    public final void doBlocks() throws InvalidCodeException {
+    public final void doBlocks(Frame frame) throws InvalidCodeException {
         for(Block block : subBlocks) {
-            block.run();
+            block.run(frame);
+
+            if(frame.hasReturned()) {
+                return;
+            }
         }
     }
 
-    public Block[] getBlockTree() {
-        List<Block> tree = new ArrayList<>();
-
-        Block b = this;
+    /**
+     * Resolves every variable used in this block to its slot. Nested blocks get their own scope, so their variables
+     * are not visible after the block.
+     */
+    public void resolve(Scope scope) throws InvalidCodeException {
+        resolveBlocks(new Scope(scope));
+    }
 
-        while(b != null) {
-            tree.add(b);
-            b = b.getSuperBlock();
+    final void resolveBlocks(Scope scope) throws InvalidCodeException {
+        for(Block block : subBlocks) {
+            block.resolve(scope);
         }
+    }
 
-        Collections.reverse(tree);
+    /**
+     * Parses the lines of this block into its node tree. Nested blocks are parsed right away, so the tree is
+     * complete afterwards and running the block never has to look at the source lines again.
+     */
+    public void parse() throws InvalidCodeException {
+        List<Block> blocks = new ArrayList<>();
 
-        return tree.toArray(new Block[tree.size()]);
-    }
+        If lastIf = null;
 
-    public void addVariable(Variable.VariableType t, String name, Object value) {
-        vars.add(new Variable(t, name, false, value));
-    }
+        Block currentBlock = null;
+        int numEndsIgnore = 0;
 
-    public void addVariable(Variable.VariableType t, String name, boolean isArray, Object value) {
-        vars.add(new Variable(t, name, isArray, value));
-    }
+        for(String line : lines) {
+            Lexer lexer = new Lexer(line);
+            String keyword = lexer.next() == TokenType.IDENTIFIER ? lexer.getText() : "";
 
-    public Variable getVariable(String name) throws InvalidCodeException {
-        for(Block b : Arrays.copyOfRange(getBlockTree(), 0, getBlockTree().length - 1)) {
-            if(b.hasVariable(name)) {
-                return b.getVariable(name);
+            if(currentBlock == null && keyword.equals("return")) {
+                lexer.next();
+                blocks.add(new Return(this, readArgument(lexer, false)));
+                continue;
             }
-        }
 
-        for(Variable v : vars) {
-            if(v.getName().equals(name)) {
-                return v;
-            }
-        }
+            ConditionalBlock.ConditionalBlockType bt = ConditionalBlock.ConditionalBlockType.match(keyword);
 
-        throw new InvalidCodeException("Variable " + name + " is not declared.");
-    }
+            if(bt != null) {
+                if(currentBlock == null) {
+                    lexer.next();
 
-    public boolean hasVariable(String name) {
-        for(Variable v : vars) {
-            if(v.getName().equals(name)) {
-                return true;
-            }
-        }
-        return false;
-    }
+                    if(bt == ConditionalBlock.ConditionalBlockType.ELSE) {
+                        if(lastIf == null) throw new InvalidCodeException("Else without if.");
 
-    public void run() throws InvalidCodeException {
-        subBlocks.clear();
+                        currentBlock = new Else(this);
+                    } else if(bt == ConditionalBlock.ConditionalBlockType.FOREACH) {
+                        String varName = lexer.getText(), arrayName;
 
-        If lastIf = null;
+                        if(lexer.getType() != TokenType.IDENTIFIER || lexer.next() != TokenType.IDENTIFIER) {
+                            throw new InvalidCodeException("Usage: foreach <variable> <array>");
+                        }
 
-        Block currentBlock = null;
-        int numEndsIgnore = 0;
+                        arrayName = lexer.getText();
+                        lexer.next();
 
-        lineLoop:
-        for(String line : lines) {
-            for(CustomLineHandler h : handlers) {
-                if(line.startsWith(h.getStart())) {
-                    if(h.run(line, this)) {
-                        break lineLoop;
-                    }
+                        currentBlock = new Foreach(this, varName, arrayName);
+                    } else if(bt == ConditionalBlock.ConditionalBlockType.PARALLEL) {
+                        if(!lexer.getText().equals("foreach") || lexer.next() != TokenType.IDENTIFIER) {
+                            throw new InvalidCodeException("Usage: parallel foreach <variable> <array>");
+                        }
 
-                    continue lineLoop;
-                }
-            }
+                        String varName = lexer.getText(), arrayName;
+
+                        if(lexer.next() != TokenType.IDENTIFIER) {
+                            throw new InvalidCodeException("Usage: parallel foreach <variable> <array>");
+                        }
+
+                        arrayName = lexer.getText();
+                        lexer.next();
+
+                        currentBlock = new ParallelForeach(this, varName, arrayName);
+                    } else {
+                        Argument a = readArgument(lexer, true);
+
+                        if(lexer.getType() != TokenType.OPERATOR) {
+                            throw new InvalidCodeException("Missing comparison in " + line + ".");
+                        }
 
-            for(ConditionalBlock.ConditionalBlockType bt : ConditionalBlock.ConditionalBlockType.values()) {
-                if(line.split(" ")[0].equals(bt.name().toLowerCase())) {
-                    if(currentBlock == null) {
-                        String[] args = Arrays.copyOfRange(line.split(" "), 1, line.split(" ").length);
+                        ConditionalBlock.CompareOperation op = ConditionalBlock.CompareOperation.match(lexer.getText());
+                        lexer.next();
 
-                        if(bt == ConditionalBlock.ConditionalBlockType.ELSE) {
+                        Argument b = readArgument(lexer, true);
+
+                        if(bt == ConditionalBlock.ConditionalBlockType.IF) {
+                            currentBlock = new If(this, a, b, op);
+                        } else if(bt == ConditionalBlock.ConditionalBlockType.ELSEIF) {
                             if(lastIf == null) throw new InvalidCodeException("Else if without if.");
 
-                            currentBlock = new Else(this);
-                        } else {
-                            String a = args[0], b = args[2];
-                            ConditionalBlock.CompareOperation op = ConditionalBlock.CompareOperation.match(args[1]);
-
-                            if(bt == ConditionalBlock.ConditionalBlockType.IF) {
-                                currentBlock = new If(this, a, b, op);
-                            } else if(bt == ConditionalBlock.ConditionalBlockType.ELSEIF) {
-                                if(lastIf == null) throw new InvalidCodeException("Else if without if.");
-
-                                currentBlock = new ElseIf(this, a, b, op);
-                            } else if(bt == ConditionalBlock.ConditionalBlockType.WHILE) {
-                                currentBlock = new While(this, a, b, op);
-                            } else if(bt == ConditionalBlock.ConditionalBlockType.DOWHILE) {
-                                currentBlock = new DoWhile(this, a, b, op);
-                            } else if(bt == ConditionalBlock.ConditionalBlockType.FOR) {
-                                currentBlock = new For(this, a, b);
-                            } else if(bt == ConditionalBlock.ConditionalBlockType.FOREACH) {
-                                currentBlock = new Foreach(this, args[0], args[1]);
-                            }
+                            currentBlock = new ElseIf(this, a, b, op);
+                        } else if(bt == ConditionalBlock.ConditionalBlockType.WHILE) {
+                            currentBlock = new While(this, a, b, op);
+                        } else if(bt == ConditionalBlock.ConditionalBlockType.DOWHILE) {
+                            currentBlock = new DoWhile(this, a, b, op);
+                        } else if(bt == ConditionalBlock.ConditionalBlockType.FOR) {
+                            currentBlock = new For(this, a, b);
                         }
-                    } else {
-                        currentBlock.addLine(line);
-                        numEndsIgnore++;
                     }
 
-                    continue lineLoop;
+                    if(lexer.getType() != TokenType.EOF) {
+                        throw new InvalidCodeException("Unexpected " + lexer.getText() + " in " + line + ".");
+                    }
+                } else {
+                    currentBlock.addLine(line);
+                    numEndsIgnore++;
                 }
+
+                continue;
             }
 
-            if(line.equals("end")) {
+            if(keyword.equals("end") && lexer.next() == TokenType.EOF) {
                 if(numEndsIgnore > 0) {
                     numEndsIgnore--;
                     if(currentBlock != null) {
@@ -161,17 +169,18 @@ public abstract class Block {
 
                 if(currentBlock != null) {
                     currentBlock.addLine("end");
-                    if(!(currentBlock instanceof Else)) {
-                        subBlocks.add(currentBlock);
-                    }
+                    currentBlock.parse();
 
                     if(currentBlock instanceof If) {
+                        blocks.add(currentBlock);
                         lastIf = (If) currentBlock;
                     } else if(currentBlock instanceof ElseIf) {
                         lastIf.addElseIf((ElseIf) currentBlock);
                     } else if(currentBlock instanceof Else) {
                         lastIf.setElse((Else) currentBlock);
                         lastIf = null;
+                    } else {
+                        blocks.add(currentBlock);
                     }
 
                     currentBlock = null;
@@ -182,12 +191,42 @@ public abstract class Block {
                 if(currentBlock != null) {
                     currentBlock.addLine(line);
                 } else {
-                    subBlocks.add(new Line(this, line));
+                    blocks.add(new Line(this, line));
                 }
             }
         }
 
-        runAfterParse();
+        if(currentBlock != null) {
+            throw new InvalidCodeException("Missing end for " + currentBlock + ".");
+        }
+
+        subBlocks = blocks.toArray(new Block[blocks.size()]);
+        lines.clear();
+    }
+
+    /**
+     * Drops the lines which were added since the last parse, a parse which failed leaves them behind.
+     */
+    void clearLines() {
+        lines.clear();
+    }
+
+    private Argument readArgument(Lexer lexer, boolean operand) throws InvalidCodeException {
+        Argument argument = Argument.read(lexer, operand);
+
+        if(operand && argument.isEmpty()) {
+            throw new InvalidCodeException("Missing operand in " + lexer.getSource() + ".");
+        }
+
+        return argument;
+    }
+
+    /**
+     * Runs this block on its already parsed node tree. The variables are read from the frame of the running method.
+     */
+    public void run(Frame frame) throws InvalidCodeException {
+        frame.step();
+        runAfterParse(frame);
     }
 
     @Override
@@ -198,20 +237,24 @@ public abstract class Block {
     public Block getSuperBlock() {
         return superBlock;
     }
-}
 
-abstract class CustomLineHandler {
-
-    private final String start;
+    /**
+     * Sets the node tree of a block which was not parsed from source, see {@link Flowc}.
+     */
+    void setSubBlocks(Block[] subBlocks) {
+        this.subBlocks = subBlocks;
+    }
 
-    public CustomLineHandler(String start) {
-        this.start = start;
+    public Block[] getSubBlocks() {
+        return subBlocks.clone();
     }
 
-    public String getStart() {
-        return start;
+    public Method getMethod() {
+        return method;
     }
 
-    public abstract boolean run(String line, Block sB) throws InvalidCodeException;
+    public Class getClassBlock() {
+        return clazz;
+    }
 
-}
\ No newline at end of file
+}
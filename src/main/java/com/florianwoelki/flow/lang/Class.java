@@ -1,22 +1,56 @@
 package com.florianwoelki.flow.lang;
 
-import com.florianwoelki.flow.function.FunctionManager;
+import com.florianwoelki.flow.compiler.CompiledMethod;
+import com.florianwoelki.flow.compiler.Compiler;
+import com.florianwoelki.flow.console.Console;
+import com.florianwoelki.flow.console.OutputType;
 import com.florianwoelki.flow.exception.InvalidCodeException;
-import com.florianwoelki.flow.gui.Console;
-import com.florianwoelki.flow.gui.OutputType;
+import com.florianwoelki.flow.function.FunctionManager;
+import com.florianwoelki.flow.lexer.Lexer;
+import com.florianwoelki.flow.lexer.TokenType;
+import com.florianwoelki.flow.vm.VmCompiler;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Created by Florian Woelki on 08.11.16.
  */
 public class Class extends Block {
 
-    private final String[] code;
+    private volatile String[] code;
     public FunctionManager functionManager;
     private List<Method> methods;
+    private Map<String, Integer> methodIndices;
+    private int globalSize;
+    private volatile boolean parsed;
+
+    /**
+     * Runs hold the read lock, parsing the changed code waits for them with the write lock.
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * The methods of the last parse by their source, from <code>fn</code> to <code>end</code>.
+     */
+    private Map<String, Method> parsedMethods = new HashMap<>();
+
+    /**
+     * What the methods of the last parse were resolved against: the engine, the global declarations and the method
+     * headers. While it stays the same, a method with the same source does not have to be resolved again either.
+     */
+    private String environment;
+
+    /**
+     * The literals of all methods, it is kept when the code changes like the reused methods which refer to it. When no
+     * method is reused it starts over, so literals of old code do not pile up.
+     */
+    private ConstantPool constants = new ConstantPool();
 
     public Class(String[] code) {
         super(null);
@@ -24,77 +58,319 @@ public class Class extends Block {
         this.code = code;
     }
 
-    public void run(Console console) throws InvalidCodeException {
+    /**
+     * Replaces the code of this class. The next run parses the methods whose source changed, the others are reused.
+     */
+    public void update(String[] code) {
+        this.code = code;
+        this.parsed = false;
+    }
+
+    /**
+     * Splits the code into its methods and parses every method into its node tree. This only happens once, running
+     * the class afterwards just walks the parsed trees. Methods which are unchanged since the last parse keep their
+     * tree.
+     */
+    @Override
+    public void parse() throws InvalidCodeException {
+        String[] code = this.code;
+        String lastEnvironment = environment;
+        Engine engine = Engine.selected();
+
+        environment = null;
         methods = new ArrayList<>();
-        functionManager = new FunctionManager(console);
+        methodIndices = new HashMap<>();
+        clearLines();
 
+        List<String> sources = new ArrayList<>();
+        StringBuilder source = new StringBuilder(), declarations = new StringBuilder(engine.name());
         Method currentMethod = null;
 
         for(String line : code) {
             line = trimComments(line);
 
             if(line.startsWith("fn ")) {
-                String[] args = line.split(" ");
-                String[] mArgs = args[1].split(":");
-                String methodName = mArgs[0];
-
-                if(mArgs.length == 1) {
-                    throw new InvalidCodeException("Did not specify return type for method " + methodName + ".");
+                currentMethod = parseMethodHeader(line);
+                source.setLength(0);
+                source.append(line);
+                declarations.append('\n').append(line);
+            } else if(currentMethod != null && line.equals("end " + currentMethod.getName())) {
+                if(methodIndices.put(currentMethod.getName().intern(), methods.size()) != null) {
+                    throw new InvalidCodeException("Method " + currentMethod.getName() + " is declared twice.");
                 }
 
-                Variable.VariableType returnType = Variable.VariableType.match(mArgs[1]);
-
-                String[] params = Arrays.copyOfRange(args, 2, args.length);
-
-                currentMethod = new Method(this, methodName, returnType, params);
-            } else if(currentMethod != null && line.equals("end " + currentMethod.getName())) {
                 methods.add(currentMethod);
+                sources.add(source.toString());
 
                 currentMethod = null;
-            } else if(line.startsWith("declare")) {
-                functionManager.parse(this, line);
+            } else if(currentMethod == null && line.startsWith("declare")) {
+                addLine(line);
+                declarations.append('\n').append(line);
             } else {
                 if(currentMethod != null && !line.equals("") && !line.equals(" ")) {
                     currentMethod.addLine(line);
+                    source.append('\n').append(line);
                 }
             }
         }
 
-        console.clear();
+        super.parse();
+
+        boolean[] reused = new boolean[methods.size()];
+
+        for(int i = 0; i < methods.size(); i++) {
+            Method cached = parsedMethods.get(sources.get(i));
+
+            if(cached != null) {
+                methods.set(i, cached);
+                reused[i] = true;
+            } else {
+                methods.get(i).parse();
+            }
+        }
+
+        // Unchanged methods only have to be resolved and compiled again if what they can see has changed.
+        String environment = declarations.toString();
+
+        if(!environment.equals(lastEnvironment)) {
+            Arrays.fill(reused, false);
+        }
+
+        if(functionManager == null) {
+            functionManager = new FunctionManager(this);
+        }
+
+        resolve(reused);
+        compile(reused, engine);
+
+        Map<String, Method> parsedMethods = new HashMap<>();
+
+        for(int i = 0; i < methods.size(); i++) {
+            parsedMethods.put(sources.get(i), methods.get(i));
+        }
+
+        this.parsedMethods = parsedMethods;
+        this.environment = environment;
+        this.parsed = this.code == code;
+    }
+
+    /**
+     * Builds this class from the trees of a precompiled program, see {@link Flowc}.
+     */
+    void link(Block[] globals, List<Method> methods) throws InvalidCodeException {
+        setSubBlocks(globals);
+
+        this.methods = new ArrayList<>(methods);
+        this.methodIndices = new HashMap<>();
+
+        for(int i = 0; i < methods.size(); i++) {
+            if(methodIndices.put(methods.get(i).getName().intern(), i) != null) {
+                throw new InvalidCodeException("Method " + methods.get(i).getName() + " is declared twice.");
+            }
+        }
+
+        functionManager = new FunctionManager(this);
+
+        boolean[] reused = new boolean[methods.size()];
 
-        Method main = getMethod("main");
-        main.run();
-        main.invoke(new String[0]);
+        resolve(reused);
+        compile(reused, Engine.selected());
 
-        console.write(OutputType.INFO, "--Terminated.");
+        environment = null;
+        parsed = true;
     }
 
-    private String trimComments(String str) {
-        StringBuilder fin = new StringBuilder();
+    private void compile(boolean[] reused, Engine engine) {
+        Compiler compiler = engine == Engine.JVM ? new Compiler() : null;
 
-        for(String word : str.split(" ")) {
-            if(word.startsWith("//")) {
-                return fin.toString().trim();
+        for(int i = 0; i < methods.size(); i++) {
+            Method method = methods.get(i);
+
+            if(reused[i]) {
+                continue;
+            }
+
+            if(engine == Engine.JVM) {
+                CompiledMethod compiled = compiler.compile(method);
+                method.setCompiled(compiled != null ? compiled : VmCompiler.compile(method));
+            } else if(engine == Engine.VM) {
+                method.setCompiled(VmCompiler.compile(method));
             } else {
-                fin.append(word).append(" ");
+                method.setCompiled(null);
+            }
+        }
+    }
+
+    /**
+     * Runs the program on the console. The parsed trees are only read while running, so one class can run on many
+     * threads at once.
+     */
+    public void run(Console console) throws InvalidCodeException {
+        run(console, new Governor());
+    }
+
+    /**
+     * Runs the program on the console and stops it when it goes over the limits of the governor. If the code was
+     * updated, it is parsed once the runs of the old code are done.
+     */
+    public void run(Console console, Governor governor) throws InvalidCodeException {
+        if(!parsed) {
+            lock.writeLock().lock();
+
+            try {
+                if(!parsed) {
+                    parse();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        lock.readLock().lock();
+
+        try {
+            Frame globals = new Frame(governor.start(console), governor, globalSize);
+
+            run(globals);
+
+            console.clear();
+
+            Method main = getMethod("main");
+            main.invoke(globals, new String[0]);
+
+            console.write(OutputType.INFO, "--Terminated.");
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+    Parses a method header: fn <name>:<return type> [<type>:<parameter>] ...
+     */
+    private Method parseMethodHeader(String line) throws InvalidCodeException {
+        Lexer lexer = new Lexer(line);
+        lexer.next();
+
+        if(lexer.next() != TokenType.IDENTIFIER) {
+            throw new InvalidCodeException("Missing method name in " + line + ".");
+        }
+
+        String methodName = lexer.getText();
+
+        if(lexer.next() != TokenType.COLON || lexer.next() != TokenType.IDENTIFIER) {
+            throw new InvalidCodeException("Did not specify return type for method " + methodName + ".");
+        }
+
+        Variable.VariableType returnType = Variable.VariableType.match(lexer.getText());
+
+        List<Variable.VariableType> paramTypes = new ArrayList<>();
+        List<String> paramNames = new ArrayList<>();
+
+        while(lexer.next() != TokenType.EOF) {
+            String type = lexer.getText();
+
+            if(lexer.getType() != TokenType.IDENTIFIER || lexer.next() != TokenType.COLON || lexer.next() != TokenType.IDENTIFIER) {
+                throw new InvalidCodeException("Invalid parameter " + type + " for method " + methodName + ".");
             }
+
+            Variable.VariableType paramType = Variable.VariableType.match(type);
+
+            if(paramType == Variable.VariableType.VOID) {
+                throw new InvalidCodeException("Parameter " + lexer.getText() + " of method " + methodName + " can not be void.");
+            }
+
+            paramTypes.add(paramType);
+            paramNames.add(lexer.getText());
+        }
+
+        return new Method(this, methodName, returnType, paramTypes.toArray(new Variable.VariableType[paramTypes.size()]), paramNames.toArray(new String[paramNames.size()]));
+    }
+
+    private String trimComments(String str) throws InvalidCodeException {
+        Lexer lexer = new Lexer(str);
+        int end = 0;
+
+        while(lexer.next() != TokenType.EOF) {
+            end = lexer.getEnd();
         }
 
-        return fin.toString().trim();
+        return str.substring(0, end).trim();
+    }
+
+    /**
+     * @return the index of the method with the name, or <code>-1</code> if there is none
+     */
+    public int indexOfMethod(String name) {
+        Integer index = methodIndices.get(name);
+
+        return index == null ? -1 : index;
+    }
+
+    public ConstantPool getConstants() {
+        return constants;
+    }
+
+    List<Method> getMethods() {
+        return methods;
+    }
+
+    public Method getMethod(int index) {
+        return methods.get(index);
     }
 
     public Method getMethod(String name) throws InvalidCodeException {
-        for(Method m : methods) {
-            if(m.getName().equals(name)) {
-                return m;
+        int index = indexOfMethod(name);
+
+        if(index == -1) {
+            throw new InvalidCodeException("Method " + name + " does not exist.");
+        }
+
+        return methods.get(index);
+    }
+
+    /**
+     * Resolves the global variables first, so every method can see them.
+     */
+    @Override
+    public void resolve(Scope scope) throws InvalidCodeException {
+        resolve(new boolean[methods.size()]);
+    }
+
+    /**
+     * @param reused the methods which are still resolved from the last parse
+     */
+    private void resolve(boolean[] reused) throws InvalidCodeException {
+        boolean reusing = false;
+
+        for(boolean method : reused) {
+            reusing |= method;
+        }
+
+        if(!reusing && constants.size() > 0) {
+            constants = new ConstantPool();
+        }
+
+        Scope globals = new Scope(constants);
+
+        resolveBlocks(globals);
+
+        for(int i = 0; i < methods.size(); i++) {
+            if(!reused[i]) {
+                methods.get(i).resolve(globals);
             }
         }
 
-        throw new InvalidCodeException("Method " + name + " does not exist.");
+        // A method which is reused may call one which changed.
+        for(Method method : methods) {
+            ParallelForeach.checkCalls(method);
+        }
+
+        globalSize = globals.getFrameSize();
     }
 
     @Override
-    protected void runAfterParse() throws InvalidCodeException {
+    protected void runAfterParse(Frame frame) throws InvalidCodeException {
+        doBlocks(frame);
     }
 
     @Override
@@ -0,0 +1,199 @@
+package com.florianwoelki.flow.lang;
+
+import com.florianwoelki.flow.exception.InvalidCodeException;
+import com.florianwoelki.flow.expression.Expression;
+
+/**
+ * The compiled condition of a {@link ConditionalBlock}. The types of both operands decide while resolving how they
+ * are compared: integers and decimals as numbers, booleans as booleans and everything else as text. So testing the
+ * condition in a loop never has to parse the operands again.
+ */
+abstract class Condition {
+
+    final ConditionalBlock.CompareOperation op;
+
+    private Condition(ConditionalBlock.CompareOperation op) {
+        this.op = op;
+    }
+
+    abstract boolean test(Frame frame) throws InvalidCodeException;
+
+    Expression getLeft() {
+        return null;
+    }
+
+    Expression getRight() {
+        return null;
+    }
+
+    /**
+     * Resolves both operands and picks the comparison for their types.
+     */
+    static Condition compile(Argument a, ConditionalBlock.CompareOperation op, Argument b, Scope scope) throws InvalidCodeException {
+        a.resolve(scope);
+        b.resolve(scope);
+
+        Variable.VariableType typeA = a.getType(), typeB = b.getType();
+
+        if(isNumber(typeA) && isNumber(typeB)) {
+            Expression x = a.compile(scope), y = b.compile(scope);
+
+            if(x.getType() == Variable.VariableType.INTEGER && y.getType() == Variable.VariableType.INTEGER) {
+                return new IntegerCondition(x, op, y);
+            }
+
+            return new DecimalCondition(x, op, y);
+        } else if(typeA == Variable.VariableType.BOOLEAN && typeB == Variable.VariableType.BOOLEAN) {
+            if(!op.isEquality()) {
+                throw new InvalidCodeException("Attempted to use " + op.name().toLowerCase() + " on booleans.");
+            }
+
+            a.check(Variable.VariableType.BOOLEAN);
+            b.check(Variable.VariableType.BOOLEAN);
+            return new BooleanCondition(a, op, b);
+        }
+
+        return new TextCondition(a, op, b);
+    }
+
+    private static boolean isNumber(Variable.VariableType type) {
+        return type == Variable.VariableType.INTEGER || type == Variable.VariableType.DECIMAL;
+    }
+
+    private static class IntegerCondition extends Condition {
+
+        private final Expression a, b;
+
+        private IntegerCondition(Expression a, ConditionalBlock.CompareOperation op, Expression b) {
+            super(op);
+
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        Expression getLeft() {
+            return a;
+        }
+
+        @Override
+        Expression getRight() {
+            return b;
+        }
+
+        @Override
+        boolean test(Frame frame) throws InvalidCodeException {
+            int x = a.evaluateInteger(frame), y = b.evaluateInteger(frame);
+
+            switch(op) {
+                case EQUALS:
+                    return x == y;
+                case NOTEQUALS:
+                    return x != y;
+                case GREATERTHAN:
+                    return x > y;
+                default:
+                    return x < y;
+            }
+        }
+
+    }
+
+    private static class DecimalCondition extends Condition {
+
+        private final Expression a, b;
+
+        private DecimalCondition(Expression a, ConditionalBlock.CompareOperation op, Expression b) {
+            super(op);
+
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        Expression getLeft() {
+            return a;
+        }
+
+        @Override
+        Expression getRight() {
+            return b;
+        }
+
+        @Override
+        boolean test(Frame frame) throws InvalidCodeException {
+            return compare(a.evaluateDecimal(frame), op, b.evaluateDecimal(frame));
+        }
+
+    }
+
+    private static class BooleanCondition extends Condition {
+
+        private final Argument a, b;
+
+        private BooleanCondition(Argument a, ConditionalBlock.CompareOperation op, Argument b) {
+            super(op);
+
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        boolean test(Frame frame) throws InvalidCodeException {
+            return (value(a, frame) == value(b, frame)) == (op == ConditionalBlock.CompareOperation.EQUALS);
+        }
+
+        private static boolean value(Argument argument, Frame frame) throws InvalidCodeException {
+            Slot slot = argument.getSlot();
+
+            return slot != null ? slot.get(frame).getBoolean() : (Boolean) argument.evaluateValue(frame);
+        }
+
+    }
+
+    /**
+     * Compares operands whose type is only known while running. <code>==</code> and <code>!=</code> compare the
+     * text, <code>&gt;</code> and <code>&lt;</code> need both values to be numbers.
+     */
+    private static class TextCondition extends Condition {
+
+        private final Argument a, b;
+
+        private TextCondition(Argument a, ConditionalBlock.CompareOperation op, Argument b) {
+            super(op);
+
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        boolean test(Frame frame) throws InvalidCodeException {
+            String x = a.evaluate(frame), y = b.evaluate(frame);
+
+            if(op.isEquality()) {
+                return x.equals(y) == (op == ConditionalBlock.CompareOperation.EQUALS);
+            }
+
+            try {
+                return compare(Double.parseDouble(x), op, Double.parseDouble(y));
+            } catch(NumberFormatException e) {
+                throw new InvalidCodeException("Attempted to use " + op.name().toLowerCase() + " on non-numbers.");
+            }
+        }
+
+    }
+
+    private static boolean compare(double x, ConditionalBlock.CompareOperation op, double y) {
+        switch(op) {
+            case EQUALS:
+                return x == y;
+            case NOTEQUALS:
+                return x != y;
+            case GREATERTHAN:
+                return x > y;
+            default:
+                return x < y;
+        }
+    }
+
+}
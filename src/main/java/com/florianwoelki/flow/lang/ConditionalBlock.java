@@ -1,16 +1,20 @@
 package com.florianwoelki.flow.lang;
 
 import com.florianwoelki.flow.exception.InvalidCodeException;
+import com.florianwoelki.flow.expression.Expression;
 
 /**
  * Created by Florian Woelki on 08.11.16.
  */
 public abstract class ConditionalBlock extends Block {
 
-    final String aVal;
-    final String bVal;
+    final Argument aVal;
+    final Argument bVal;
     final CompareOperation compareOp;
-    ConditionalBlock(Block superBlock, String aVal, String bVal, CompareOperation compareOp) {
+
+    private Condition condition;
+
+    ConditionalBlock(Block superBlock, Argument aVal, Argument bVal, CompareOperation compareOp) {
         super(superBlock);
 
         this.aVal = aVal;
@@ -18,7 +22,39 @@ public abstract class ConditionalBlock extends Block {
         this.compareOp = compareOp;
     }
 
-    public abstract void runAfterParse() throws InvalidCodeException;
+    public abstract void runAfterParse(Frame frame) throws InvalidCodeException;
+
+    /**
+     * Compiles the condition in the scope around this block and resolves the body in its own scope.
+     */
+    @Override
+    public void resolve(Scope scope) throws InvalidCodeException {
+        condition = Condition.compile(aVal, compareOp, bVal, scope);
+
+        super.resolve(scope);
+    }
+
+    public boolean test(Frame frame) throws InvalidCodeException {
+        return condition.test(frame);
+    }
+
+    /**
+     * @return the left operand if the condition compares numbers, otherwise <code>null</code>
+     */
+    public Expression getLeft() {
+        return condition.getLeft();
+    }
+
+    /**
+     * @return the right operand if the condition compares numbers, otherwise <code>null</code>
+     */
+    public Expression getRight() {
+        return condition.getRight();
+    }
+
+    public CompareOperation getCompareOperation() {
+        return compareOp;
+    }
 
     @Override
     public String toString() {
@@ -32,10 +68,21 @@ public abstract class ConditionalBlock extends Block {
         WHILE,
         DOWHILE,
         FOR,
-        FOREACH;
+        FOREACH,
+        PARALLEL;
+
+        public static ConditionalBlockType match(String keyword) {
+            for(ConditionalBlockType type : values()) {
+                if(type.name().equalsIgnoreCase(keyword)) {
+                    return type;
+                }
+            }
+
+            return null;
+        }
     }
 
-    enum CompareOperation {
+    public enum CompareOperation {
         EQUALS("=="),
         NOTEQUALS("!="),
         GREATERTHAN(">"),
@@ -60,6 +107,10 @@ public abstract class ConditionalBlock extends Block {
         public String getOp() {
             return op;
         }
+
+        public boolean isEquality() {
+            return this == EQUALS || this == NOTEQUALS;
+        }
     }
 
 }
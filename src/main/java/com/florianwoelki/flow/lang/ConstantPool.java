@@ -0,0 +1,85 @@
+package com.florianwoelki.flow.lang;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The literals of a program, converted to their type once while resolving. Arguments and expressions refer to a
+ * literal by its index, and the same literal is only stored once. Integers and decimals are also kept unboxed.
+ * <p>
+ * The pool only grows, so the indices of methods which are reused when the program is parsed again stay valid. A
+ * class starts a new pool when it does not reuse any method.
+ */
+public final class ConstantPool {
+
+    private final Map<Object, Integer> indices = new HashMap<>();
+
+    private Object[] values = new Object[16];
+    private Variable.VariableType[] types = new Variable.VariableType[16];
+    private int[] integers = new int[16];
+    private double[] decimals = new double[16];
+    private int size;
+
+    /**
+     * @param value an integer, decimal, boolean or text
+     * @return the index of the value, it is added if the pool does not have it yet
+     */
+    public int add(Object value) {
+        Integer index = indices.get(value);
+
+        if(index != null) {
+            return index;
+        }
+
+        if(size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+            types = Arrays.copyOf(types, size * 2);
+            integers = Arrays.copyOf(integers, size * 2);
+            decimals = Arrays.copyOf(decimals, size * 2);
+        }
+
+        values[size] = value;
+
+        if(value instanceof Integer) {
+            types[size] = Variable.VariableType.INTEGER;
+            integers[size] = (Integer) value;
+            decimals[size] = (Integer) value;
+        } else if(value instanceof Double) {
+            types[size] = Variable.VariableType.DECIMAL;
+            integers[size] = ((Double) value).intValue();
+            decimals[size] = (Double) value;
+        } else {
+            types[size] = value instanceof Boolean ? Variable.VariableType.BOOLEAN : Variable.VariableType.STRING;
+        }
+
+        indices.put(value, size);
+        return size++;
+    }
+
+    public Object get(int index) {
+        return values[index];
+    }
+
+    public Variable.VariableType getType(int index) {
+        return types[index];
+    }
+
+    public int getInteger(int index) {
+        return integers[index];
+    }
+
+    public double getDecimal(int index) {
+        return decimals[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return "ConstantPool values=" + Arrays.toString(Arrays.copyOf(values, size));
+    }
+
+}
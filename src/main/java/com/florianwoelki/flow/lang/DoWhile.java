@@ -1,6 +1,5 @@
 package com.florianwoelki.flow.lang;
 
-import com.florianwoelki.flow.FlowLang;
 import com.florianwoelki.flow.exception.InvalidCodeException;
 
 /**
@@ -8,69 +7,21 @@ import com.florianwoelki.flow.exception.InvalidCodeException;
  */
 public class DoWhile extends ConditionalBlock {
 
-    public DoWhile(Block superBlock, String aVal, String bVal, CompareOperation compareOp) {
+    public DoWhile(Block superBlock, Argument aVal, Argument bVal, CompareOperation compareOp) {
         super(superBlock, aVal, bVal, compareOp);
     }
 
     @Override
-    public void runAfterParse() throws InvalidCodeException {
-        if(compareOp == CompareOperation.EQUALS) {
-            int a, b;
+    public void runAfterParse(Frame frame) throws InvalidCodeException {
+        do {
+            doBlocks(frame);
 
-            do {
-                try {
-                    a = Integer.parseInt(FlowLang.implode(aVal, this));
-                    b = Integer.parseInt(FlowLang.implode(bVal, this));
-                } catch(Exception e) {
-                    throw new InvalidCodeException("Attempted to use " + compareOp.name().toLowerCase() + " on non-integers");
-                }
-
-                doBlocks();
+            if(frame.hasReturned()) {
+                break;
             }
-            while(a == b);
-        } else if(compareOp == CompareOperation.NOTEQUALS) {
-            int a, b;
-
-            do {
-                try {
-                    a = Integer.parseInt(FlowLang.implode(aVal, this));
-                    b = Integer.parseInt(FlowLang.implode(bVal, this));
-                } catch(Exception e) {
-                    throw new InvalidCodeException("Attempted to use " + compareOp.name().toLowerCase() + " on non-integers");
-                }
-
-                doBlocks();
-            }
-            while(a != b);
-        } else if(compareOp == CompareOperation.GREATERTHAN) {
-            int a, b;
-
-            do {
-                try {
-                    a = Integer.parseInt(FlowLang.implode(aVal, this));
-                    b = Integer.parseInt(FlowLang.implode(bVal, this));
-                } catch(Exception e) {
-                    throw new InvalidCodeException("Attempted to use " + compareOp.name().toLowerCase() + " on non-integers.");
-                }
 
-                doBlocks();
-            }
-            while(a > b);
-        } else if(compareOp == CompareOperation.LESSTHAN) {
-            int a, b;
-
-            do {
-                try {
-                    a = Integer.parseInt(FlowLang.implode(aVal, this));
-                    b = Integer.parseInt(FlowLang.implode(bVal, this));
-                } catch(Exception e) {
-                    throw new InvalidCodeException("Attempted to use " + compareOp.name().toLowerCase() + " on non-integers.");
-                }
-
-                doBlocks();
-            }
-            while(a < b);
-        }
+            frame.step();
+        } while(test(frame));
     }
 
     @Override
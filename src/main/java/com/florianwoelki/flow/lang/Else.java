@@ -12,7 +12,8 @@ public class Else extends Block {
     }
 
     @Override
-    protected void runAfterParse() throws InvalidCodeException {
+    protected void runAfterParse(Frame frame) throws InvalidCodeException {
+        doBlocks(frame);
     }
 
     @Override
@@ -1,6 +1,5 @@
 package com.florianwoelki.flow.lang;
 
-import com.florianwoelki.flow.FlowLang;
 import com.florianwoelki.flow.exception.InvalidCodeException;
 
 /**
@@ -8,58 +7,12 @@ import com.florianwoelki.flow.exception.InvalidCodeException;
  */
 public class ElseIf extends ConditionalBlock {
 
-    public ElseIf(Block superBlock, String aVal, String bVal, CompareOperation compareOp) {
+    public ElseIf(Block superBlock, Argument aVal, Argument bVal, CompareOperation compareOp) {
         super(superBlock, aVal, bVal, compareOp);
     }
 
-    public boolean runElseIf() throws InvalidCodeException {
-        boolean opSuccess = false;
-
-        if(compareOp == CompareOperation.EQUALS) {
-            if(FlowLang.implode(aVal, this).equals(FlowLang.implode(bVal, this))) {
-                doBlocks();
-                opSuccess = true;
-            }
-        } else if(compareOp == CompareOperation.NOTEQUALS) {
-            if(!FlowLang.implode(aVal, this).equals(FlowLang.implode(bVal, this))) {
-                doBlocks();
-                opSuccess = true;
-            }
-        } else if(compareOp == CompareOperation.GREATERTHAN) {
-            int a, b;
-
-            try {
-                a = Integer.parseInt(FlowLang.implode(aVal, this));
-                b = Integer.parseInt(FlowLang.implode(bVal, this));
-            } catch(Exception e) {
-                throw new InvalidCodeException("Attempted to use " + compareOp.name().toLowerCase() + " on non-integers");
-            }
-
-            if(a > b) {
-                doBlocks();
-                opSuccess = true;
-            }
-        } else if(compareOp == CompareOperation.LESSTHAN) {
-            int a, b;
-
-            try {
-                a = Integer.parseInt(FlowLang.implode(aVal, this));
-                b = Integer.parseInt(FlowLang.implode(bVal, this));
-            } catch(Exception e) {
-                throw new InvalidCodeException("Attempted to use " + compareOp.name().toLowerCase() + " on non-integers");
-            }
-
-            if(a < b) {
-                doBlocks();
-                opSuccess = true;
-            }
-        }
-
-        return opSuccess;
-    }
-
     @Override
-    public void runAfterParse() throws InvalidCodeException {
+    public void runAfterParse(Frame frame) throws InvalidCodeException {
     }
 
     @Override
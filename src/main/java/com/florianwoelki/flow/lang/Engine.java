@@ -0,0 +1,42 @@
+package com.florianwoelki.flow.lang;
+
+import com.florianwoelki.flow.exception.InvalidCodeException;
+
+/**
+ * How the methods of a program are run. The engine is picked with <code>-Dflow.engine=jvm|vm|tree</code>,
+ * <code>-Dflow.compiler=false</code> still picks the tree walk.
+ */
+public enum Engine {
+
+    /**
+     * Compiles every method to a JVM class, see {@link com.florianwoelki.flow.compiler.Compiler}. Methods which are
+     * too large for a JVM method run on the VM.
+     */
+    JVM,
+
+    /**
+     * Compiles every method to Flow bytecode, see {@link com.florianwoelki.flow.vm.VmCompiler}. No classes are
+     * defined, so it works in JVMs which do not allow class loaders.
+     */
+    VM,
+
+    /**
+     * Walks the parsed tree of every method.
+     */
+    TREE;
+
+    public static Engine selected() throws InvalidCodeException {
+        String engine = System.getProperty("flow.engine");
+
+        if(engine != null) {
+            try {
+                return valueOf(engine.toUpperCase());
+            } catch(IllegalArgumentException e) {
+                throw new InvalidCodeException("Unknown engine " + engine + ", use jvm, vm or tree.");
+            }
+        }
+
+        return "false".equals(System.getProperty("flow.compiler")) ? TREE : JVM;
+    }
+
+}
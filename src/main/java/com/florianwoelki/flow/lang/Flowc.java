@@ -0,0 +1,417 @@
+package com.florianwoelki.flow.lang;
+
+import com.florianwoelki.flow.exception.InvalidCodeException;
+import com.florianwoelki.flow.lexer.TokenType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The precompiled format of a program, <code>.flowc</code>. It holds the parsed node tree of the global declarations
+ * and of every method, with the arguments as their tokens, so loading it neither splits nor lexes the source. The
+ * tree is resolved and compiled for the selected {@link Engine} when it is loaded.
+ * <p>
+ * Layout: the magic number, the version, the SHA-256 hash of the source, a pool of every string and then the trees,
+ * which refer to strings by their index in the pool.
+ */
+public final class Flowc {
+
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0x464C4F57;
+    private static final int HASH_LENGTH = 32;
+
+    private static final byte LINE = 0, IF = 1, ELSEIF = 2, WHILE = 3, DOWHILE = 4, FOR = 5, FOREACH = 6, PARALLEL = 7, RETURN = 8;
+
+    private Flowc() {
+    }
+
+    /**
+     * @return the SHA-256 hash of the source lines
+     */
+    public static byte[] hash(String[] code) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+            for(String line : code) {
+                digest.update(line.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+
+            return digest.digest();
+        } catch(NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Writes the parsed class. The file is written next to the path and moved over it, so a file which is read at
+     * the same time is either the old or the new one.
+     */
+    public static void write(Class clazz, byte[] hash, Path path) throws IOException {
+        Writer writer = new Writer();
+
+        writer.blocks(clazz.getSubBlocks());
+        writer.out.writeInt(clazz.getMethods().size());
+
+        for(Method method : clazz.getMethods()) {
+            writer.string(method.getName());
+            writer.out.writeByte(method.getReturnType().ordinal());
+            writer.out.writeInt(method.paramNames.length);
+
+            for(int i = 0; i < method.paramNames.length; i++) {
+                writer.out.writeByte(method.paramTypes[i].ordinal());
+                writer.string(method.paramNames[i]);
+            }
+
+            writer.blocks(method.getSubBlocks());
+        }
+
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(file);
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.write(hash);
+        out.writeInt(writer.strings.size());
+
+        for(String string : writer.strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        writer.tree.writeTo(out);
+        out.flush();
+
+        Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), "flowc", ".tmp");
+
+        try {
+            Files.write(temp, file.toByteArray());
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Maps the file into memory and builds the class from it.
+     *
+     * @param hash the hash the source must have, or <code>null</code> for any source
+     * @throws InvalidCodeException if the file is no <code>.flowc</code> file of this version or of the source, or the
+     *                              program can not be resolved
+     */
+    public static Class read(Path path, byte[] hash) throws IOException, InvalidCodeException {
+        ByteBuffer buffer;
+        Reader reader;
+
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try {
+            if(buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new InvalidCodeException(path + " is no .flowc file of version " + VERSION + ".");
+            }
+
+            byte[] stored = new byte[HASH_LENGTH];
+            buffer.get(stored);
+
+            if(hash != null && !Arrays.equals(hash, stored)) {
+                throw new InvalidCodeException(path + " was compiled from other source.");
+            }
+
+            reader = new Reader(buffer);
+            reader.read();
+        } catch(BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException | IllegalStateException e) {
+            throw new InvalidCodeException(path + " is damaged.");
+        }
+
+        reader.clazz.link(reader.globals, reader.methods);
+        return reader.clazz;
+    }
+
+    private static class Writer {
+
+        private final List<String> strings = new ArrayList<>();
+        private final Map<String, Integer> indices = new HashMap<>();
+
+        private final ByteArrayOutputStream tree = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(tree);
+
+        private void string(String string) throws IOException {
+            if(string == null) {
+                out.writeInt(-1);
+                return;
+            }
+
+            Integer index = indices.get(string);
+
+            if(index == null) {
+                indices.put(string, index = strings.size());
+                strings.add(string);
+            }
+
+            out.writeInt(index);
+        }
+
+        private void blocks(Block[] blocks) throws IOException {
+            out.writeInt(blocks.length);
+
+            for(Block block : blocks) {
+                block(block);
+            }
+        }
+
+        private void block(Block block) throws IOException {
+            if(block instanceof Line) {
+                Line line = (Line) block;
+
+                out.writeByte(LINE);
+                string(line.line);
+                string(line.function);
+                out.writeInt(line.args.length);
+
+                for(Argument arg : line.args) {
+                    argument(arg);
+                }
+
+                string(line.receiver);
+                return;
+            } else if(block instanceof Return) {
+                out.writeByte(RETURN);
+                argument(((Return) block).getValue());
+                return;
+            } else if(block instanceof If) {
+                If node = (If) block;
+
+                out.writeByte(IF);
+                condition(node);
+                out.writeInt(node.getElseIfs().size());
+
+                for(ElseIf elseIf : node.getElseIfs()) {
+                    condition(elseIf);
+                    blocks(elseIf.getSubBlocks());
+                }
+
+                out.writeBoolean(node.getElse() != null);
+
+                if(node.getElse() != null) {
+                    blocks(node.getElse().getSubBlocks());
+                }
+            } else if(block instanceof While || block instanceof DoWhile) {
+                out.writeByte(block instanceof While ? WHILE : DOWHILE);
+                condition((ConditionalBlock) block);
+            } else if(block instanceof For) {
+                out.writeByte(FOR);
+                argument(((For) block).lower);
+                argument(((For) block).upper);
+            } else if(block instanceof Foreach) {
+                out.writeByte(FOREACH);
+                string(((Foreach) block).varName);
+                string(((Foreach) block).arrayName);
+            } else if(block instanceof ParallelForeach) {
+                out.writeByte(PARALLEL);
+                string(((ParallelForeach) block).varName);
+                string(((ParallelForeach) block).arrayName);
+            } else {
+                throw new IllegalStateException("Can not precompile " + block + ".");
+            }
+
+            blocks(block.getSubBlocks());
+        }
+
+        private void condition(ConditionalBlock block) throws IOException {
+            argument(block.aVal);
+            out.writeByte(block.compareOp.ordinal());
+            argument(block.bVal);
+        }
+
+        private void argument(Argument argument) throws IOException {
+            string(argument.text);
+            out.writeInt(argument.types.length);
+
+            for(int i = 0; i < argument.types.length; i++) {
+                out.writeByte(argument.types[i].ordinal());
+                string(argument.values[i]);
+            }
+        }
+
+    }
+
+    private static class Reader {
+
+        private static final TokenType[] TOKEN_TYPES = TokenType.values();
+        private static final Variable.VariableType[] VARIABLE_TYPES = Variable.VariableType.values();
+        private static final ConditionalBlock.CompareOperation[] OPERATIONS = ConditionalBlock.CompareOperation.values();
+
+        private final ByteBuffer in;
+        private final String[] strings;
+
+        private final Class clazz = new Class(new String[0]);
+        private final List<Method> methods = new ArrayList<>();
+        private Block[] globals;
+
+        private Reader(ByteBuffer in) {
+            this.in = in;
+            this.strings = new String[in.getInt()];
+
+            for(int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[in.getInt()];
+                in.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+        }
+
+        private void read() {
+            globals = blocks(clazz);
+
+            int count = in.getInt();
+
+            for(int i = 0; i < count; i++) {
+                String name = string();
+                Variable.VariableType returnType = VARIABLE_TYPES[in.get()];
+                Variable.VariableType[] paramTypes = new Variable.VariableType[in.getInt()];
+                String[] paramNames = new String[paramTypes.length];
+
+                for(int j = 0; j < paramTypes.length; j++) {
+                    paramTypes[j] = VARIABLE_TYPES[in.get()];
+                    paramNames[j] = string();
+                }
+
+                Method method = new Method(clazz, name, returnType, paramTypes, paramNames);
+                method.setSubBlocks(blocks(method));
+                methods.add(method);
+            }
+        }
+
+        private String string() {
+            int index = in.getInt();
+
+            return index == -1 ? null : strings[index];
+        }
+
+        private Block[] blocks(Block parent) {
+            Block[] blocks = new Block[in.getInt()];
+
+            for(int i = 0; i < blocks.length; i++) {
+                blocks[i] = block(parent);
+            }
+
+            return blocks;
+        }
+
+        private Block block(Block parent) {
+            Block block;
+
+            switch(in.get()) {
+                case LINE: {
+                    String line = string(), function = string();
+                    Argument[] args = new Argument[in.getInt()];
+
+                    for(int i = 0; i < args.length; i++) {
+                        args[i] = argument();
+                    }
+
+                    String receiver = string();
+                    return new Line(parent, line, function, args, receiver);
+                }
+                case RETURN:
+                    return new Return(parent, argument());
+                case IF: {
+                    If node = (If) conditional(IF, parent);
+                    int elseIfs = in.getInt();
+
+                    for(int i = 0; i < elseIfs; i++) {
+                        ElseIf elseIf = (ElseIf) conditional(ELSEIF, parent);
+                        elseIf.setSubBlocks(blocks(elseIf));
+                        node.addElseIf(elseIf);
+                    }
+
+                    if(in.get() != 0) {
+                        Else elze = new Else(parent);
+                        elze.setSubBlocks(blocks(elze));
+                        node.setElse(elze);
+                    }
+
+                    block = node;
+                    break;
+                }
+                case WHILE:
+                    block = conditional(WHILE, parent);
+                    break;
+                case DOWHILE:
+                    block = conditional(DOWHILE, parent);
+                    break;
+                case FOR: {
+                    Argument lower = argument();
+                    block = new For(parent, lower, argument());
+                    break;
+                }
+                case FOREACH: {
+                    String varName = string();
+                    block = new Foreach(parent, varName, string());
+                    break;
+                }
+                case PARALLEL: {
+                    String varName = string();
+                    block = new ParallelForeach(parent, varName, string());
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("Invalid node.");
+            }
+
+            block.setSubBlocks(blocks(block));
+            return block;
+        }
+
+        private ConditionalBlock conditional(byte kind, Block parent) {
+            Argument a = argument();
+            ConditionalBlock.CompareOperation op = OPERATIONS[in.get()];
+            Argument b = argument();
+
+            switch(kind) {
+                case IF:
+                    return new If(parent, a, b, op);
+                case ELSEIF:
+                    return new ElseIf(parent, a, b, op);
+                case WHILE:
+                    return new While(parent, a, b, op);
+                default:
+                    return new DoWhile(parent, a, b, op);
+            }
+        }
+
+        private Argument argument() {
+            String text = string();
+            TokenType[] types = new TokenType[in.getInt()];
+            String[] values = new String[types.length];
+
+            for(int i = 0; i < types.length; i++) {
+                types[i] = TOKEN_TYPES[in.get()];
+                values[i] = string();
+            }
+
+            return new Argument(text, types, values);
+        }
+
+    }
+
+}
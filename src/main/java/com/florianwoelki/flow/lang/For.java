@@ -1,6 +1,5 @@
 package com.florianwoelki.flow.lang;
 
-import com.florianwoelki.flow.FlowLang;
 import com.florianwoelki.flow.exception.InvalidCodeException;
 
 /**
@@ -8,9 +7,9 @@ import com.florianwoelki.flow.exception.InvalidCodeException;
  */
 public class For extends Block {
 
-    private final String lower, upper;
+    final Argument lower, upper;
 
-    public For(Block superBlock, String lower, String upper) {
+    public For(Block superBlock, Argument lower, Argument upper) {
         super(superBlock);
 
         this.lower = lower;
@@ -18,25 +17,87 @@ public class For extends Block {
     }
 
     @Override
-    protected void runAfterParse() throws InvalidCodeException {
+    public void resolve(Scope scope) throws InvalidCodeException {
+        lower.resolve(scope);
+        upper.resolve(scope);
+        checkBound(lower);
+        checkBound(upper);
+
+        super.resolve(scope);
+    }
+
+    /**
+     * Converts a literal bound once, so it is not parsed whenever the loop starts.
+     */
+    private static void checkBound(Argument bound) throws InvalidCodeException {
+        if(bound.isLiteral()) {
+            try {
+                bound.check(Variable.VariableType.DECIMAL);
+            } catch(InvalidCodeException e) {
+                throw new InvalidCodeException("Attempted to use for loop with non-number bounds.");
+            }
+        }
+    }
+
+    @Override
+    protected void runAfterParse(Frame frame) throws InvalidCodeException {
+        double[] bounds = bounds(frame);
+        Variable counter = getCounter(frame);
+
+        for(double i = bounds[0]; i < bounds[1]; i++) {
+            count(counter, i);
+            doBlocks(frame);
+
+            if(frame.hasReturned()) {
+                break;
+            }
+
+            frame.step();
+        }
+    }
+
+    /**
+     * @return the smaller and the larger bound, the loop counts from the smaller up to the larger one
+     */
+    public double[] bounds(Frame frame) throws InvalidCodeException {
         double a, b;
 
         try {
-            a = Double.valueOf(FlowLang.implode(lower, this));
-            b = Double.valueOf(FlowLang.implode(upper, this));
-        } catch(Exception e) {
+            a = lower.evaluateDecimal(frame);
+            b = upper.evaluateDecimal(frame);
+        } catch(InvalidCodeException e) {
             throw new InvalidCodeException("Attempted to use for loop with non-number bounds.");
         }
 
-        double larger = Math.max(a, b), smaller = Math.min(a, b);
+        return new double[]{Math.min(a, b), Math.max(a, b)};
+    }
 
-        for(double i = smaller; i < larger; i++) {
-            try {
-                getSuperBlock().getVariable(lower).setValue(i);
-            } catch(Exception ignored) {
-            }
+    /**
+     * @return the variable of the lower bound which holds the current count, or <code>null</code> if the lower bound
+     * is not a variable
+     */
+    public Variable getCounter(Frame frame) throws InvalidCodeException {
+        Slot slot = getCounterSlot();
+
+        return slot == null ? null : slot.get(frame);
+    }
 
-            doBlocks();
+    /**
+     * @return the slot of the lower bound, or <code>null</code> if it is not a variable
+     */
+    public Slot getCounterSlot() {
+        return lower.getSlot();
+    }
+
+    public void count(Variable counter, double i) throws InvalidCodeException {
+        if(counter != null) {
+            if(counter.getType() == Variable.VariableType.INTEGER) {
+                counter.setInteger((int) i);
+            } else if(counter.getType() == Variable.VariableType.DECIMAL) {
+                counter.setDecimal(i);
+            } else {
+                counter.setValue(i);
+            }
         }
     }
 
@@ -7,7 +7,9 @@ import com.florianwoelki.flow.exception.InvalidCodeException;
  */
 public class Foreach extends Block {
 
-    private final String varName, arrayName;
+    final String varName, arrayName;
+
+    private Slot arraySlot, elementSlot;
 
     public Foreach(Block superBlock, String varName, String arrayName) {
         super(superBlock);
@@ -16,19 +18,70 @@ public class Foreach extends Block {
     }
 
     @Override
-    protected void runAfterParse() throws InvalidCodeException {
-        Variable arrayVar = getSuperBlock().getVariable(arrayName);
+    public void resolve(Scope scope) throws InvalidCodeException {
+        arraySlot = scope.lookup(arrayName);
 
-        if(!arrayVar.isArray()) {
+        if(arraySlot == null) {
+            throw new InvalidCodeException("Variable " + arrayName + " is not declared.");
+        } else if(!arraySlot.isArray() && !arraySlot.isTable()) {
             throw new InvalidCodeException("Attempted to use foreach on non-array.");
         }
 
-        addVariable(arrayVar.getType(), varName, false);
+        Scope body = new Scope(scope);
+        elementSlot = body.declare(varName, arraySlot.isTable() ? arraySlot.getKeyType() : arraySlot.getType(), false);
+        resolveBlocks(body);
+    }
+
+    @Override
+    protected void runAfterParse(Frame frame) throws InvalidCodeException {
+        Variable values = values(frame);
+        Variable variable = declareElement(frame);
+        int length = values.getLength();
+
+        for(int i = 0; i < length; i++) {
+            variable.copyElement(values, i);
+            doBlocks(frame);
 
-        for(Object value : arrayVar.getValues()) {
-            getVariable(varName).setValue(value);
-            doBlocks();
+            if(frame.hasReturned()) {
+                break;
+            }
+
+            frame.step();
         }
     }
 
+    /**
+     * @return a {@link Variable#view() view} of the array or the keys of the map or set, so changes in the body do not
+     * change the loop
+     */
+    public Variable values(Frame frame) throws InvalidCodeException {
+        Variable arrayVar = arraySlot.get(frame);
+
+        if(arraySlot.isTable()) {
+            return arrayVar.getTable().keys(varName);
+        } else if(!arrayVar.isArray()) {
+            throw new InvalidCodeException("Attempted to use foreach on non-array.");
+        }
+
+        return arrayVar.view();
+    }
+
+    public Slot getElementSlot() {
+        return elementSlot;
+    }
+
+    /**
+     * Declares the variable which holds the current element.
+     */
+    public Variable declareElement(Frame frame) throws InvalidCodeException {
+        Variable variable = new Variable(elementSlot.getType(), varName, false, (Object) null);
+        elementSlot.set(frame, variable);
+        return variable;
+    }
+
+    @Override
+    public String toString() {
+        return "Foreach varName=" + varName + " arrayName=" + arrayName;
+    }
+
 }
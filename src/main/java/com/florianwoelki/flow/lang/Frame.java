@@ -0,0 +1,135 @@
+package com.florianwoelki.flow.lang;
+
+import com.florianwoelki.flow.console.Console;
+import com.florianwoelki.flow.exception.ExecutionStoppedException;
+
+/**
+ * The variables and the return value of one call of a method, or the global variables of one run of a class.
+ * Variables are read by the slots which were resolved while parsing.
+ */
+public class Frame {
+
+    private final Frame parent;
+    private final Frame global;
+    private final Variable[] variables;
+    private final Console console;
+    private final Governor governor;
+
+    private Object returnValue;
+    private boolean returning;
+
+    /**
+     * Creates the global frame of a run without limits.
+     */
+    public Frame(Console console, int size) {
+        this(console, new Governor(), size);
+    }
+
+    /**
+     * Creates the global frame of a run which is watched by the governor.
+     */
+    public Frame(Console console, Governor governor, int size) {
+        this.parent = null;
+        this.global = this;
+        this.variables = new Variable[size];
+        this.console = console;
+        this.governor = governor;
+    }
+
+    public Frame(Frame parent, int size) {
+        this.parent = parent;
+        this.global = parent.global;
+        this.variables = new Variable[size];
+        this.console = parent.console;
+        this.governor = parent.governor;
+    }
+
+    private Frame(Frame frame) {
+        this.parent = frame.parent;
+        this.global = frame.global;
+        this.variables = frame.variables.clone();
+        this.console = frame.console;
+        this.governor = frame.governor.fork();
+    }
+
+    /**
+     * @return a copy for a worker of a {@link ParallelForeach}, it sees the same variables but declaring one does
+     * not change this frame. It counts its steps on its own until it is {@link #fold() folded}.
+     */
+    Frame fork() {
+        return new Frame(this);
+    }
+
+    /**
+     * Adds the steps of a forked frame to the run.
+     */
+    void fold() {
+        governor.fold();
+    }
+
+    /**
+     * Adds the steps of the forked frames to the run after they are done.
+     */
+    void join() throws ExecutionStoppedException {
+        governor.join();
+    }
+
+    Variable get(int depth, int index) {
+        Frame frame = this;
+
+        for(int i = 0; i < depth; i++) {
+            frame = frame.parent;
+        }
+
+        return frame.variables[index];
+    }
+
+    void set(int depth, int index, Variable variable) {
+        Frame frame = this;
+
+        for(int i = 0; i < depth; i++) {
+            frame = frame.parent;
+        }
+
+        frame.variables[index] = variable;
+    }
+
+    /**
+     * Ends the run of the method of this frame, the remaining blocks are skipped.
+     */
+    public void doReturn(Object value) {
+        returnValue = value;
+        returning = true;
+    }
+
+    boolean hasReturned() {
+        return returning;
+    }
+
+    Object getReturnValue() {
+        return returnValue;
+    }
+
+    /**
+     * Counts a step of the run, see {@link Governor#step()}.
+     */
+    public void step() throws ExecutionStoppedException {
+        governor.step();
+    }
+
+    /**
+     * Counts several steps of the run, see {@link Governor#step(int)}.
+     */
+    public void step(int count) throws ExecutionStoppedException {
+        governor.step(count);
+    }
+
+    public Frame getGlobalFrame() {
+        return global;
+    }
+
+    public Console getConsole() {
+        return console;
+    }
+
+}
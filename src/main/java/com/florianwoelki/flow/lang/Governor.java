@@ -0,0 +1,263 @@
+package com.florianwoelki.flow.lang;
+
+import com.florianwoelki.flow.console.Console;
+import com.florianwoelki.flow.console.OutputType;
+import com.florianwoelki.flow.exception.ExecutionStoppedException;
+import com.florianwoelki.flow.exception.InvalidCodeException;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Watches one run of a program and stops it when it goes over its limits or when {@link #stop()} is called from
+ * another thread. Every statement and every turn of a loop is a step. A step only increments a counter, the clock
+ * and the interrupt flag of the thread are checked every {@value #CHECK_INTERVAL} steps.
+ * <p>
+ * A program which has run for a time slice of {@value #SLICE_MILLIS} ms yields its thread at the next check. On a
+ * virtual thread the other programs on the same carrier thread run in between, so a program which only computes can
+ * not hold its carrier thread. The time spent yielded and waiting for input is {@link #getWaitTime() counted}, so the
+ * time a program ran can be told apart from the time it waited where the CPU time of its thread can not be measured.
+ * <p>
+ * The workers of a {@link ParallelForeach} count on their own governor from {@link #fork()}, which adds its steps to
+ * the run at every check.
+ */
+public class Governor {
+
+    public static final long UNLIMITED = Long.MAX_VALUE;
+
+    private static final int CHECK_INTERVAL = 1024;
+    private static final int SLICE_MILLIS = 10;
+
+    private final long maxSteps;
+    private final long maxNanos;
+    private final long maxOutput;
+
+    /**
+     * The governor of the run, this one unless it is a worker's.
+     */
+    private final Governor root;
+
+    /**
+     * The steps which the workers added to the run and which are not in {@link #steps} yet.
+     */
+    private final AtomicLong forked;
+
+    /**
+     * The characters written so far, the workers of a parallel foreach write at the same time.
+     */
+    private final AtomicLong output = new AtomicLong();
+
+    private long steps, folded;
+    private long deadline, slice;
+    private long waited;
+
+    private volatile String stopReason;
+
+    /**
+     * Creates a governor without limits, the run can still be stopped.
+     */
+    public Governor() {
+        this(UNLIMITED, UNLIMITED, UNLIMITED);
+    }
+
+    /**
+     * @param maxSteps  the number of statements and loop turns
+     * @param maxMillis the time the program may run
+     * @param maxOutput the number of characters the program may write
+     */
+    public Governor(long maxSteps, long maxMillis, long maxOutput) {
+        this.maxSteps = maxSteps;
+        this.maxNanos = maxMillis == UNLIMITED ? UNLIMITED : maxMillis * 1000000;
+        this.maxOutput = maxOutput;
+        this.root = this;
+        this.forked = new AtomicLong();
+    }
+
+    private Governor(Governor root) {
+        this.maxSteps = root.maxSteps;
+        this.maxNanos = root.maxNanos;
+        this.maxOutput = root.maxOutput;
+        this.root = root;
+        this.forked = null;
+        this.deadline = root.deadline;
+        this.slice = System.nanoTime() + SLICE_MILLIS * 1000000L;
+    }
+
+    /**
+     * Starts the clock and watches the output on the console. A governor can be used for one run after another, the
+     * counters and the stop of the last run are reset.
+     *
+     * @return the console the program has to write to
+     */
+    Console start(Console console) {
+        long now = System.nanoTime();
+
+        steps = 0;
+        folded = 0;
+        forked.set(0);
+        output.set(0);
+        waited = 0;
+        stopReason = null;
+        deadline = maxNanos == UNLIMITED ? UNLIMITED : now + maxNanos;
+        slice = now + SLICE_MILLIS * 1000000L;
+
+        return new Watched(console);
+    }
+
+    public void step() throws ExecutionStoppedException {
+        if(++steps > maxSteps) {
+            throw stepLimit();
+        } else if(root.stopReason != null) {
+            throw new ExecutionStoppedException(root.stopReason);
+        } else if((steps & (CHECK_INTERVAL - 1)) == 0) {
+            check();
+        }
+    }
+
+    /**
+     * Counts several steps at once, like as many calls of {@link #step()}.
+     */
+    public void step(int count) throws ExecutionStoppedException {
+        long before = steps;
+        steps += count;
+
+        if(steps > maxSteps) {
+            throw stepLimit();
+        } else if(root.stopReason != null) {
+            throw new ExecutionStoppedException(root.stopReason);
+        } else if(((before ^ steps) & ~(CHECK_INTERVAL - 1)) != 0) {
+            check();
+        }
+    }
+
+    private void check() throws ExecutionStoppedException {
+        long now = System.nanoTime();
+
+        if(root != this && fold() > maxSteps) {
+            throw stepLimit();
+        } else if(deadline != UNLIMITED && now - deadline > 0) {
+            throw new ExecutionStoppedException("Time limit of " + (maxNanos / 1000000) + " ms exceeded.");
+        } else if(Thread.currentThread().isInterrupted()) {
+            throw new ExecutionStoppedException("Cancelled.");
+        } else if(now - slice > 0) {
+            Thread.yield();
+
+            long end = System.nanoTime();
+            slice = end + SLICE_MILLIS * 1000000L;
+
+            // The workers of a parallel foreach yield on their own threads, the run itself keeps going meanwhile.
+            if(root == this) {
+                waited += end - now;
+            }
+        }
+    }
+
+    /**
+     * @return a governor for a worker of this run, which has to be {@link #fold() folded} when the worker is done
+     */
+    Governor fork() {
+        return new Governor(root);
+    }
+
+    /**
+     * Adds the steps of a worker which were not added yet to its run.
+     *
+     * @return the steps of the run so far
+     */
+    long fold() {
+        // The thread of the run waits for its workers, so its own steps do not change meanwhile.
+        long total = root.steps + root.forked.addAndGet(steps - folded);
+        folded = steps;
+        return total;
+    }
+
+    /**
+     * Adds the steps of the workers to the run after they are done. Workers of a worker fold into the run directly.
+     */
+    void join() throws ExecutionStoppedException {
+        if(root != this) {
+            return;
+        }
+
+        steps += forked.getAndSet(0);
+
+        if(steps > maxSteps) {
+            throw stepLimit();
+        }
+    }
+
+    private ExecutionStoppedException stepLimit() {
+        return new ExecutionStoppedException("Step limit of " + maxSteps + " exceeded.");
+    }
+
+    /**
+     * Stops the program at its next step. This can be called from any thread.
+     */
+    public void stop() {
+        stop("Cancelled.");
+    }
+
+    private void stop(String reason) {
+        if(root.stopReason == null) {
+            root.stopReason = reason;
+        }
+    }
+
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * @return the time in nanoseconds the run spent yielded to other programs or waiting for input
+     */
+    public long getWaitTime() {
+        return waited;
+    }
+
+    /**
+     * Cuts the output at the limit and stops the program at its next step, and counts the time spent waiting for input.
+     */
+    private class Watched implements Console {
+
+        private final Console console;
+
+        private Watched(Console console) {
+            this.console = console;
+        }
+
+        @Override
+        public void write(OutputType outputType, String text) {
+            if(maxOutput == UNLIMITED) {
+                console.write(outputType, text);
+                return;
+            }
+
+            // Every writer takes its characters from the counter first, so writers together stay within the limit.
+            long over = output.addAndGet(text.length()) - maxOutput;
+
+            if(over > 0) {
+                text = text.substring(0, (int) Math.max(text.length() - over, 0));
+                stop("Output limit of " + maxOutput + " characters exceeded.");
+            }
+
+            console.write(outputType, text);
+        }
+
+        @Override
+        public String prompt() throws InvalidCodeException {
+            long start = System.nanoTime();
+
+            try {
+                return console.prompt();
+            } finally {
+                waited += System.nanoTime() - start;
+            }
+        }
+
+        @Override
+        public void clear() {
+            console.clear();
+        }
+
+    }
+
+}
@@ -1,9 +1,9 @@
 package com.florianwoelki.flow.lang;
 
-import com.florianwoelki.flow.FlowLang;
 import com.florianwoelki.flow.exception.InvalidCodeException;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -14,71 +14,41 @@ public class If extends ConditionalBlock {
     private final List<ElseIf> elseIfs;
     private Else elze;
 
-    public If(Block superBlock, String aVal, String bVal, CompareOperation compareOp) {
+    public If(Block superBlock, Argument aVal, Argument bVal, CompareOperation compareOp) {
         super(superBlock, aVal, bVal, compareOp);
 
         this.elseIfs = new ArrayList<>();
     }
 
     @Override
-    public void runAfterParse() throws InvalidCodeException {
-        boolean opSuccess = false;
+    public void resolve(Scope scope) throws InvalidCodeException {
+        super.resolve(scope);
 
-        if(compareOp == CompareOperation.EQUALS) {
-            if(FlowLang.implode(aVal, this).equals(FlowLang.implode(bVal, this))) {
-                doBlocks();
-                opSuccess = true;
-            }
-        } else if(compareOp == CompareOperation.NOTEQUALS) {
-            if(!FlowLang.implode(aVal, this).equals(FlowLang.implode(bVal, this))) {
-                doBlocks();
-                opSuccess = true;
-            }
-        } else if(compareOp == CompareOperation.GREATERTHAN) {
-            int a, b;
-
-            try {
-                a = Integer.parseInt(FlowLang.implode(aVal, this));
-                b = Integer.parseInt(FlowLang.implode(bVal, this));
-            } catch(Exception e) {
-                throw new InvalidCodeException("Attempted to use " + compareOp.name().toLowerCase() + " on non-integers");
-            }
-
-            if(a > b) {
-                doBlocks();
-                opSuccess = true;
-            }
-        } else if(compareOp == CompareOperation.LESSTHAN) {
-            int a, b;
-
-            try {
-                a = Integer.parseInt(FlowLang.implode(aVal, this));
-                b = Integer.parseInt(FlowLang.implode(bVal, this));
-            } catch(Exception e) {
-                throw new InvalidCodeException("Attempted to use " + compareOp.name().toLowerCase() + " on non-integers");
-            }
+        for(ElseIf elseIf : elseIfs) {
+            elseIf.resolve(scope);
+        }
 
-            if(a < b) {
-                doBlocks();
-                opSuccess = true;
-            }
+        if(elze != null) {
+            elze.resolve(scope);
         }
+    }
 
-        if(!opSuccess) {
-            boolean elseIfRan = false;
+    @Override
+    public void runAfterParse(Frame frame) throws InvalidCodeException {
+        if(test(frame)) {
+            doBlocks(frame);
+            return;
+        }
 
-            for(ElseIf elseIf : elseIfs) {
-                elseIf.run();
-                if(elseIf.runElseIf()) {
-                    elseIfRan = true;
-                    break;
-                }
+        for(ElseIf elseIf : elseIfs) {
+            if(elseIf.test(frame)) {
+                elseIf.doBlocks(frame);
+                return;
             }
+        }
 
-            if(!elseIfRan && elze != null) {
-                elze.run();
-                elze.doBlocks();
-            }
+        if(elze != null) {
+            elze.run(frame);
         }
     }
 
@@ -87,7 +57,15 @@ public class If extends ConditionalBlock {
     }
 
     public void setElse(Else elze) {
-        elze = elze;
+        this.elze = elze;
+    }
+
+    public List<ElseIf> getElseIfs() {
+        return Collections.unmodifiableList(elseIfs);
+    }
+
+    public Else getElse() {
+        return elze;
     }
 
     @Override
@@ -1,22 +1,107 @@
 package com.florianwoelki.flow.lang;
 
 import com.florianwoelki.flow.exception.InvalidCodeException;
+import com.florianwoelki.flow.function.CallSite;
+import com.florianwoelki.flow.lexer.Lexer;
+import com.florianwoelki.flow.lexer.TokenType;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Created by Florian Woelki on 08.11.16.
  */
 public class Line extends Block {
 
-    private final String line;
+    final String line;
+
+    final String function;
+    final Argument[] args;
+    final String receiver;
 
-    public Line(Block superBlock, String line) {
+    private Slot receiverSlot;
+    private CallSite callSite;
+
+    /*
+    Parses a function call: <function>([argument], ...) [receiver]
+     */
+    public Line(Block superBlock, String line) throws InvalidCodeException {
         super(superBlock);
 
         this.line = line;
+
+        Lexer lexer = new Lexer(line);
+
+        if(lexer.next() != TokenType.IDENTIFIER) {
+            throw new InvalidCodeException("Invalid statement " + line + ".");
+        }
+
+        this.function = lexer.getText().intern();
+
+        if(lexer.next() != TokenType.LPAREN) {
+            throw new InvalidCodeException("Missing ( after " + function + ".");
+        }
+
+        List<Argument> args = new ArrayList<>();
+
+        lexer.next();
+
+        while(lexer.getType() != TokenType.RPAREN) {
+            args.add(Argument.read(lexer, false));
+
+            if(lexer.getType() == TokenType.COMMA) {
+                lexer.next();
+            } else if(lexer.getType() != TokenType.RPAREN) {
+                throw new InvalidCodeException("Missing ) after arguments of " + function + ".");
+            }
+        }
+
+        this.args = args.toArray(new Argument[args.size()]);
+
+        if(lexer.next() == TokenType.IDENTIFIER) {
+            this.receiver = lexer.getText();
+            lexer.next();
+        } else {
+            this.receiver = null;
+        }
+
+        if(lexer.getType() != TokenType.EOF) {
+            throw new InvalidCodeException("Unexpected " + lexer.getText() + " after call of " + function + ".");
+        }
+    }
+
+    /**
+     * Creates the call of a precompiled program, see {@link Flowc}.
+     */
+    Line(Block superBlock, String line, String function, Argument[] args, String receiver) {
+        super(superBlock);
+
+        this.line = line;
+        this.function = function.intern();
+        this.args = args;
+        this.receiver = receiver;
+    }
+
+    @Override
+    public void resolve(Scope scope) throws InvalidCodeException {
+        if(receiver != null) {
+            receiverSlot = scope.lookup(receiver);
+
+            if(receiverSlot == null) {
+                throw new InvalidCodeException("Variable " + receiver + " is not declared.");
+            }
+        }
+
+        callSite = getClassBlock().functionManager.bind(scope, function, args, receiverSlot);
+    }
+
+    @Override
+    public void runAfterParse(Frame frame) throws InvalidCodeException {
+        callSite.call(frame);
     }
 
-    public void runAfterParse() throws InvalidCodeException {
-        ((Class) getBlockTree()[0]).functionManager.parse(getSuperBlock(), line);
+    public CallSite getCallSite() {
+        return callSite;
     }
 
     @Override
@@ -1,6 +1,6 @@
 package com.florianwoelki.flow.lang;
 
-import com.florianwoelki.flow.FlowLang;
+import com.florianwoelki.flow.compiler.CompiledMethod;
 import com.florianwoelki.flow.exception.InvalidCodeException;
 
 /**
@@ -10,50 +10,115 @@ public class Method extends Block {
 
     private final String name;
     private final Variable.VariableType returnType;
-    private final String[] params;
+    final Variable.VariableType[] paramTypes;
+    final String[] paramNames;
 
-    private Object returnValue;
+    private Slot[] paramSlots;
+    private int frameSize;
 
-    public Method(Block superBlock, String name, Variable.VariableType returnType, String[] params) {
-        super(superBlock);
-
-        registerCustomLineHandler(new CustomLineHandler("return") {
-            public boolean run(String line, Block sB) throws InvalidCodeException {
-                if(getReturnType() == Variable.VariableType.VOID) {
-                    return true;
-                }
+    private CompiledMethod compiled;
 
-                getReturnType().validateValue(line.split(" ")[1], sB);
-                returnValue = FlowLang.implode(line.split(" ")[1], sB);
-                return true;
-            }
-        });
+    public Method(Block superBlock, String name, Variable.VariableType returnType, Variable.VariableType[] paramTypes, String[] paramNames) {
+        super(superBlock);
 
         this.name = name;
         this.returnType = returnType;
-        this.params = params;
+        this.paramTypes = paramTypes;
+        this.paramNames = paramNames;
+    }
+
+    /**
+     * Resolves the parameters and the body of this method. The method gets its own frame below the global frame.
+     */
+    @Override
+    public void resolve(Scope scope) throws InvalidCodeException {
+        Scope local = new Scope(scope, true);
+
+        paramSlots = new Slot[paramNames.length];
+
+        for(int i = 0; i < paramNames.length; i++) {
+            paramSlots[i] = local.declare(paramNames[i], paramTypes[i], false);
+        }
+
+        resolveBlocks(local);
+
+        frameSize = local.getFrameSize();
     }
 
-    public synchronized Object invoke(Object[] invokeParams) throws InvalidCodeException {
-        for(int i = 0; i < params.length; i++) {
-            String[] args = params[i].split(":");
-            addVariable(Variable.VariableType.match(args[0]), args[1], invokeParams[i]);
+    /**
+     * Runs the method in a new frame, so it can call itself and run on many threads at the same time. The frame is
+     * dropped when the method returns.
+     */
+    public Object invoke(Frame caller, Object[] invokeParams) throws InvalidCodeException {
+        Frame frame = enter(caller, invokeParams);
+
+        if(compiled != null) {
+            compiled.execute(frame);
+        } else {
+            doBlocks(frame);
         }
 
-        run();
-        doBlocks();
+        return leave(frame);
+    }
+
+    /**
+     * Creates the frame of a call with the parameters declared in it.
+     */
+    public Frame enter(Frame caller, Object[] invokeParams) throws InvalidCodeException {
+        Frame frame = new Frame(caller.getGlobalFrame(), frameSize);
+
+        for(int i = 0; i < paramNames.length; i++) {
+            paramSlots[i].set(frame, new Variable(paramTypes[i], paramNames[i], false, invokeParams[i]));
+        }
 
-        if(getReturnType() != Variable.VariableType.VOID && returnValue == null) {
+        return frame;
+    }
+
+    /**
+     * Ends a call whose body ran in the frame.
+     *
+     * @return the return value, <code>null</code> for void methods
+     */
+    public Object leave(Frame frame) throws InvalidCodeException {
+        if(getReturnType() != Variable.VariableType.VOID && !frame.hasReturned()) {
             throw new InvalidCodeException("No return for method " + getName());
         }
 
-        Object localReturnValue = returnValue;
-        returnValue = null;
-        return localReturnValue;
+        return frame.getReturnValue();
+    }
+
+    /**
+     * Checks a call of this method while resolving: the number of arguments, their types and the variable which
+     * receives the result.
+     */
+    public void checkCall(Argument[] args, Slot receiver) throws InvalidCodeException {
+        if(args.length != paramTypes.length) {
+            throw new InvalidCodeException("Method " + name + " takes " + paramTypes.length + " arguments but got " + args.length + ".");
+        }
+
+        for(int i = 0; i < args.length; i++) {
+            args[i].check(paramTypes[i]);
+        }
+
+        if(receiver != null) {
+            if(returnType == Variable.VariableType.VOID) {
+                throw new InvalidCodeException("Attempted to store result of void method to variable.");
+            }
+
+            receiver.getType().check(returnType, "result of " + name);
+        }
     }
 
     @Override
-    protected void runAfterParse() throws InvalidCodeException {
+    protected void runAfterParse(Frame frame) throws InvalidCodeException {
+    }
+
+    public CompiledMethod getCompiled() {
+        return compiled;
+    }
+
+    public void setCompiled(CompiledMethod compiled) {
+        this.compiled = compiled;
     }
 
     public String getName() {
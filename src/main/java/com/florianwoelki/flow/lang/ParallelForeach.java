@@ -0,0 +1,496 @@
+package com.florianwoelki.flow.lang;
+
+import com.florianwoelki.flow.exception.ExecutionStoppedException;
+import com.florianwoelki.flow.exception.InvalidCodeException;
+import com.florianwoelki.flow.expression.Binary;
+import com.florianwoelki.flow.expression.Element;
+import com.florianwoelki.flow.expression.Expression;
+import com.florianwoelki.flow.expression.Negate;
+import com.florianwoelki.flow.expression.Reference;
+import com.florianwoelki.flow.function.CallSite;
+import com.florianwoelki.flow.function.Math;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * <code>parallel foreach &lt;variable&gt; &lt;array&gt;</code> splits the array into parts which run on the common
+ * {@link ForkJoinPool}. Every worker runs on a copy of the frame, so it has its own element and its own variables
+ * declared in the body.
+ * <p>
+ * The body may not change the variables of the method outside of the loop, this is checked while resolving. The only
+ * exception is a sum: <code>math(total + &lt;expression&gt;) total</code> adds to a worker's own total, which
+ * starts at zero, and the totals are added to the variable after the loop. The parts are always added in the same
+ * order, so decimal sums do not depend on the scheduling. A sum can not be read anywhere else in the body. Output of
+ * the body is written in the order the workers get to it. Methods which are called in the body must not change
+ * global variables, also not through the methods they call. This is checked by {@link #checkCalls(Block)} once every
+ * method of the class is resolved.
+ */
+public class ParallelForeach extends Block {
+
+    final String varName, arrayName;
+
+    private Slot arraySlot, elementSlot;
+
+    /**
+     * The integer and decimal variables outside of the loop which the body sums up.
+     */
+    private Slot[] sums;
+
+    public ParallelForeach(Block superBlock, String varName, String arrayName) {
+        super(superBlock);
+        this.varName = varName;
+        this.arrayName = arrayName;
+    }
+
+    @Override
+    public void resolve(Scope scope) throws InvalidCodeException {
+        arraySlot = scope.lookup(arrayName);
+
+        if(arraySlot == null) {
+            throw new InvalidCodeException("Variable " + arrayName + " is not declared.");
+        } else if(!arraySlot.isArray() && !arraySlot.isTable()) {
+            throw new InvalidCodeException("Attempted to use parallel foreach on non-array.");
+        }
+
+        // Variables which are declared from here on get the next slots, so every slot below is outside of the loop.
+        int outside = scope.getFrameSize();
+
+        Scope body = new Scope(scope);
+        elementSlot = body.declare(varName, arraySlot.isTable() ? arraySlot.getKeyType() : arraySlot.getType(), false);
+        resolveBlocks(body);
+
+        List<Slot> sums = new ArrayList<>();
+        checkWrites(this, outside, sums);
+        this.sums = sums.toArray(new Slot[sums.size()]);
+
+        if(this.sums.length > 0) {
+            checkReads(this);
+        }
+    }
+
+    private void checkWrites(Block block, int outside, List<Slot> sums) throws InvalidCodeException {
+        for(Block node : block.getSubBlocks()) {
+            if(node instanceof Return) {
+                throw new InvalidCodeException("Attempted to return from parallel foreach.");
+            } else if(node instanceof Line) {
+                checkWrite(((Line) node).getCallSite(), outside, sums);
+            } else if(node instanceof For) {
+                checkWrite(((For) node).getCounterSlot(), outside);
+            } else if(node instanceof If) {
+                for(ElseIf elseIf : ((If) node).getElseIfs()) {
+                    checkWrites(elseIf, outside, sums);
+                }
+
+                if(((If) node).getElse() != null) {
+                    checkWrites(((If) node).getElse(), outside, sums);
+                }
+            }
+
+            checkWrites(node, outside, sums);
+        }
+    }
+
+    private void checkWrite(CallSite callSite, int outside, List<Slot> sums) throws InvalidCodeException {
+        Slot target = callSite.getReceiver();
+
+        if(callSite.getFunction() instanceof Math) {
+            if(target == null) {
+                target = callSite.getArguments()[0].getSlot();
+            }
+
+            if(isOutside(target, outside) && isSum(target, callSite.getArguments()[0].getExpression())) {
+                for(Slot sum : sums) {
+                    if(sum.getIndex() == target.getIndex()) {
+                        return;
+                    }
+                }
+
+                sums.add(target);
+                return;
+            }
+        }
+
+        checkWrite(target, outside);
+    }
+
+    private void checkWrite(Slot slot, int outside) throws InvalidCodeException {
+        if(slot != null && isOutside(slot, outside)) {
+            throw new InvalidCodeException("Attempted to change " + slot.getName() + " in parallel foreach.");
+        }
+    }
+
+    /**
+     * Checks the methods which the body of every parallel foreach in the block calls, see above. The call sites of a
+     * method are only bound after it is resolved, so this runs after all methods are.
+     */
+    static void checkCalls(Block block) throws InvalidCodeException {
+        for(Block node : children(block)) {
+            if(node instanceof ParallelForeach) {
+                checkCalls(node, new HashSet<Method>(), null);
+            }
+
+            checkCalls(node);
+        }
+    }
+
+    /**
+     * @param method the method which the block belongs to, or <code>null</code> for the body of the loop, which is
+     *               checked by {@link #checkWrites(Block, int, List)}
+     */
+    private static void checkCalls(Block block, Set<Method> checked, Method method) throws InvalidCodeException {
+        for(Block node : children(block)) {
+            Slot target = null;
+
+            if(node instanceof Line) {
+                CallSite callSite = ((Line) node).getCallSite();
+                Method called = callSite.getMethod();
+
+                target = callSite.getReceiver();
+
+                if(target == null && callSite.getFunction() instanceof Math) {
+                    target = callSite.getArguments()[0].getSlot();
+                }
+
+                if(called != null && checked.add(called)) {
+                    checkCalls(called, checked, called);
+                }
+            } else if(node instanceof For) {
+                target = ((For) node).getCounterSlot();
+            }
+
+            if(method != null && target != null && target.getDepth() > 0) {
+                throw new InvalidCodeException("Attempted to change global " + target.getName() + " in parallel foreach through method " + method.getName() + ".");
+            }
+
+            checkCalls(node, checked, method);
+        }
+    }
+
+    /*
+    The else ifs and the else of an if are not among its sub blocks.
+     */
+    private static List<Block> children(Block block) {
+        List<Block> children = new ArrayList<>();
+
+        for(Block node : block.getSubBlocks()) {
+            children.add(node);
+
+            if(node instanceof If) {
+                children.addAll(((If) node).getElseIfs());
+
+                if(((If) node).getElse() != null) {
+                    children.add(((If) node).getElse());
+                }
+            }
+        }
+
+        return children;
+    }
+
+    /*
+    A worker only sees its own part of a sum, so the body may only add to it.
+     */
+    private void checkReads(Block block) throws InvalidCodeException {
+        for(Block node : block.getSubBlocks()) {
+            checkRead(node);
+        }
+    }
+
+    private void checkRead(Block node) throws InvalidCodeException {
+        if(node instanceof Line) {
+            CallSite callSite = ((Line) node).getCallSite();
+            Argument[] args = callSite.getArguments();
+            Slot target = callSite.getReceiver() != null ? callSite.getReceiver() : args.length > 0 ? args[0].getSlot() : null;
+
+            if(callSite.getFunction() instanceof Math && isSum(target) && isSum(target, args[0].getExpression())) {
+                checkRead(((Binary) args[0].getExpression()).getRight());
+            } else {
+                for(Argument arg : args) {
+                    checkRead(arg);
+                }
+            }
+        } else if(node instanceof ConditionalBlock) {
+            checkRead(((ConditionalBlock) node).aVal);
+            checkRead(((ConditionalBlock) node).bVal);
+        } else if(node instanceof For) {
+            checkRead(((For) node).lower);
+            checkRead(((For) node).upper);
+        }
+
+        if(node instanceof If) {
+            for(ElseIf elseIf : ((If) node).getElseIfs()) {
+                checkRead(elseIf);
+            }
+
+            if(((If) node).getElse() != null) {
+                checkRead(((If) node).getElse());
+            }
+        }
+
+        checkReads(node);
+    }
+
+    private void checkRead(Argument arg) throws InvalidCodeException {
+        for(Slot sum : sums) {
+            if(arg != null && arg.uses(sum)) {
+                throw sumRead(sum);
+            }
+        }
+    }
+
+    private void checkRead(Expression expression) throws InvalidCodeException {
+        for(Slot sum : sums) {
+            if(reads(expression, sum)) {
+                throw sumRead(sum);
+            }
+        }
+    }
+
+    private boolean isSum(Slot slot) {
+        for(Slot sum : sums) {
+            if(slot != null && isSame(slot, sum)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static InvalidCodeException sumRead(Slot sum) {
+        return new InvalidCodeException("Attempted to read " + sum.getName() + " in parallel foreach, it can only be added to.");
+    }
+
+    private static boolean isOutside(Slot slot, int outside) {
+        return slot.getDepth() > 0 || slot.getIndex() < outside;
+    }
+
+    /*
+    total + <expression without total>
+     */
+    private static boolean isSum(Slot target, Expression expression) {
+        if(target.getDepth() != 0 || !(expression instanceof Binary) || ((Binary) expression).getOperator() != '+') {
+            return false;
+        }
+
+        Expression left = ((Binary) expression).getLeft();
+
+        return left instanceof Reference && isSame(((Reference) left).getSlot(), target) && !reads(((Binary) expression).getRight(), target);
+    }
+
+    private static boolean reads(Expression expression, Slot slot) {
+        if(expression instanceof Reference) {
+            return isSame(((Reference) expression).getSlot(), slot);
+        } else if(expression instanceof Element) {
+            return reads(((Element) expression).getIndex(), slot);
+        } else if(expression instanceof Negate) {
+            return reads(((Negate) expression).getOperand(), slot);
+        } else if(expression instanceof Binary) {
+            return reads(((Binary) expression).getLeft(), slot) || reads(((Binary) expression).getRight(), slot);
+        }
+
+        return false;
+    }
+
+    private static boolean isSame(Slot a, Slot b) {
+        return a.getDepth() == b.getDepth() && a.getIndex() == b.getIndex();
+    }
+
+    @Override
+    protected void runAfterParse(Frame frame) throws InvalidCodeException {
+        Variable arrayVar = arraySlot.get(frame);
+        Variable values;
+
+        if(arraySlot.isTable()) {
+            values = arrayVar.getTable().keys(varName);
+        } else if(!arrayVar.isArray()) {
+            throw new InvalidCodeException("Attempted to use parallel foreach on non-array.");
+        } else {
+            values = arrayVar.view();
+        }
+
+        int length = values.getLength();
+
+        if(length == 0) {
+            return;
+        }
+
+        int parts = ForkJoinPool.getCommonPoolParallelism() * 4;
+        Part part = new Part(frame, values.getType(), values, 0, length, java.lang.Math.max(1, length / parts));
+        ForkJoinTask<double[]> task = ForkJoinPool.commonPool().submit(part);
+        double[] totals;
+
+        try {
+            totals = task.get();
+        } catch(InterruptedException e) {
+            part.stopped = true;
+            Thread.currentThread().interrupt();
+            throw new ExecutionStoppedException("Cancelled.");
+        } catch(ExecutionException e) {
+            // The other workers stop with "Cancelled." once one failed, its error is the one to report.
+            if(part.failure != null) {
+                throw part.failure;
+            }
+
+            for(Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                if(cause instanceof InvalidCodeException) {
+                    throw (InvalidCodeException) cause;
+                }
+            }
+
+            throw new IllegalStateException(e.getCause());
+        }
+
+        frame.join();
+
+        for(int i = 0; i < sums.length; i++) {
+            Variable sum = sums[i].get(frame);
+
+            if(sum.getType() == Variable.VariableType.INTEGER) {
+                sum.setInteger(sum.getInteger() + (int) totals[i]);
+            } else {
+                sum.setDecimal(sum.getDecimal() + totals[i]);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ParallelForeach varName=" + varName + " arrayName=" + arrayName;
+    }
+
+    /**
+     * Runs the body for the values from <code>from</code> to <code>to</code> and returns the totals of the sums.
+     * Integer totals are kept as the wrapped <code>int</code> in a <code>double</code>, so they overflow like the
+     * variable would.
+     */
+    private class Part extends RecursiveTask<double[]> {
+
+        private final Frame frame;
+        private final Variable.VariableType type;
+        private final Variable values;
+        private final int from, to, size;
+
+        private final Part root;
+        private volatile boolean stopped;
+
+        /**
+         * The error of the first worker which failed.
+         */
+        private volatile InvalidCodeException failure;
+
+        private Part(Frame frame, Variable.VariableType type, Variable values, int from, int to, int size) {
+            this(null, frame, type, values, from, to, size);
+        }
+
+        private Part(Part root, Frame frame, Variable.VariableType type, Variable values, int from, int to, int size) {
+            this.root = root == null ? this : root;
+            this.frame = frame;
+            this.type = type;
+            this.values = values;
+            this.from = from;
+            this.to = to;
+            this.size = size;
+        }
+
+        @Override
+        protected double[] compute() {
+            if(to - from > size) {
+                int middle = (from + to) >>> 1;
+                Part left = new Part(root, frame, type, values, from, middle, size);
+                Part right = new Part(root, frame, type, values, middle, to, size);
+
+                right.fork();
+                double[] a;
+
+                try {
+                    a = left.compute();
+                } catch(RuntimeException e) {
+                    // The run may only go on once no worker runs anymore, the others stop at their next element.
+                    right.quietlyJoin();
+                    throw e;
+                }
+
+                double[] b = right.join();
+
+                for(int i = 0; i < a.length; i++) {
+                    a[i] = sums[i].getType() == Variable.VariableType.INTEGER ? (int) a[i] + (int) b[i] : a[i] + b[i];
+                }
+
+                return a;
+            }
+
+            try {
+                return run();
+            } catch(InvalidCodeException e) {
+                root.fail(e);
+                throw new Failure(e);
+            } catch(RuntimeException e) {
+                root.stopped = true;
+                throw e;
+            }
+        }
+
+        private void fail(InvalidCodeException e) {
+            synchronized(this) {
+                if(failure == null) {
+                    failure = e;
+                }
+            }
+
+            stopped = true;
+        }
+
+        private double[] run() throws InvalidCodeException {
+            Frame worker = frame.fork();
+            Variable[] totals = new Variable[sums.length];
+
+            for(int i = 0; i < sums.length; i++) {
+                totals[i] = new Variable(sums[i].getType(), sums[i].getName(), false, null);
+                sums[i].set(worker, totals[i]);
+            }
+
+            Variable element = new Variable(type, varName, false, null);
+            elementSlot.set(worker, element);
+
+            for(int i = from; i < to; i++) {
+                if(root.stopped) {
+                    throw new ExecutionStoppedException("Cancelled.");
+                }
+
+                element.copyElement(values, i);
+                doBlocks(worker);
+                worker.step();
+            }
+
+            worker.fold();
+
+            double[] result = new double[sums.length];
+
+            for(int i = 0; i < sums.length; i++) {
+                result[i] = sums[i].getType() == Variable.VariableType.INTEGER ? totals[i].getInteger() : totals[i].getDecimal();
+            }
+
+            return result;
+        }
+
+    }
+
+    /**
+     * Carries the error of a worker out of the pool.
+     */
+    private static class Failure extends RuntimeException {
+
+        private Failure(InvalidCodeException cause) {
+            super(cause);
+        }
+
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.florianwoelki.flow.lang;
+
+import com.florianwoelki.flow.exception.InvalidCodeException;
+
+/**
+ * A <code>return</code> statement, which ends the method it is in.
+ */
+public class Return extends Block {
+
+    private final Argument value;
+
+    private boolean validate;
+
+    public Return(Block superBlock, Argument value) {
+        super(superBlock);
+
+        this.value = value;
+    }
+
+    @Override
+    public void resolve(Scope scope) throws InvalidCodeException {
+        value.resolve(scope);
+
+        Method method = getMethod();
+
+        if(method.getReturnType() == Variable.VariableType.VOID) {
+            if(!value.isEmpty()) {
+                throw new InvalidCodeException("Attempted to return a value from void method " + method.getName() + ".");
+            }
+        } else if(value.isEmpty()) {
+            throw new InvalidCodeException("Missing return value for method " + method.getName() + ".");
+        } else {
+            validate = value.check(method.getReturnType());
+        }
+    }
+
+    @Override
+    protected void runAfterParse(Frame frame) throws InvalidCodeException {
+        Method method = getMethod();
+
+        if(method.getReturnType() == Variable.VariableType.VOID) {
+            frame.doReturn(null);
+        } else {
+            Object returnValue = value.evaluateValue(frame);
+
+            frame.doReturn(validate ? method.getReturnType().formatValue(returnValue) : returnValue);
+        }
+    }
+
+    public Argument getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "Return value=" + value;
+    }
+
+}
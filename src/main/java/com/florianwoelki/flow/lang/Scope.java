@@ -0,0 +1,107 @@
+package com.florianwoelki.flow.lang;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The variables visible in a block while resolving. Every block has its own scope, but only methods and the class
+ * get their own frame. The variables of nested blocks get the next free slots in the frame of their method.
+ */
+public class Scope {
+
+    private final Scope parent;
+    private final Scope frameScope;
+    private final Map<String, Slot> slots;
+    private final ConstantPool constants;
+
+    private int frameSize;
+
+    public Scope(Scope parent) {
+        this(parent, false);
+    }
+
+    /**
+     * A scope without a parent gets a new constant pool.
+     */
+    public Scope(Scope parent, boolean newFrame) {
+        this(parent, newFrame, parent == null ? new ConstantPool() : parent.constants);
+    }
+
+    /**
+     * Creates the outermost scope of a program which puts its literals into the pool.
+     */
+    Scope(ConstantPool constants) {
+        this(null, true, constants);
+    }
+
+    private Scope(Scope parent, boolean newFrame, ConstantPool constants) {
+        this.parent = parent;
+        this.frameScope = newFrame || parent == null ? this : parent.frameScope;
+        this.slots = new HashMap<>();
+        this.constants = constants;
+    }
+
+    /**
+     * Declares a variable in this scope. Declaring the same name again in the same scope reuses its slot, but the
+     * slot gets the new type.
+     */
+    public Slot declare(String name, Variable.VariableType type, boolean array) {
+        return declare(name, type, array, -1);
+    }
+
+    /**
+     * Declares an array with a fixed size, or without one for the size <code>-1</code>.
+     */
+    public Slot declare(String name, Variable.VariableType type, boolean array, int size) {
+        Slot slot = slots.get(name);
+        Slot declared = new Slot(name, 0, slot == null ? frameScope.frameSize++ : slot.getIndex(), type, array, size);
+
+        slots.put(name, declared);
+        return declared;
+    }
+
+    /**
+     * Declares a map, or a set if there is no value type.
+     */
+    public Slot declare(String name, Variable.VariableType keyType, Variable.VariableType valueType) {
+        Slot slot = slots.get(name);
+        Variable.VariableType type = valueType == null ? Variable.VariableType.SET : Variable.VariableType.MAP;
+        Slot declared = new Slot(name, 0, slot == null ? frameScope.frameSize++ : slot.getIndex(), type, false, -1, keyType, valueType);
+
+        slots.put(name, declared);
+        return declared;
+    }
+
+    /**
+     * @return the slot of the innermost visible variable with the name, or <code>null</code> if there is none
+     */
+    public Slot lookup(String name) {
+        int depth = 0;
+
+        for(Scope scope = this; scope != null; scope = scope.parent) {
+            Slot slot = scope.slots.get(name);
+
+            if(slot != null) {
+                return depth == 0 ? slot : new Slot(name, depth, slot.getIndex(), slot.getType(), slot.isArray(), slot.getSize(), slot.getKeyType(), slot.getValueType());
+            }
+
+            if(scope.frameScope == scope) {
+                depth++;
+            }
+        }
+
+        return null;
+    }
+
+    public ConstantPool getConstants() {
+        return constants;
+    }
+
+    /**
+     * @return the number of slots the frame of this scope needs
+     */
+    public int getFrameSize() {
+        return frameScope.frameSize;
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.florianwoelki.flow.lang;
+
+import com.florianwoelki.flow.exception.InvalidCodeException;
+
+/**
+ * A variable reference which was resolved while parsing. The depth counts how many frames up the variable lives, the
+ * index is its position in that frame. The slot also knows the declared type, so it can be checked before running.
+ */
+public final class Slot {
+
+    private final String name;
+    private final int depth;
+    private final int index;
+
+    private final Variable.VariableType type;
+    private final boolean array;
+
+    /**
+     * The size of an array which was declared with one, or <code>-1</code>.
+     */
+    private final int size;
+
+    /**
+     * The key type and value type of a map or set.
+     */
+    private final Variable.VariableType keyType, valueType;
+
+    Slot(String name, int depth, int index, Variable.VariableType type, boolean array, int size) {
+        this(name, depth, index, type, array, size, null, null);
+    }
+
+    Slot(String name, int depth, int index, Variable.VariableType type, boolean array, int size, Variable.VariableType keyType, Variable.VariableType valueType) {
+        this.name = name;
+        this.depth = depth;
+        this.index = index;
+        this.type = type;
+        this.array = array;
+        this.size = size;
+        this.keyType = keyType;
+        this.valueType = valueType;
+    }
+
+    public Variable get(Frame frame) throws InvalidCodeException {
+        Variable variable = frame.get(depth, index);
+
+        if(variable == null) {
+            throw new InvalidCodeException("Variable " + name + " is not declared.");
+        }
+
+        return variable;
+    }
+
+    /**
+     * @return the variable, or <code>null</code> if it is not declared yet
+     */
+    public Variable find(Frame frame) {
+        return frame.get(depth, index);
+    }
+
+    public void set(Frame frame, Variable variable) {
+        frame.set(depth, index, variable);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the declared type of the variable
+     */
+    public Variable.VariableType getType() {
+        return type;
+    }
+
+    public boolean isArray() {
+        return array;
+    }
+
+    /**
+     * @return the size of an array which was declared with one, like <code>integer[1000]</code>, or <code>-1</code>
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return whether the variable is a map or a set
+     */
+    public boolean isTable() {
+        return keyType != null;
+    }
+
+    public Variable.VariableType getKeyType() {
+        return keyType;
+    }
+
+    /**
+     * @return the value type of a map, <code>null</code> for a set
+     */
+    public Variable.VariableType getValueType() {
+        return valueType;
+    }
+
+    @Override
+    public String toString() {
+        return "Slot name=" + name + " depth=" + depth + " index=" + index + " type=" + type + (array ? "[]" : "") + (keyType != null ? "<" + keyType + (valueType != null ? "," + valueType : "") + ">" : "");
+    }
+
+}
@@ -0,0 +1,359 @@
+package com.florianwoelki.flow.lang;
+
+import com.florianwoelki.flow.exception.InvalidCodeException;
+
+/**
+ * The hash table of a map or a set. Keys are integers or text and are kept in an <code>int[]</code> or a
+ * <code>String[]</code>, the values in a primitive array of their type like the elements of an array, so neither
+ * looking up nor storing boxes anything.
+ * <p>
+ * A key is stored at its hash and, if that position is taken, at the next free one (linear probing). Removed keys
+ * leave a mark, so the keys behind them are still found. The table grows before it is half full.
+ */
+public final class Table {
+
+    private static final byte EMPTY = 0, FULL = 1, REMOVED = 2;
+
+    private final Variable.VariableType keyType, valueType;
+
+    private byte[] states;
+    private int[] integerKeys;
+    private String[] stringKeys;
+
+    private int[] integerValues;
+    private double[] decimalValues;
+    private boolean[] booleanValues;
+    private String[] stringValues;
+
+    /**
+     * The number of keys and the number of positions which are not empty, removed keys included.
+     */
+    private int size, used;
+
+    /**
+     * @param valueType the type of the values, <code>null</code> for a set
+     */
+    Table(Variable.VariableType keyType, Variable.VariableType valueType) {
+        this.keyType = keyType;
+        this.valueType = valueType;
+        allocate(16);
+    }
+
+    private void allocate(int capacity) {
+        states = new byte[capacity];
+
+        if(keyType == Variable.VariableType.INTEGER) {
+            integerKeys = new int[capacity];
+        } else {
+            stringKeys = new String[capacity];
+        }
+
+        if(valueType == null) {
+            return;
+        }
+
+        switch(valueType) {
+            case INTEGER:
+                integerValues = new int[capacity];
+                break;
+            case DECIMAL:
+                decimalValues = new double[capacity];
+                break;
+            case BOOLEAN:
+                booleanValues = new boolean[capacity];
+                break;
+            default:
+                stringValues = new String[capacity];
+        }
+    }
+
+    public Variable.VariableType getKeyType() {
+        return keyType;
+    }
+
+    /**
+     * @return the type of the values, <code>null</code> for a set
+     */
+    public Variable.VariableType getValueType() {
+        return valueType;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the position of the key, or <code>-1</code> if it is not in the table
+     */
+    public int indexOf(int key) {
+        int mask = states.length - 1;
+
+        for(int i = hash(key) & mask; states[i] != EMPTY; i = (i + 1) & mask) {
+            if(states[i] == FULL && integerKeys[i] == key) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return the position of the key, or <code>-1</code> if it is not in the table
+     */
+    public int indexOf(String key) {
+        int mask = states.length - 1;
+
+        for(int i = hash(key.hashCode()) & mask; states[i] != EMPTY; i = (i + 1) & mask) {
+            if(states[i] == FULL && stringKeys[i].equals(key)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Adds the key if it is not in the table yet.
+     *
+     * @return the position of the key
+     */
+    public int add(int key) {
+        int index = indexOf(key);
+
+        if(index != -1) {
+            return index;
+        }
+
+        grow();
+        index = free(hash(key));
+        integerKeys[index] = key;
+        return index;
+    }
+
+    /**
+     * Adds the key if it is not in the table yet.
+     *
+     * @return the position of the key
+     */
+    public int add(String key) {
+        int index = indexOf(key);
+
+        if(index != -1) {
+            return index;
+        }
+
+        grow();
+        index = free(hash(key.hashCode()));
+        stringKeys[index] = key;
+        return index;
+    }
+
+    /**
+     * Takes the first empty or removed position from the hash on.
+     */
+    private int free(int hash) {
+        int mask = states.length - 1;
+        int i = hash & mask;
+
+        while(states[i] == FULL) {
+            i = (i + 1) & mask;
+        }
+
+        if(states[i] == EMPTY) {
+            used++;
+        }
+
+        states[i] = FULL;
+        size++;
+        return i;
+    }
+
+    /**
+     * Makes room for one more key. The table doubles if it is at least a quarter full, otherwise it is only
+     * rebuilt without the removed keys.
+     */
+    private void grow() {
+        if((used + 1) * 2 <= states.length) {
+            return;
+        }
+
+        byte[] states = this.states;
+        int[] integerKeys = this.integerKeys, integerValues = this.integerValues;
+        String[] stringKeys = this.stringKeys, stringValues = this.stringValues;
+        double[] decimalValues = this.decimalValues;
+        boolean[] booleanValues = this.booleanValues;
+
+        allocate(size * 4 > states.length ? states.length * 2 : states.length);
+        size = 0;
+        used = 0;
+
+        for(int old = 0; old < states.length; old++) {
+            if(states[old] != FULL) {
+                continue;
+            }
+
+            int i;
+
+            if(integerKeys != null) {
+                i = free(hash(integerKeys[old]));
+                this.integerKeys[i] = integerKeys[old];
+            } else {
+                i = free(hash(stringKeys[old].hashCode()));
+                this.stringKeys[i] = stringKeys[old];
+            }
+
+            if(integerValues != null) {
+                this.integerValues[i] = integerValues[old];
+            } else if(decimalValues != null) {
+                this.decimalValues[i] = decimalValues[old];
+            } else if(booleanValues != null) {
+                this.booleanValues[i] = booleanValues[old];
+            } else if(stringValues != null) {
+                this.stringValues[i] = stringValues[old];
+            }
+        }
+    }
+
+    /**
+     * @return whether the key was in the table
+     */
+    public boolean remove(int key) {
+        return removeAt(indexOf(key));
+    }
+
+    /**
+     * @return whether the key was in the table
+     */
+    public boolean remove(String key) {
+        return removeAt(indexOf(key));
+    }
+
+    private boolean removeAt(int index) {
+        if(index == -1) {
+            return false;
+        }
+
+        states[index] = REMOVED;
+        size--;
+
+        if(stringKeys != null) {
+            stringKeys[index] = null;
+        }
+
+        if(stringValues != null) {
+            stringValues[index] = null;
+        }
+
+        return true;
+    }
+
+    /**
+     * Stores the value at the position of a key, converted to the value type.
+     */
+    public void setValue(int index, Object value) throws InvalidCodeException {
+        switch(valueType) {
+            case INTEGER:
+                integerValues[index] = valueType.toInteger(value);
+                break;
+            case DECIMAL:
+                decimalValues[index] = valueType.toDecimal(value);
+                break;
+            case BOOLEAN:
+                booleanValues[index] = valueType.toBoolean(value);
+                break;
+            default:
+                stringValues[index] = value == null ? null : value.toString();
+        }
+    }
+
+    /**
+     * Copies the value at the position of a key to the variable. A variable of the value type gets it without boxing.
+     */
+    public void copyValue(int index, Variable target) throws InvalidCodeException {
+        if(target.getType() != valueType) {
+            target.setValue(value(index));
+            return;
+        }
+
+        switch(valueType) {
+            case INTEGER:
+                target.setInteger(integerValues[index]);
+                break;
+            case DECIMAL:
+                target.setDecimal(decimalValues[index]);
+                break;
+            case BOOLEAN:
+                target.setBoolean(booleanValues[index]);
+                break;
+            default:
+                target.setString(stringValues[index]);
+        }
+    }
+
+    private Object value(int index) {
+        switch(valueType) {
+            case INTEGER:
+                return integerValues[index];
+            case DECIMAL:
+                return decimalValues[index];
+            case BOOLEAN:
+                return booleanValues[index];
+            default:
+                return stringValues[index];
+        }
+    }
+
+    /**
+     * @return an array of the keys in the order of the table
+     */
+    public Variable keys(String name) throws InvalidCodeException {
+        int[] integers = integerKeys == null ? null : new int[size];
+        String[] strings = stringKeys == null ? null : new String[size];
+        int n = 0;
+
+        for(int i = 0; i < states.length; i++) {
+            if(states[i] != FULL) {
+                continue;
+            }
+
+            if(integers != null) {
+                integers[n++] = integerKeys[i];
+            } else {
+                strings[n++] = stringKeys[i];
+            }
+        }
+
+        return integers != null ? Variable.array(name, integers) : Variable.array(name, strings);
+    }
+
+    private static int hash(int key) {
+        int hash = key * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * @return the keys separated by commas, for a map every key with its value like <code>key=value</code>
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        boolean first = true;
+
+        for(int i = 0; i < states.length; i++) {
+            if(states[i] != FULL) {
+                continue;
+            }
+
+            builder.append(first ? "" : ",");
+            first = false;
+            builder.append(integerKeys != null ? String.valueOf(integerKeys[i]) : stringKeys[i]);
+
+            if(valueType != null) {
+                builder.append('=').append(value(i));
+            }
+        }
+
+        return builder.toString();
+    }
+
+}
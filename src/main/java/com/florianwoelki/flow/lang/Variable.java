@@ -1,35 +1,168 @@
 package com.florianwoelki.flow.lang;
 
-import com.florianwoelki.flow.FlowLang;
 import com.florianwoelki.flow.exception.InvalidCodeException;
 
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 
 /**
+ * A variable keeps its value in the field of its type, so integers, decimals and booleans are stored unboxed.
+ * A variable which was declared without a value starts with <code>0</code>, <code>0.0</code>, <code>false</code> or
+ * <code>null</code>.
+ * <p>
+ * An array keeps its elements in a primitive array of its type which grows by half when it is full, so reading,
+ * overwriting and pushing an element neither copies nor boxes the elements. A range only keeps its start, its step
+ * and its length until it is changed. An array which was declared with a size, like <code>integer[1000000]</code>,
+ * keeps its elements outside of the Java heap in a direct buffer. A map or a set keeps its keys and values in a
+ * {@link Table}.
+ * <p>
  * Created by Florian Woelki on 08.11.16.
  */
 public class Variable {
 
     private final VariableType type;
     private final String name;
-    private final ArrayList<Object> values;
-    private boolean isArray;
+    private final boolean isArray;
 
-    public Variable(VariableType type, String name, boolean isArray, Object... values) {
+    private int integerValue;
+    private double decimalValue;
+    private boolean booleanValue;
+    private String stringValue;
+
+    private int[] integerValues;
+    private double[] decimalValues;
+    private boolean[] booleanValues;
+    private String[] stringValues;
+    private int length;
+
+    private boolean range;
+    private int rangeStart, rangeStep;
+
+    /**
+     * The elements of an array with a fixed size, outside of the Java heap.
+     */
+    private ByteBuffer buffer;
+
+    /**
+     * Whether a loop iterates the buffer through a {@link #view()}, the buffer is then copied before it is changed.
+     */
+    private boolean viewed;
+
+    private Table table;
+
+    /**
+     * @param value the value, for an array the elements separated by commas
+     */
+    public Variable(VariableType type, String name, boolean isArray, Object value) throws InvalidCodeException {
         this.type = type;
         this.name = name;
         this.isArray = isArray;
-        this.values = new ArrayList<>(Arrays.asList(values));
 
         if(isArray) {
-            Object[] splittedArray = this.values.get(0).toString().split(",");
+            if(value != null) {
+                for(String element : value.toString().split(",")) {
+                    push(element);
+                }
+            }
+        } else if(value != null) {
+            setValue(value);
+        }
+    }
 
-            this.values.addAll(Arrays.asList(splittedArray));
-            this.values.remove(0);
+    /**
+     * @param buffer the buffer of a view, or <code>null</code> for a copy
+     */
+    private Variable(Variable array, ByteBuffer buffer) {
+        this.type = array.type;
+        this.name = array.name;
+        this.isArray = true;
+        this.length = array.length;
+        this.range = array.range;
+        this.rangeStart = array.rangeStart;
+        this.rangeStep = array.rangeStep;
+
+        if(buffer != null) {
+            this.buffer = buffer;
+        } else if(array.buffer != null) {
+            this.buffer = copy(array.buffer);
+        } else if(array.integerValues != null) {
+            integerValues = Arrays.copyOf(array.integerValues, length);
+        } else if(array.decimalValues != null) {
+            decimalValues = Arrays.copyOf(array.decimalValues, length);
+        } else if(array.booleanValues != null) {
+            booleanValues = Arrays.copyOf(array.booleanValues, length);
+        } else if(array.stringValues != null) {
+            stringValues = Arrays.copyOf(array.stringValues, length);
         }
     }
 
+    /**
+     * Creates the integer array <code>start, start + step, ...</code> with <code>length</code> elements.
+     */
+    public static Variable range(String name, int start, int step, int length) throws InvalidCodeException {
+        Variable variable = new Variable(VariableType.INTEGER, name, true, null);
+        variable.range = true;
+        variable.rangeStart = start;
+        variable.rangeStep = step;
+        variable.length = length;
+        return variable;
+    }
+
+    /**
+     * Creates an empty map, or a set if there is no value type.
+     */
+    public static Variable table(String name, VariableType keyType, VariableType valueType) throws InvalidCodeException {
+        Variable variable = new Variable(valueType == null ? VariableType.SET : VariableType.MAP, name, false, null);
+        variable.table = new Table(keyType, valueType);
+        return variable;
+    }
+
+    /**
+     * Creates an array with a fixed size which keeps its elements outside of the Java heap. Every element starts with
+     * <code>0</code>, <code>0.0</code> or <code>false</code>.
+     */
+    public static Variable fixed(VariableType type, String name, int size) throws InvalidCodeException {
+        int width;
+
+        switch(type) {
+            case INTEGER:
+                width = 4;
+                break;
+            case DECIMAL:
+                width = 8;
+                break;
+            case BOOLEAN:
+                width = 1;
+                break;
+            default:
+                throw new InvalidCodeException("Only integer, decimal and boolean arrays can have a size.");
+        }
+
+        if(size < 0 || (long) size * width > Integer.MAX_VALUE) {
+            throw new InvalidCodeException("Invalid size " + size + " of array " + name + ".");
+        }
+
+        Variable variable = new Variable(type, name, true, null);
+        variable.buffer = ByteBuffer.allocateDirect(size * width).order(ByteOrder.nativeOrder());
+        variable.length = size;
+        return variable;
+    }
+
+    static Variable array(String name, int[] values) throws InvalidCodeException {
+        Variable variable = new Variable(VariableType.INTEGER, name, true, null);
+        variable.integerValues = values;
+        variable.length = values.length;
+        return variable;
+    }
+
+    static Variable array(String name, String[] values) throws InvalidCodeException {
+        Variable variable = new Variable(VariableType.STRING, name, true, null);
+        variable.stringValues = values;
+        variable.length = values.length;
+        return variable;
+    }
+
     public VariableType getType() {
         return type;
     }
@@ -38,59 +171,460 @@ public class Variable {
         return name;
     }
 
+    /**
+     * @return the value, the keys and values of a map or set as text
+     */
     public Object getValue() throws InvalidCodeException {
-        if(isArray) {
-            throw new InvalidCodeException("Attempted to access value of array.");
+        if(table != null) {
+            return table.toString();
         }
 
-        return values.get(0);
+        checkScalar();
+
+        switch(type) {
+            case INTEGER:
+                return integerValue;
+            case DECIMAL:
+                return decimalValue;
+            case BOOLEAN:
+                return booleanValue;
+            default:
+                return stringValue;
+        }
+    }
+
+    /**
+     * @return the value as text without boxing it
+     */
+    public String getText() throws InvalidCodeException {
+        if(table != null) {
+            return table.toString();
+        }
+
+        checkScalar();
+
+        switch(type) {
+            case INTEGER:
+                return Integer.toString(integerValue);
+            case DECIMAL:
+                return Double.toString(decimalValue);
+            case BOOLEAN:
+                return Boolean.toString(booleanValue);
+            default:
+                return String.valueOf(stringValue);
+        }
+    }
+
+    public int getInteger() {
+        return integerValue;
+    }
+
+    public double getDecimal() {
+        return decimalValue;
+    }
+
+    public boolean getBoolean() {
+        return booleanValue;
+    }
+
+    public String getString() {
+        return stringValue;
+    }
+
+    public void setInteger(int value) {
+        integerValue = value;
+    }
+
+    public void setDecimal(double value) {
+        decimalValue = value;
+    }
+
+    public void setBoolean(boolean value) {
+        booleanValue = value;
+    }
+
+    public void setString(String value) {
+        stringValue = value;
     }
 
     public void setValue(Object value) throws InvalidCodeException {
-        if(isArray) {
-            throw new InvalidCodeException("Attempted to set value of array.");
+        checkScalar();
+
+        switch(type) {
+            case INTEGER:
+                integerValue = type.toInteger(value);
+                break;
+            case DECIMAL:
+                decimalValue = type.toDecimal(value);
+                break;
+            case BOOLEAN:
+                booleanValue = type.toBoolean(value);
+                break;
+            default:
+                stringValue = value == null ? null : value.toString();
         }
+    }
+
+    /**
+     * Copies the value of another variable. Variables of the same type are copied without converting the value.
+     */
+    public void setValue(Variable variable) throws InvalidCodeException {
+        checkScalar();
 
-        values.set(0, getType().formatValue(value));
+        if(variable.type != type || variable.isArray) {
+            setValue(variable.getValue());
+            return;
+        }
+
+        integerValue = variable.integerValue;
+        decimalValue = variable.decimalValue;
+        booleanValue = variable.booleanValue;
+        stringValue = variable.stringValue;
     }
 
+    /**
+     * Copies an element of an array. Elements of the same type are copied without converting or boxing them.
+     */
+    public void copyElement(Variable array, int index) throws InvalidCodeException {
+        checkScalar();
+        array.checkIndex(index, "access value at position of");
+
+        if(array.type != type) {
+            setValue(array.element(index));
+            return;
+        }
+
+        switch(type) {
+            case INTEGER:
+                integerValue = array.integer(index);
+                break;
+            case DECIMAL:
+                decimalValue = array.decimal(index);
+                break;
+            case BOOLEAN:
+                booleanValue = array.bool(index);
+                break;
+            default:
+                stringValue = array.stringValues[index];
+        }
+    }
+
+    /**
+     * Copies the array, a range stays a range and an array with a fixed size is copied into a new direct buffer.
+     */
+    public Variable copy() throws InvalidCodeException {
+        checkArray("copy");
+        return new Variable(this, null);
+    }
+
+    /**
+     * Returns the elements for a loop. An array with a fixed size is not copied, the loop gets a read only view of its
+     * buffer and the array copies the buffer before it is changed the next time. Every other array is copied.
+     */
+    public Variable view() throws InvalidCodeException {
+        checkArray("copy");
+
+        if(buffer == null) {
+            return new Variable(this, null);
+        }
+
+        viewed = true;
+        return new Variable(this, buffer.asReadOnlyBuffer().order(ByteOrder.nativeOrder()));
+    }
+
+    private static ByteBuffer copy(ByteBuffer buffer) {
+        ByteBuffer copy = ByteBuffer.allocateDirect(buffer.capacity()).order(ByteOrder.nativeOrder());
+        // A duplicate has its own position, so copying does not change the buffer.
+        copy.put(buffer.duplicate());
+        return copy;
+    }
+
+    /**
+     * Copies the elements, {@link #getValue(int)} reads one element without copying.
+     */
     public Object[] getValues() throws InvalidCodeException {
-        if(!isArray) {
-            throw new InvalidCodeException("Attempted to access values of non-array.");
+        checkArray("access values of");
+
+        Object[] values = new Object[length];
+
+        for(int i = 0; i < length; i++) {
+            values[i] = element(i);
+        }
+
+        return values;
+    }
+
+    public int getLength() throws InvalidCodeException {
+        checkArray("get length of");
+        return length;
+    }
+
+    public Object getValue(int index) throws InvalidCodeException {
+        checkIndex(index, "access value at position of");
+        return element(index);
+    }
+
+    /**
+     * @return the element of an integer or decimal array as an integer without boxing it
+     */
+    public int getInteger(int index) throws InvalidCodeException {
+        checkIndex(index, "access value at position of");
+        return type == VariableType.INTEGER ? integer(index) : type.toInteger(element(index));
+    }
+
+    /**
+     * @return the element of an integer or decimal array as a decimal without boxing it
+     */
+    public double getDecimal(int index) throws InvalidCodeException {
+        checkIndex(index, "access value at position of");
+
+        switch(type) {
+            case INTEGER:
+                return integer(index);
+            case DECIMAL:
+                return decimal(index);
+            default:
+                return type.toDecimal(element(index));
         }
+    }
+
+    /**
+     * @return the element as text without boxing it
+     */
+    public String getText(int index) throws InvalidCodeException {
+        checkIndex(index, "access value at position of");
 
-        return values.toArray();
+        switch(type) {
+            case INTEGER:
+                return Integer.toString(integer(index));
+            case DECIMAL:
+                return Double.toString(decimal(index));
+            case BOOLEAN:
+                return Boolean.toString(bool(index));
+            default:
+                return String.valueOf(stringValues[index]);
+        }
     }
 
+    /**
+     * Overwrites the element at the index. Setting the element right after the last one appends it.
+     */
     public void setValue(Object value, int index) throws InvalidCodeException {
+        checkArray("set value at position of");
+
+        if(index == length) {
+            push(value);
+            return;
+        }
+
+        checkIndex(index, "set value at position of");
+        materialize();
+
+        if(buffer != null) {
+            if(viewed) {
+                buffer = copy(buffer);
+                viewed = false;
+            }
+
+            switch(type) {
+                case INTEGER:
+                    buffer.putInt(index << 2, type.toInteger(value));
+                    break;
+                case DECIMAL:
+                    buffer.putDouble(index << 3, type.toDecimal(value));
+                    break;
+                default:
+                    buffer.put(index, (byte) (type.toBoolean(value) ? 1 : 0));
+            }
+
+            return;
+        }
+
+        switch(type) {
+            case INTEGER:
+                integerValues[index] = type.toInteger(value);
+                break;
+            case DECIMAL:
+                decimalValues[index] = type.toDecimal(value);
+                break;
+            case BOOLEAN:
+                booleanValues[index] = type.toBoolean(value);
+                break;
+            default:
+                stringValues[index] = value == null ? null : value.toString();
+        }
+    }
+
+    /**
+     * Appends an element.
+     */
+    public void push(Object value) throws InvalidCodeException {
+        checkArray("push value to");
+        materialize();
+
+        if(buffer != null) {
+            throw new InvalidCodeException("Attempted to push value to array " + name + " with a fixed size of " + length + ".");
+        }
+
+        switch(type) {
+            case INTEGER: {
+                int element = type.toInteger(value);
+
+                if(integerValues == null || length == integerValues.length) {
+                    integerValues = integerValues == null ? new int[8] : Arrays.copyOf(integerValues, grow(integerValues.length));
+                }
+
+                integerValues[length] = element;
+                break;
+            }
+            case DECIMAL: {
+                double element = type.toDecimal(value);
+
+                if(decimalValues == null || length == decimalValues.length) {
+                    decimalValues = decimalValues == null ? new double[8] : Arrays.copyOf(decimalValues, grow(decimalValues.length));
+                }
+
+                decimalValues[length] = element;
+                break;
+            }
+            case BOOLEAN:
+                if(booleanValues == null || length == booleanValues.length) {
+                    booleanValues = booleanValues == null ? new boolean[8] : Arrays.copyOf(booleanValues, grow(booleanValues.length));
+                }
+
+                booleanValues[length] = type.toBoolean(value);
+                break;
+            default:
+                if(stringValues == null || length == stringValues.length) {
+                    stringValues = stringValues == null ? new String[8] : Arrays.copyOf(stringValues, grow(stringValues.length));
+                }
+
+                stringValues[length] = value == null ? null : value.toString();
+        }
+
+        length++;
+    }
+
+    private static int grow(int capacity) {
+        int grown = capacity + (capacity >> 1);
+
+        if(grown < 0) {
+            throw new OutOfMemoryError("Array is too large.");
+        }
+
+        return grown;
+    }
+
+    /**
+     * Stores the elements of a range, so they can be changed.
+     */
+    private void materialize() {
+        if(!range) {
+            return;
+        }
+
+        integerValues = new int[Math.max(8, length)];
+
+        for(int i = 0; i < length; i++) {
+            integerValues[i] = integer(i);
+        }
+
+        range = false;
+    }
+
+    private int integer(int index) {
+        if(range) {
+            return (int) (rangeStart + (long) index * rangeStep);
+        }
+
+        return buffer != null ? buffer.getInt(index << 2) : integerValues[index];
+    }
+
+    private double decimal(int index) {
+        return buffer != null ? buffer.getDouble(index << 3) : decimalValues[index];
+    }
+
+    private boolean bool(int index) {
+        return buffer != null ? buffer.get(index) != 0 : booleanValues[index];
+    }
+
+    private Object element(int index) {
+        switch(type) {
+            case INTEGER:
+                return integer(index);
+            case DECIMAL:
+                return decimal(index);
+            case BOOLEAN:
+                return bool(index);
+            default:
+                return stringValues[index];
+        }
+    }
+
+    private void checkArray(String what) throws InvalidCodeException {
         if(!isArray) {
-            throw new InvalidCodeException("Attempted to set value at position of non-array.");
+            throw new InvalidCodeException("Attempted to " + what + " non-array.");
         }
+    }
 
-        values.add(index, getType().formatValue(value));
+    private void checkIndex(int index, String what) throws InvalidCodeException {
+        checkArray(what);
+
+        if(index < 0 || index >= length) {
+            throw new InvalidCodeException("Array index " + index + " is out of bounds for " + name + ".");
+        }
     }
 
     public boolean isArray() {
         return isArray;
     }
 
-    @Override
-    public String toString() {
-        return "Variable name=" + getName() + " type=" + getType() + " isArray=" + isArray + " values=" + Arrays.toString(values.toArray());
+    /**
+     * @return whether the variable is a map or a set
+     */
+    public boolean isTable() {
+        return table != null;
     }
 
-    public enum VariableType {
-        VOID(null), BOOLEAN(Boolean.class), INTEGER(Integer.class), DECIMAL(Double.class), STRING(null);
+    public Table getTable() throws InvalidCodeException {
+        if(table == null) {
+            throw new InvalidCodeException("Attempted to use " + name + " as map or set.");
+        }
 
-        private final java.lang.Class<?> clazz;
+        return table;
+    }
 
-        VariableType(java.lang.Class<?> clazz) {
-            this.clazz = clazz;
+    private void checkScalar() throws InvalidCodeException {
+        if(isArray) {
+            throw new InvalidCodeException("Attempted to access value of array.");
+        } else if(table != null) {
+            throw new InvalidCodeException("Attempted to access value of " + type.name().toLowerCase() + " " + name + ".");
         }
+    }
 
+    @Override
+    public String toString() {
+        try {
+            return "Variable name=" + getName() + " type=" + getType() + " isArray=" + isArray + " values=" + (isArray ? Arrays.toString(getValues()) : getText());
+        } catch(InvalidCodeException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public enum VariableType {
+        VOID, BOOLEAN, INTEGER, DECIMAL, STRING, MAP, SET;
+
+        /**
+         * Matches a type name. Maps and sets also need the types of their keys and values, so they are read by
+         * {@link #matchTable(String)}.
+         */
         public static VariableType match(String str) throws InvalidCodeException {
             for(VariableType t : values()) {
                 if(t.name().toLowerCase().equals(str.toLowerCase())) {
+                    if(t == MAP || t == SET) {
+                        throw new InvalidCodeException("Variable type " + str + " needs the types of its " + (t == MAP ? "keys and values like map<string,integer>." : "keys like set<integer>."));
+                    }
+
                     return t;
                 }
             }
@@ -98,28 +632,115 @@ public class Variable {
             throw new InvalidCodeException("Variable type " + str + " doesn't exist.");
         }
 
-        public void validateValue(Object value, Block block) throws InvalidCodeException {
+        /**
+         * Reads <code>map&lt;key,value&gt;</code> or <code>set&lt;key&gt;</code>. Keys are integers or strings.
+         *
+         * @return the key type and the value type, which is <code>null</code> for a set, or <code>null</code> if the
+         * name is no map or set
+         */
+        public static VariableType[] matchTable(String str) throws InvalidCodeException {
+            String name = str.replace(" ", "").toLowerCase();
+            boolean map = name.startsWith("map<");
+
+            if(!(map || name.startsWith("set<")) || !name.endsWith(">")) {
+                return null;
+            }
+
+            String[] types = name.substring(4, name.length() - 1).split(",", -1);
+
+            if(types.length != (map ? 2 : 1)) {
+                throw new InvalidCodeException("Invalid variable type " + str + ".");
+            }
+
+            VariableType key = match(types[0]);
+            VariableType value = map ? match(types[1]) : null;
+
+            if(key != INTEGER && key != STRING) {
+                throw new InvalidCodeException("Keys of " + str + " need to be integers or strings.");
+            } else if(value == VOID) {
+                throw new InvalidCodeException("Values of " + str + " can not be void.");
+            }
+
+            return new VariableType[]{key, value};
+        }
+
+        /**
+         * Checks while resolving whether values of the source type can be stored in a variable of this type. Text
+         * can hold a number, so it can only be checked while running.
+         *
+         * @return whether the value still has to be checked while running
+         */
+        public boolean check(VariableType source, String what) throws InvalidCodeException {
+            if(source == this || this == STRING || (source == INTEGER && this == DECIMAL)) {
+                return false;
+            } else if(source == STRING) {
+                return true;
+            }
+
+            throw new InvalidCodeException("Attempted to use " + source.name().toLowerCase() + " " + what + " as " + name().toLowerCase() + ".");
+        }
+
+        public void validateValue(Object value) throws InvalidCodeException {
             try {
-                if(clazz != null) {
-                    String sValue = FlowLang.implode(String.valueOf(value), block);
-                    clazz.getDeclaredMethod("valueOf", String.class).invoke(null, sValue);
-                }
-            } catch(Exception e) {
+                formatValue(value);
+            } catch(InvalidCodeException e) {
                 throw new InvalidCodeException("Invalid value for variable type " + this);
             }
         }
 
+        /**
+         * Converts a value to the boxed value of this type, <code>null</code> stays <code>null</code>.
+         */
         public Object formatValue(Object value) throws InvalidCodeException {
+            if(value == null) {
+                return null;
+            }
+
+            switch(this) {
+                case INTEGER:
+                    return toInteger(value);
+                case DECIMAL:
+                    return toDecimal(value);
+                case BOOLEAN:
+                    return toBoolean(value);
+                case STRING:
+                    return value.toString();
+                default:
+                    return value;
+            }
+        }
+
+        int toInteger(Object value) throws InvalidCodeException {
+            if(value instanceof Integer) {
+                return (Integer) value;
+            }
+
             try {
-                if(clazz != null) {
-                    return clazz.getDeclaredMethod("valueOf", String.class).invoke(null, value);
-                } else {
-                    return null;
-                }
-            } catch(Exception e) {
-                throw new InvalidCodeException("Formatted invalid value " + value + " for variable type " + name().toLowerCase());
+                return Integer.parseInt(String.valueOf(value));
+            } catch(NumberFormatException e) {
+                throw invalid(value);
+            }
+        }
+
+        double toDecimal(Object value) throws InvalidCodeException {
+            if(value instanceof Number) {
+                return ((Number) value).doubleValue();
+            }
+
+            try {
+                return Double.parseDouble(String.valueOf(value));
+            } catch(NumberFormatException e) {
+                throw invalid(value);
             }
         }
+
+        boolean toBoolean(Object value) {
+            return value instanceof Boolean ? (Boolean) value : Boolean.parseBoolean(String.valueOf(value));
+        }
+
+        private InvalidCodeException invalid(Object value) {
+            return new InvalidCodeException("Formatted invalid value " + value + " for variable type " + name().toLowerCase());
+        }
     }
 
 }
@@ -1,6 +1,5 @@
 package com.florianwoelki.flow.lang;
 
-import com.florianwoelki.flow.FlowLang;
 import com.florianwoelki.flow.exception.InvalidCodeException;
 
 /**
@@ -8,92 +7,20 @@ import com.florianwoelki.flow.exception.InvalidCodeException;
  */
 public class While extends ConditionalBlock {
 
-    public While(Block superBlock, String aVal, String bVal, CompareOperation compareOp) {
+    public While(Block superBlock, Argument aVal, Argument bVal, CompareOperation compareOp) {
         super(superBlock, aVal, bVal, compareOp);
     }
 
     @Override
-    public void runAfterParse() throws InvalidCodeException {
-        if(compareOp == CompareOperation.EQUALS) {
-            int a, b;
+    public void runAfterParse(Frame frame) throws InvalidCodeException {
+        while(test(frame)) {
+            doBlocks(frame);
 
-            try {
-                a = Integer.parseInt(FlowLang.implode(aVal, this));
-                b = Integer.parseInt(FlowLang.implode(bVal, this));
-            } catch(Exception e) {
-                throw new InvalidCodeException("Attempted to use " + compareOp.name().toLowerCase() + " on non-integers");
+            if(frame.hasReturned()) {
+                break;
             }
 
-            while(a == b) {
-                try {
-                    a = Integer.parseInt(FlowLang.implode(aVal, this));
-                    b = Integer.parseInt(FlowLang.implode(bVal, this));
-                } catch(Exception e) {
-                    throw new InvalidCodeException("Attempted to use " + compareOp.name().toLowerCase() + " on non-integers");
-                }
-
-                doBlocks();
-            }
-        } else if(compareOp == CompareOperation.NOTEQUALS) {
-            int a, b;
-
-            try {
-                a = Integer.parseInt(FlowLang.implode(aVal, this));
-                b = Integer.parseInt(FlowLang.implode(bVal, this));
-            } catch(Exception e) {
-                throw new InvalidCodeException("Attempted to use " + compareOp.name().toLowerCase() + " on non-integers");
-            }
-
-            while(a != b) {
-                try {
-                    a = Integer.parseInt(FlowLang.implode(aVal, this));
-                    b = Integer.parseInt(FlowLang.implode(bVal, this));
-                } catch(Exception e) {
-                    throw new InvalidCodeException("Attempted to use " + compareOp.name().toLowerCase() + " on non-integers");
-                }
-
-                doBlocks();
-            }
-        } else if(compareOp == CompareOperation.GREATERTHAN) {
-            int a, b;
-
-            try {
-                a = Integer.parseInt(FlowLang.implode(aVal, this));
-                b = Integer.parseInt(FlowLang.implode(bVal, this));
-            } catch(Exception e) {
-                throw new InvalidCodeException("Attempted to use " + compareOp.name().toLowerCase() + " on non-integers");
-            }
-
-            while(a > b) {
-                try {
-                    a = Integer.parseInt(FlowLang.implode(aVal, this));
-                    b = Integer.parseInt(FlowLang.implode(bVal, this));
-                } catch(Exception e) {
-                    throw new InvalidCodeException("Attempted to use " + compareOp.name().toLowerCase() + " on non-integers.");
-                }
-
-                doBlocks();
-            }
-        } else if(compareOp == CompareOperation.LESSTHAN) {
-            int a, b;
-
-            try {
-                a = Integer.parseInt(FlowLang.implode(aVal, this));
-                b = Integer.parseInt(FlowLang.implode(bVal, this));
-            } catch(Exception e) {
-                throw new InvalidCodeException("Attempted to use " + compareOp.name().toLowerCase() + " on non-integers");
-            }
-
-            while(a < b) {
-                try {
-                    a = Integer.parseInt(FlowLang.implode(aVal, this));
-                    b = Integer.parseInt(FlowLang.implode(bVal, this));
-                } catch(Exception e) {
-                    throw new InvalidCodeException("Attempted to use " + compareOp.name().toLowerCase() + " on non-integers.");
-                }
-
-                doBlocks();
-            }
+            frame.step();
         }
     }
 
@@ -0,0 +1,214 @@
+package com.florianwoelki.flow.lexer;
+
+import com.florianwoelki.flow.exception.InvalidCodeException;
+
+/**
+ * Splits a line of Flow code into typed tokens in a single pass.
+ * <p>
+ * The lexer works like a cursor: {@link #next()} moves to the next token and the getters describe the current token
+ * by its offsets in the source, so no token objects are created. Text is only copied out of the source when
+ * {@link #getText()} or {@link #getValue()} is called.
+ */
+public class Lexer {
+
+    private final String source;
+    private final int length;
+
+    private int position;
+
+    private TokenType type;
+    private int start;
+    private int end;
+
+    public Lexer(String source) {
+        this.source = source;
+        this.length = source.length();
+    }
+
+    /**
+     * Moves to the next token. Everything after <code>//</code> is a comment and ends the line.
+     *
+     * @return the type of the new token, {@link TokenType#EOF} at the end of the line
+     */
+    public TokenType next() throws InvalidCodeException {
+        TokenType previousType = type;
+
+        while(position < length && Character.isWhitespace(source.charAt(position))) {
+            position++;
+        }
+
+        start = position;
+
+        if(position >= length || (source.charAt(position) == '/' && position + 1 < length && source.charAt(position + 1) == '/')) {
+            position = length;
+            end = start;
+            type = TokenType.EOF;
+            return type;
+        }
+
+        char c = source.charAt(position);
+
+        if(c == '"') {
+            position++;
+
+            while(position < length && source.charAt(position) != '"') {
+                position += source.charAt(position) == '\\' ? 2 : 1;
+            }
+
+            if(position >= length) {
+                throw new InvalidCodeException("Missing closing quote for string at offset " + start + ".");
+            }
+
+            position++;
+            type = TokenType.STRING;
+        } else if(isDigit(c) || (c == '-' && position + 1 < length && isDigit(source.charAt(position + 1)) && !isOperand(previousType))) {
+            position++;
+
+            while(position < length && isDigit(source.charAt(position))) {
+                position++;
+            }
+
+            if(position + 1 < length && source.charAt(position) == '.' && isDigit(source.charAt(position + 1))) {
+                position++;
+
+                while(position < length && isDigit(source.charAt(position))) {
+                    position++;
+                }
+            }
+
+            type = TokenType.NUMBER;
+        } else if(isIdentifierPart(c)) {
+            while(position < length && isIdentifierPart(source.charAt(position))) {
+                position++;
+            }
+
+            type = TokenType.IDENTIFIER;
+        } else if(c == '[') {
+            // The index can have indices itself, like a[b[0]], so the brackets are counted.
+            int depth = 0;
+
+            do {
+                if(position == length) {
+                    throw new InvalidCodeException("Missing closing bracket for index at offset " + start + ".");
+                }
+
+                char bracket = source.charAt(position++);
+
+                if(bracket == '[') {
+                    depth++;
+                } else if(bracket == ']') {
+                    depth--;
+                }
+            } while(depth > 0);
+
+            type = TokenType.INDEX;
+        } else if(c == ',') {
+            position++;
+            type = TokenType.COMMA;
+        } else if(c == ':') {
+            position++;
+            type = TokenType.COLON;
+        } else if(c == '(') {
+            position++;
+            type = TokenType.LPAREN;
+        } else if(c == ')') {
+            position++;
+            type = TokenType.RPAREN;
+        } else if("=!<>+-*/%&|".indexOf(c) != -1) {
+            position++;
+
+            if(position < length && isOperatorPair(c, source.charAt(position))) {
+                position++;
+            }
+
+            type = TokenType.OPERATOR;
+        } else {
+            throw new InvalidCodeException("Unexpected character '" + c + "' at offset " + start + ".");
+        }
+
+        end = position;
+        return type;
+    }
+
+    public TokenType getType() {
+        return type;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return the current token exactly as written in the source
+     */
+    public String getText() {
+        return source.substring(start, end);
+    }
+
+    /**
+     * @return the value of the current token: the unescaped content of a string literal, the trimmed content of an
+     * index or the text of any other token
+     */
+    public String getValue() {
+        if(type == TokenType.STRING) {
+            return unescape(start + 1, end - 1);
+        } else if(type == TokenType.INDEX) {
+            return source.substring(start + 1, end - 1).trim();
+        }
+
+        return getText();
+    }
+
+    /**
+     * Checks the current token without copying its text.
+     */
+    public boolean is(TokenType type, String text) {
+        return this.type == type && end - start == text.length() && source.regionMatches(start, text, 0, text.length());
+    }
+
+    private String unescape(int from, int to) {
+        if(source.indexOf('\\', from) == -1 || source.indexOf('\\', from) >= to) {
+            return source.substring(from, to);
+        }
+
+        StringBuilder builder = new StringBuilder(to - from);
+
+        for(int i = from; i < to; i++) {
+            char c = source.charAt(i);
+
+            if(c == '\\' && i + 1 < to) {
+                char escaped = source.charAt(++i);
+                builder.append(escaped == 'n' ? '\n' : escaped == 't' ? '\t' : escaped);
+            } else {
+                builder.append(c);
+            }
+        }
+
+        return builder.toString();
+    }
+
+    private static boolean isOperand(TokenType type) {
+        return type == TokenType.NUMBER || type == TokenType.STRING || type == TokenType.IDENTIFIER || type == TokenType.INDEX || type == TokenType.RPAREN;
+    }
+
+    private static boolean isOperatorPair(char first, char second) {
+        return (second == '=' && "=!<>".indexOf(first) != -1) || (first == '&' && second == '&') || (first == '|' && second == '|');
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || isDigit(c) || c == '_';
+    }
+
+}
@@ -0,0 +1,31 @@
+package com.florianwoelki.flow.lexer;
+
+/**
+ * The types of the tokens of the {@link Lexer}.
+ */
+public enum TokenType {
+
+    STRING,
+
+    NUMBER,
+
+    IDENTIFIER,
+
+    OPERATOR,
+
+    COMMA,
+
+    COLON,
+
+    LPAREN,
+
+    RPAREN,
+
+    /**
+     * An array index like <code>[2]</code> or <code>[i]</code>, the value of the token is the text between the brackets.
+     */
+    INDEX,
+
+    EOF
+
+}
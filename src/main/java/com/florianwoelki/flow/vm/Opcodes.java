@@ -0,0 +1,223 @@
+package com.florianwoelki.flow.vm;
+
+/**
+ * The instructions of the Flow bytecode. An instruction is its opcode followed by its operands, all of them are
+ * <code>int</code>s in one array. Operands name integer, decimal or reference registers, nodes of the method or
+ * constants, jump targets are positions in the code.
+ */
+final class Opcodes {
+
+    /**
+     * <code>END</code>: returns from the method.
+     */
+    static final int END = 0;
+    /**
+     * <code>JUMP target</code>
+     */
+    static final int JUMP = 1;
+    /**
+     * <code>STEP steps</code>: counts the steps of the statements since the last jump, see
+     * {@link com.florianwoelki.flow.lang.Governor}.
+     */
+    static final int STEP = 2;
+    /**
+     * <code>SPILL</code>: writes the variables which live in registers back to the frame.
+     */
+    static final int SPILL = 3;
+    /**
+     * <code>FILL</code>: reads the variables which live in registers from the frame.
+     */
+    static final int FILL = 4;
+    /**
+     * <code>RUN node</code>: runs a node with the tree walking interpreter.
+     */
+    static final int RUN = 5;
+    /**
+     * <code>RETURN node</code>: runs the return statement and returns from the method.
+     */
+    static final int RETURN = 6;
+    /**
+     * <code>CALL constant</code>: calls a built-in function or a method through its call site.
+     */
+    static final int CALL = 7;
+    /**
+     * <code>TEST node target</code>: jumps if the condition of the node is false.
+     */
+    static final int TEST = 8;
+
+    /**
+     * <code>I_CONST register value</code>
+     */
+    static final int I_CONST = 9;
+    /**
+     * <code>I_MOVE register source</code>
+     */
+    static final int I_MOVE = 10;
+    /**
+     * <code>I_LOAD register constant</code>: reads the integer variable of a slot in the frame.
+     */
+    static final int I_LOAD = 11;
+    /**
+     * <code>I_ELEM register constant index</code>: reads an element of the array of a slot.
+     */
+    static final int I_ELEM = 12;
+    /**
+     * <code>I_STORE constant register</code>: writes the integer variable of a slot in the frame.
+     */
+    static final int I_STORE = 13;
+    /**
+     * <code>I_ADD register a b</code>, the other operations alike.
+     */
+    static final int I_ADD = 14;
+    static final int I_SUB = 15;
+    static final int I_MUL = 16;
+    /**
+     * <code>I_DIV register a b constant</code>: the constant is the expression, for the error on a division by zero.
+     */
+    static final int I_DIV = 17;
+    static final int I_REM = 18;
+    static final int I_NEG = 19;
+    /**
+     * <code>I2D decimal integer</code>
+     */
+    static final int I2D = 20;
+
+    /**
+     * <code>D_CONST register constant</code>
+     */
+    static final int D_CONST = 21;
+    static final int D_MOVE = 22;
+    static final int D_LOAD = 23;
+    static final int D_ELEM = 24;
+    static final int D_STORE = 25;
+    static final int D_ADD = 26;
+    static final int D_SUB = 27;
+    static final int D_MUL = 28;
+    static final int D_DIV = 29;
+    static final int D_REM = 30;
+    static final int D_NEG = 31;
+    /**
+     * <code>D2I integer decimal</code>
+     */
+    static final int D2I = 32;
+    /**
+     * <code>D_INC register</code>: adds one.
+     */
+    static final int D_INC = 33;
+
+    /**
+     * <code>I_JEQ a b target</code>: jumps if the integer registers are equal, the other jumps alike.
+     */
+    static final int I_JEQ = 34;
+    static final int I_JNE = 35;
+    static final int I_JLT = 36;
+    static final int I_JGE = 37;
+    static final int I_JGT = 38;
+    static final int I_JLE = 39;
+    static final int D_JEQ = 40;
+    static final int D_JNE = 41;
+    static final int D_JLT = 42;
+    static final int D_JGT = 43;
+
+    /**
+     * <code>FOR_INIT node lower upper counter</code>: puts the bounds into two decimal registers and the counter
+     * variable into a reference register.
+     */
+    static final int FOR_INIT = 44;
+    /**
+     * <code>FOR_NEXT node i upper counter target</code>: jumps if the loop is done, otherwise updates the counter.
+     */
+    static final int FOR_NEXT = 45;
+    /**
+     * <code>FOREACH_INIT node values element index</code>
+     */
+    static final int FOREACH_INIT = 46;
+    /**
+     * <code>FOREACH_NEXT values element index target</code>: jumps if the loop is done, otherwise sets the element
+     * to the next value.
+     */
+    static final int FOREACH_NEXT = 47;
+
+    /**
+     * <code>INVOKE constant</code>: calls a method through its call site. A method which runs on the VM gets a new
+     * activation on the stack of the VM instead of a new call of {@link VmMethod#execute}.
+     */
+    static final int INVOKE = 48;
+    /**
+     * <code>TAIL constant</code>: like <code>INVOKE</code>, but the result is returned right away, so the called
+     * method replaces the activation of the calling method.
+     */
+    static final int TAIL = 49;
+
+    /**
+     * <code>STEP_JUMP target steps</code>: <code>STEP</code> and <code>JUMP</code> in one instruction, like at the end
+     * of a loop.
+     */
+    static final int STEP_JUMP = 50;
+
+    /**
+     * <code>I_ADD_K register a value</code>: adds a constant, the other operations alike. The constant of a division is
+     * not zero.
+     */
+    static final int I_ADD_K = 51;
+    static final int I_MUL_K = 52;
+    static final int I_DIV_K = 53;
+    static final int I_REM_K = 54;
+
+    /**
+     * <code>I_JEQ_K a value target</code>: jumps if the integer register is equal to the constant, the other jumps
+     * alike.
+     */
+    static final int I_JEQ_K = 55;
+    static final int I_JNE_K = 56;
+    static final int I_JLT_K = 57;
+    static final int I_JGE_K = 58;
+    static final int I_JGT_K = 59;
+    static final int I_JLE_K = 60;
+
+    /**
+     * <code>D_JNGT a b target</code>: jumps unless a is greater than b, which is also the case if one of them is NaN.
+     */
+    static final int D_JNGT = 61;
+    static final int D_JNLT = 62;
+
+    /**
+     * <code>FOREACH_I values index body register steps</code>: counts the steps of the body unless it is the first turn
+     * of the loop, then puts the next value into the integer register of the element and jumps to the body. It goes on
+     * after the loop if there is no next value. <code>FOREACH_D</code> alike for a decimal element.
+     */
+    static final int FOREACH_I = 63;
+    static final int FOREACH_D = 64;
+
+    /**
+     * <code>I_SPILL constant register</code>: writes one integer variable of a slot back to the frame if it is declared,
+     * <code>I_FILL register constant</code> reads it again. The decimal ones alike.
+     */
+    static final int I_SPILL = 65;
+    static final int I_FILL = 66;
+    static final int D_SPILL = 67;
+    static final int D_FILL = 68;
+
+    static final String[] NAMES = {"END", "JUMP", "STEP", "SPILL", "FILL", "RUN", "RETURN", "CALL", "TEST",
+            "I_CONST", "I_MOVE", "I_LOAD", "I_ELEM", "I_STORE", "I_ADD", "I_SUB", "I_MUL", "I_DIV", "I_REM", "I_NEG", "I2D",
+            "D_CONST", "D_MOVE", "D_LOAD", "D_ELEM", "D_STORE", "D_ADD", "D_SUB", "D_MUL", "D_DIV", "D_REM", "D_NEG", "D2I", "D_INC",
+            "I_JEQ", "I_JNE", "I_JLT", "I_JGE", "I_JGT", "I_JLE", "D_JEQ", "D_JNE", "D_JLT", "D_JGT",
+            "FOR_INIT", "FOR_NEXT", "FOREACH_INIT", "FOREACH_NEXT", "INVOKE", "TAIL", "STEP_JUMP",
+            "I_ADD_K", "I_MUL_K", "I_DIV_K", "I_REM_K", "I_JEQ_K", "I_JNE_K", "I_JLT_K", "I_JGE_K", "I_JGT_K", "I_JLE_K",
+            "D_JNGT", "D_JNLT", "FOREACH_I", "FOREACH_D", "I_SPILL", "I_FILL", "D_SPILL", "D_FILL"};
+
+    /**
+     * The number of operands of every opcode.
+     */
+    static final int[] OPERANDS = {0, 1, 1, 0, 0, 1, 1, 1, 2,
+            2, 2, 2, 3, 2, 3, 3, 3, 4, 4, 2, 2,
+            2, 2, 2, 3, 2, 3, 3, 3, 3, 3, 2, 2, 1,
+            3, 3, 3, 3, 3, 3, 3, 3, 3, 3,
+            4, 5, 4, 4, 1, 1, 2,
+            3, 3, 3, 3, 3, 3, 3, 3, 3, 3,
+            3, 3, 5, 5, 2, 2, 2, 2};
+
+    private Opcodes() {
+    }
+
+}
@@ -0,0 +1,821 @@
+package com.florianwoelki.flow.vm;
+
+import com.florianwoelki.flow.expression.Binary;
+import com.florianwoelki.flow.expression.Constant;
+import com.florianwoelki.flow.expression.Element;
+import com.florianwoelki.flow.expression.Expression;
+import com.florianwoelki.flow.expression.Negate;
+import com.florianwoelki.flow.expression.Reference;
+import com.florianwoelki.flow.function.CallSite;
+import com.florianwoelki.flow.function.Declare;
+import com.florianwoelki.flow.function.Math;
+import com.florianwoelki.flow.lang.Argument;
+import com.florianwoelki.flow.lang.Block;
+import com.florianwoelki.flow.lang.ConditionalBlock;
+import com.florianwoelki.flow.lang.DoWhile;
+import com.florianwoelki.flow.lang.Else;
+import com.florianwoelki.flow.lang.ElseIf;
+import com.florianwoelki.flow.lang.For;
+import com.florianwoelki.flow.lang.Foreach;
+import com.florianwoelki.flow.lang.If;
+import com.florianwoelki.flow.lang.Line;
+import com.florianwoelki.flow.lang.Method;
+import com.florianwoelki.flow.lang.Return;
+import com.florianwoelki.flow.lang.Slot;
+import com.florianwoelki.flow.lang.Variable;
+import com.florianwoelki.flow.lang.While;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles the body of a {@link Method} to Flow bytecode, which is run by {@link VmMethod}. Unlike the
+ * {@link com.florianwoelki.flow.compiler.Compiler} this does not define classes, so it also works where class loaders
+ * can not be created.
+ * <p>
+ * The blocks become jumps. Conditions and <code>math</code> on numbers are compiled to instructions on typed
+ * registers, every other statement calls its call site or runs its node. The integer and decimal variables of the
+ * method live in registers while the method runs. They are written back to the frame before a statement which can
+ * read them and read again after a statement which can change them, for a call only the variables of its arguments and
+ * its result.
+ * <p>
+ * Most of the time of the VM goes to the dispatch of the instructions, so the compiler saves instructions where it
+ * can: operations and compares with an integer constant take the constant as operand, the steps of the statements
+ * between two jumps are counted by one instruction, which is part of the jump at the end of a loop, and jumps to the
+ * next instruction are left out.
+ */
+public class VmCompiler {
+
+    /*
+    The jumps by the ordinal of the compare operation: ==, !=, >, <
+     */
+    private static final int[] INTEGER_JUMPS_IF = {Opcodes.I_JEQ, Opcodes.I_JNE, Opcodes.I_JGT, Opcodes.I_JLT};
+    private static final int[] INTEGER_JUMPS_UNLESS = {Opcodes.I_JNE, Opcodes.I_JEQ, Opcodes.I_JLE, Opcodes.I_JGE};
+    private static final int[] DECIMAL_JUMPS_IF = {Opcodes.D_JEQ, Opcodes.D_JNE, Opcodes.D_JGT, Opcodes.D_JLT};
+    private static final int[] DECIMAL_JUMPS_UNLESS = {Opcodes.D_JNE, Opcodes.D_JEQ, Opcodes.D_JNGT, Opcodes.D_JNLT};
+
+    /*
+    The integer jumps with their operands swapped, by opcode from I_JEQ: ==, !=, <, >=, >, <=
+     */
+    private static final int[] MIRRORED_JUMPS = {Opcodes.I_JEQ, Opcodes.I_JNE, Opcodes.I_JGT, Opcodes.I_JLE, Opcodes.I_JLT, Opcodes.I_JGE};
+
+    private final List<Block> nodes = new ArrayList<>();
+    private final List<Object> constants = new ArrayList<>();
+
+    private int[] code = new int[64];
+    private int length;
+
+    private final Registers ints = new Registers(), decimals = new Registers(), refs = new Registers();
+
+    /*
+    The registers of the variables and of the constants, which are loaded once when the method starts.
+     */
+    private final Map<Slot, Integer> integerVariables = new LinkedHashMap<>(), decimalVariables = new LinkedHashMap<>();
+    private final Map<Integer, Integer> integerConstants = new LinkedHashMap<>();
+    private final Map<Double, Integer> decimalConstants = new LinkedHashMap<>();
+
+    private final Map<String, Slot> variableSlots = new LinkedHashMap<>();
+
+    /**
+     * The steps of the statements which are not counted yet, see {@link #flush()}.
+     */
+    private int steps;
+
+    /**
+     * The start of the last jump, the end of the last fill and the position of the last label, for the instructions
+     * which are left out.
+     */
+    private int jump = -1, filled = -1, marked;
+
+    /**
+     * The labels which were marked at {@link #marked}.
+     */
+    private final List<Label> labels = new ArrayList<>();
+
+    private VmCompiler() {
+    }
+
+    /**
+     * The first pass finds the variables and constants which get their own registers, the second pass gives them the
+     * lowest registers and emits the code.
+     */
+    public static VmMethod compile(Method method) {
+        VmCompiler first = new VmCompiler();
+        first.body(method);
+
+        VmCompiler second = new VmCompiler();
+
+        for(Map.Entry<String, Slot> variable : first.variableSlots.entrySet()) {
+            second.variable(variable.getValue());
+        }
+
+        for(int value : first.integerConstants.keySet()) {
+            second.integerConstant(value);
+        }
+
+        for(double value : first.decimalConstants.keySet()) {
+            second.decimalConstant(value);
+        }
+
+        second.body(method);
+
+        return new VmMethod(second.nodes.toArray(new Block[second.nodes.size()]), second.constants.toArray(), Arrays.copyOf(second.code, second.length),
+                new int[]{second.ints.max, second.decimals.max, second.refs.max}, method,
+                second.integerVariables.keySet().toArray(new Slot[0]), registers(second.integerVariables),
+                second.decimalVariables.keySet().toArray(new Slot[0]), registers(second.decimalVariables));
+    }
+
+    private void body(Method method) {
+        for(Map.Entry<Integer, Integer> constant : integerConstants.entrySet()) {
+            emit(Opcodes.I_CONST, constant.getValue(), constant.getKey());
+        }
+
+        for(Map.Entry<Double, Integer> constant : decimalConstants.entrySet()) {
+            emit(Opcodes.D_CONST, constant.getValue(), constant(constant.getKey()));
+        }
+
+        fill();
+        statements(method);
+        emit(Opcodes.END);
+    }
+
+    private void statements(Block block) {
+        Block[] nodes = block.getSubBlocks();
+
+        for(int n = 0; n < nodes.length; n++) {
+            Block node = nodes[n];
+
+            if(node instanceof If) {
+                ifBlock((If) node);
+            } else if(node instanceof While) {
+                whileBlock((While) node);
+            } else if(node instanceof DoWhile) {
+                doWhileBlock((DoWhile) node);
+            } else if(node instanceof For) {
+                forBlock((For) node);
+            } else if(node instanceof Foreach) {
+                foreachBlock((Foreach) node);
+            } else if(node instanceof Return) {
+                spill();
+                emit(Opcodes.RETURN, node(node));
+            } else if(node instanceof Line) {
+                CallSite callSite = ((Line) node).getCallSite();
+
+                if(callSite.getFunction() != null) {
+                    line(callSite);
+                } else if(isTailCall(callSite, n + 1 < nodes.length ? nodes[n + 1] : null)) {
+                    spill(callSite, true);
+                    emit(Opcodes.TAIL, constant(callSite));
+                } else {
+                    spill(callSite, true);
+                    emit(Opcodes.INVOKE, constant(callSite));
+                    fill(callSite, true);
+                }
+            } else {
+                spill();
+                emit(Opcodes.RUN, node(node));
+                fill();
+            }
+        }
+    }
+
+    /**
+     * A call is a tail call if it is followed by a return of the variable which receives the result and the called
+     * method, the variable and the calling method have the same type, so returning the result does not convert it.
+     */
+    private static boolean isTailCall(CallSite callSite, Block next) {
+        Slot receiver = callSite.getReceiver();
+
+        if(receiver == null || receiver.isArray() || !(next instanceof Return)) {
+            return false;
+        }
+
+        Slot returned = ((Return) next).getValue().getSlot();
+        Variable.VariableType type = next.getMethod().getReturnType();
+
+        return returned != null && returned.getDepth() == receiver.getDepth() && returned.getIndex() == receiver.getIndex()
+                && receiver.getType() == type && callSite.getMethod().getReturnType() == type;
+    }
+
+    /*
+    math(<expression>) <variable> is computed in registers, everything else goes through the call site.
+     */
+    private void line(CallSite callSite) {
+        if(!(callSite.getFunction() instanceof Math)) {
+            spill(callSite, false);
+            emit(Opcodes.CALL, constant(callSite));
+            fill(callSite, false);
+            return;
+        }
+
+        Expression expression = callSite.getArguments()[0].getExpression();
+        Slot target = callSite.getReceiver() != null ? callSite.getReceiver() : callSite.getArguments()[0].getSlot();
+        int register = variable(target);
+
+        steps++;
+
+        int[] mark = mark();
+
+        if(target.getType() == Variable.VariableType.DECIMAL) {
+            if(register != -1) {
+                decimal(expression, register);
+            } else {
+                emit(Opcodes.D_STORE, constant(target), decimal(expression, -1));
+            }
+        } else {
+            if(register != -1) {
+                integer(expression, register);
+            } else {
+                emit(Opcodes.I_STORE, constant(target), integer(expression, -1));
+            }
+        }
+
+        reset(mark);
+    }
+
+    private void ifBlock(If node) {
+        Label end = new Label();
+
+        branch(node, end);
+
+        for(ElseIf elseIf : node.getElseIfs()) {
+            branch(elseIf, end);
+        }
+
+        Else elze = node.getElse();
+
+        if(elze != null) {
+            statements(elze);
+        }
+
+        end.mark();
+    }
+
+    private void branch(ConditionalBlock node, Label end) {
+        Label next = new Label();
+
+        jumpUnless(node, next);
+        statements(node);
+        jump(end);
+        next.mark();
+    }
+
+    private void whileBlock(While node) {
+        Label condition = new Label(), end = new Label();
+
+        condition.mark();
+        jumpUnless(node, end);
+        statements(node);
+        steps++;
+        jump(condition);
+        end.mark();
+    }
+
+    private void doWhileBlock(DoWhile node) {
+        Label body = new Label();
+
+        body.mark();
+        statements(node);
+        steps++;
+        jumpIf(node, body);
+    }
+
+    /*
+    for(double i = lower; i < upper; i++) { count(counter, i); ... }
+
+    A counter in a register is set in the register, it is written to its variable when the variables are spilled.
+     */
+    private void forBlock(For node) {
+        int[] mark = mark();
+        int loop = node(node), i = decimals.next(), upper = decimals.next(), counter = refs.next();
+        int register = node.getCounterSlot() == null ? -1 : variable(node.getCounterSlot());
+
+        Label condition = new Label(), end = new Label();
+
+        spill();
+        emit(Opcodes.FOR_INIT, loop, i, upper, counter);
+        condition.mark();
+
+        if(register != -1) {
+            emit(Opcodes.D_JNLT, i, upper, end.use(3));
+            emit(node.getCounterSlot().getType() == Variable.VariableType.INTEGER ? Opcodes.D2I : Opcodes.D_MOVE, register, i);
+        } else {
+            emit(Opcodes.FOR_NEXT, loop, i, upper, counter, end.use(5));
+        }
+
+        statements(node);
+        steps++;
+        emit(Opcodes.D_INC, i);
+        jump(condition);
+        end.mark();
+
+        reset(mark);
+    }
+
+    private void foreachBlock(Foreach node) {
+        int[] mark = mark();
+        int values = refs.next(), element = refs.next(), index = ints.next();
+        int register = variable(node.getElementSlot());
+
+        Label condition = new Label(), end = new Label();
+
+        spill();
+        emit(Opcodes.FOREACH_INIT, node(node), values, element, index);
+
+        if(register == -1) {
+            condition.mark();
+            emit(Opcodes.FOREACH_NEXT, values, element, index, end.use(4));
+            statements(node);
+            steps++;
+            jump(condition);
+            end.mark();
+        } else {
+            // An element in a register gets the value in the register, like the counter of a for loop. The next
+            // element is taken at the end of the body, so every turn of the loop only needs one jump.
+            Label body = new Label();
+
+            jump(condition);
+            body.mark();
+            statements(node);
+            steps++;
+
+            int count = steps;
+            steps = 0;
+            condition.mark();
+            emit(node.getElementSlot().getType() == Variable.VariableType.INTEGER ? Opcodes.FOREACH_I : Opcodes.FOREACH_D,
+                    values, index, body.use(3), register, count);
+        }
+
+        reset(mark);
+    }
+
+    private void jumpUnless(ConditionalBlock node, Label target) {
+        Expression left = node.getLeft(), right = node.getRight();
+
+        if(left == null) {
+            spill();
+            emit(Opcodes.TEST, node(node), target.use(2));
+        } else if(isInteger(left, right)) {
+            compare(left, right, INTEGER_JUMPS_UNLESS[node.getCompareOperation().ordinal()], target);
+        } else {
+            compare(left, right, DECIMAL_JUMPS_UNLESS[node.getCompareOperation().ordinal()], target);
+        }
+    }
+
+    private void jumpIf(ConditionalBlock node, Label target) {
+        Expression left = node.getLeft(), right = node.getRight();
+
+        if(left == null) {
+            Label skip = new Label();
+
+            spill();
+            emit(Opcodes.TEST, node(node), skip.use(2));
+            jump(target);
+            skip.mark();
+        } else if(isInteger(left, right)) {
+            compare(left, right, INTEGER_JUMPS_IF[node.getCompareOperation().ordinal()], target);
+        } else {
+            compare(left, right, DECIMAL_JUMPS_IF[node.getCompareOperation().ordinal()], target);
+        }
+    }
+
+    private void compare(Expression left, Expression right, int jump, Label target) {
+        int[] mark = mark();
+        boolean integer = jump <= Opcodes.I_JLE;
+
+        if(integer && left instanceof Constant && !(right instanceof Constant)) {
+            // k < x is x > k, so the constant can be the operand of the jump.
+            compare(right, left, MIRRORED_JUMPS[jump - Opcodes.I_JEQ], target);
+        } else if(integer && right instanceof Constant) {
+            int a = integer(left, -1);
+
+            flush();
+            emit(jump - Opcodes.I_JEQ + Opcodes.I_JEQ_K, a, ((Constant) right).evaluateInteger(null), target.use(3));
+        } else {
+            int a = integer ? integer(left, -1) : decimal(left, -1), b = integer ? integer(right, -1) : decimal(right, -1);
+
+            flush();
+            emit(jump, a, b, target.use(3));
+        }
+
+        reset(mark);
+    }
+
+    private static boolean isInteger(Expression left, Expression right) {
+        return left.getType() == Variable.VariableType.INTEGER && right.getType() == Variable.VariableType.INTEGER;
+    }
+
+    /**
+     * Compiles the expression like {@link Expression#evaluateInteger}.
+     *
+     * @param target the register which gets the result, or <code>-1</code> for any register
+     * @return the register of the result
+     */
+    private int integer(Expression expression, int target) {
+        if(expression instanceof Constant) {
+            return move(Opcodes.I_MOVE, integerConstant(((Constant) expression).evaluateInteger(null)), target);
+        } else if(expression.getType() == Variable.VariableType.DECIMAL) {
+            int value = decimal(expression, -1);
+            return emit(Opcodes.D2I, target(ints, target), value);
+        } else if(expression instanceof Reference) {
+            Slot slot = ((Reference) expression).getSlot();
+            int register = variable(slot);
+
+            return register != -1 ? move(Opcodes.I_MOVE, register, target) : emit(Opcodes.I_LOAD, target(ints, target), constant(slot));
+        } else if(expression instanceof Element) {
+            Element element = (Element) expression;
+            int index = integer(element.getIndex(), -1);
+            return emit(Opcodes.I_ELEM, target(ints, target), constant(element.getSlot()), index);
+        } else if(expression instanceof Negate) {
+            int operand = integer(((Negate) expression).getOperand(), -1);
+            return emit(Opcodes.I_NEG, target(ints, target), operand);
+        }
+
+        Binary binary = (Binary) expression;
+        Expression left = binary.getLeft(), right = binary.getRight();
+        char operator = binary.getOperator();
+
+        if(left instanceof Constant && (operator == '+' || operator == '*')) {
+            Expression swap = left;
+            left = right;
+            right = swap;
+        }
+
+        if(right instanceof Constant) {
+            int value = ((Constant) right).evaluateInteger(null);
+
+            // A division by a constant zero is left to the instruction which fails on it.
+            if(operator != '/' && operator != '%' || value != 0) {
+                int a = integer(left, -1);
+
+                switch(operator) {
+                    case '+':
+                        return emit(Opcodes.I_ADD_K, target(ints, target), a, value);
+                    case '-':
+                        return emit(Opcodes.I_ADD_K, target(ints, target), a, -value);
+                    case '*':
+                        return emit(Opcodes.I_MUL_K, target(ints, target), a, value);
+                    case '/':
+                        return emit(Opcodes.I_DIV_K, target(ints, target), a, value);
+                    default:
+                        return emit(Opcodes.I_REM_K, target(ints, target), a, value);
+                }
+            }
+        }
+
+        int a = integer(left, -1), b = integer(right, -1);
+
+        switch(operator) {
+            case '+':
+                return emit(Opcodes.I_ADD, target(ints, target), a, b);
+            case '-':
+                return emit(Opcodes.I_SUB, target(ints, target), a, b);
+            case '*':
+                return emit(Opcodes.I_MUL, target(ints, target), a, b);
+            default:
+                return emit(operator == '/' ? Opcodes.I_DIV : Opcodes.I_REM, target(ints, target), a, b, constant(binary));
+        }
+    }
+
+    /**
+     * Compiles the expression like {@link Expression#evaluateDecimal}.
+     *
+     * @param target the register which gets the result, or <code>-1</code> for any register
+     * @return the register of the result
+     */
+    private int decimal(Expression expression, int target) {
+        if(expression instanceof Constant) {
+            return move(Opcodes.D_MOVE, decimalConstant(((Constant) expression).evaluateDecimal(null)), target);
+        } else if(expression.getType() == Variable.VariableType.INTEGER) {
+            int value = integer(expression, -1);
+            return emit(Opcodes.I2D, target(decimals, target), value);
+        } else if(expression instanceof Reference) {
+            Slot slot = ((Reference) expression).getSlot();
+            int register = variable(slot);
+
+            return register != -1 ? move(Opcodes.D_MOVE, register, target) : emit(Opcodes.D_LOAD, target(decimals, target), constant(slot));
+        } else if(expression instanceof Element) {
+            Element element = (Element) expression;
+            int index = integer(element.getIndex(), -1);
+            return emit(Opcodes.D_ELEM, target(decimals, target), constant(element.getSlot()), index);
+        } else if(expression instanceof Negate) {
+            int operand = decimal(((Negate) expression).getOperand(), -1);
+            return emit(Opcodes.D_NEG, target(decimals, target), operand);
+        }
+
+        Binary binary = (Binary) expression;
+        int a = decimal(binary.getLeft(), -1), b = decimal(binary.getRight(), -1);
+
+        switch(binary.getOperator()) {
+            case '+':
+                return emit(Opcodes.D_ADD, target(decimals, target), a, b);
+            case '-':
+                return emit(Opcodes.D_SUB, target(decimals, target), a, b);
+            case '*':
+                return emit(Opcodes.D_MUL, target(decimals, target), a, b);
+            case '/':
+                return emit(Opcodes.D_DIV, target(decimals, target), a, b);
+            default:
+                return emit(Opcodes.D_REM, target(decimals, target), a, b);
+        }
+    }
+
+    private int move(int opcode, int source, int target) {
+        if(target == -1 || target == source) {
+            return source;
+        }
+
+        return emit(opcode, target, source);
+    }
+
+    private static int target(Registers registers, int target) {
+        return target != -1 ? target : registers.next();
+    }
+
+    /**
+     * @return the register of a scalar integer or decimal variable in the frame of the method, or <code>-1</code> if
+     * the variable stays in the frame
+     */
+    private int variable(Slot slot) {
+        if(slot.getDepth() != 0 || slot.isArray() || (slot.getType() != Variable.VariableType.INTEGER && slot.getType() != Variable.VariableType.DECIMAL)) {
+            return -1;
+        }
+
+        // Slots of the same variable are different objects, so they are told apart by their index and type.
+        String key = slot.getType().name() + slot.getIndex();
+        Slot known = variableSlots.get(key);
+
+        if(known == null) {
+            variableSlots.put(key, known = slot);
+        }
+
+        Map<Slot, Integer> variables = slot.getType() == Variable.VariableType.INTEGER ? integerVariables : decimalVariables;
+        Integer register = variables.get(known);
+
+        if(register == null) {
+            variables.put(known, register = (slot.getType() == Variable.VariableType.INTEGER ? ints : decimals).next());
+        }
+
+        return register;
+    }
+
+    private int integerConstant(int value) {
+        Integer register = integerConstants.get(value);
+
+        if(register == null) {
+            integerConstants.put(value, register = ints.next());
+        }
+
+        return register;
+    }
+
+    private int decimalConstant(double value) {
+        Integer register = decimalConstants.get(value);
+
+        if(register == null) {
+            decimalConstants.put(value, register = decimals.next());
+        }
+
+        return register;
+    }
+
+    private void spill() {
+        // The variables which were just read from the frame do not have to be written back.
+        if(filled != length || marked == length) {
+            emit(Opcodes.SPILL);
+        }
+    }
+
+    private void fill() {
+        emit(Opcodes.FILL);
+        filled = length;
+    }
+
+    /*
+    A call can only read and change the variables of its arguments and the variable of its result, the other variables
+    stay in their registers. A method gets the values of its arguments, so it can only change the variable of its
+    result, and the variable which is declared is not read.
+     */
+    private void spill(CallSite callSite, boolean method) {
+        flush();
+
+        for(Map.Entry<Slot, Integer> variable : integerVariables.entrySet()) {
+            if(reads(callSite, variable.getKey(), method)) {
+                emit(Opcodes.I_SPILL, constant(variable.getKey()), variable.getValue());
+            }
+        }
+
+        for(Map.Entry<Slot, Integer> variable : decimalVariables.entrySet()) {
+            if(reads(callSite, variable.getKey(), method)) {
+                emit(Opcodes.D_SPILL, constant(variable.getKey()), variable.getValue());
+            }
+        }
+    }
+
+    private void fill(CallSite callSite, boolean method) {
+        for(Map.Entry<Slot, Integer> variable : integerVariables.entrySet()) {
+            if(writes(callSite, variable.getKey(), method)) {
+                emit(Opcodes.I_FILL, variable.getValue(), constant(variable.getKey()));
+            }
+        }
+
+        for(Map.Entry<Slot, Integer> variable : decimalVariables.entrySet()) {
+            if(writes(callSite, variable.getKey(), method)) {
+                emit(Opcodes.D_FILL, variable.getValue(), constant(variable.getKey()));
+            }
+        }
+    }
+
+    private static boolean reads(CallSite callSite, Slot slot, boolean method) {
+        Argument[] arguments = callSite.getArguments();
+
+        for(int n = 0; n < arguments.length; n++) {
+            if(arguments[n].uses(slot) && (n != 1 || !(callSite.getFunction() instanceof Declare))) {
+                return true;
+            }
+        }
+
+        return !method && isReceiver(callSite, slot);
+    }
+
+    private static boolean writes(CallSite callSite, Slot slot, boolean method) {
+        if(isReceiver(callSite, slot)) {
+            return true;
+        } else if(method) {
+            return false;
+        }
+
+        for(Argument argument : callSite.getArguments()) {
+            if(argument.uses(slot)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean isReceiver(CallSite callSite, Slot slot) {
+        Slot receiver = callSite.getReceiver();
+
+        return receiver != null && receiver.getDepth() == slot.getDepth() && receiver.getIndex() == slot.getIndex();
+    }
+
+    /**
+     * Counts the steps which are not counted yet. This has to be done before every jump and every jump target, so the
+     * steps are the same on every path, and before every statement which is not compiled to registers.
+     */
+    private void flush() {
+        if(steps > 0) {
+            int count = steps;
+            steps = 0;
+            emit(Opcodes.STEP, count);
+        }
+    }
+
+    private void jump(Label target) {
+        jump = length;
+
+        if(steps > 0) {
+            int count = steps;
+            steps = 0;
+            emit(Opcodes.STEP_JUMP, target.use(1), count);
+        } else {
+            emit(Opcodes.JUMP, target.use(1));
+        }
+    }
+
+    private int node(Block block) {
+        nodes.add(block);
+        return nodes.size() - 1;
+    }
+
+    private int constant(Object value) {
+        constants.add(value);
+        return constants.size() - 1;
+    }
+
+    /**
+     * @return the first operand, which is the register written by most instructions
+     */
+    private int emit(int... instruction) {
+        if(instruction[0] < Opcodes.I_CONST || instruction[0] > Opcodes.D_INC && instruction[0] < Opcodes.I_ADD_K || instruction[0] > Opcodes.I_REM_K) {
+            flush();
+        }
+
+        if(length + instruction.length > code.length) {
+            code = Arrays.copyOf(code, java.lang.Math.max(code.length * 2, length + instruction.length));
+        }
+
+        System.arraycopy(instruction, 0, code, length, instruction.length);
+        length += instruction.length;
+
+        return instruction.length > 1 ? instruction[1] : -1;
+    }
+
+    private static int[] registers(Map<Slot, Integer> variables) {
+        int[] registers = new int[variables.size()];
+        int i = 0;
+
+        for(int register : variables.values()) {
+            registers[i++] = register;
+        }
+
+        return registers;
+    }
+
+    /*
+    Temporary registers are allocated like a stack: the temporaries of a statement and the registers of a loop are
+    released when it is compiled.
+     */
+    private int[] mark() {
+        return new int[]{ints.top, decimals.top, refs.top};
+    }
+
+    private void reset(int[] mark) {
+        ints.top = mark[0];
+        decimals.top = mark[1];
+        refs.top = mark[2];
+    }
+
+    private static class Registers {
+
+        private int top;
+        private int max;
+
+        private int next() {
+            max = java.lang.Math.max(max, top + 1);
+            return top++;
+        }
+
+    }
+
+    /**
+     * A jump target. Jumps to a label which is not marked yet are patched when it is marked.
+     */
+    private class Label {
+
+        private int position = -1;
+        private final List<Integer> uses = new ArrayList<>();
+
+        /**
+         * @param offset the offset of the target operand from the start of the instruction which is emitted next
+         * @return the target, or a placeholder which is patched by {@link #mark()}
+         */
+        private int use(int offset) {
+            if(position == -1) {
+                uses.add(length + offset);
+            }
+
+            return position;
+        }
+
+        private void mark() {
+            flush();
+
+            // A jump to the next instruction is left out.
+            if(jump != -1 && jump + Opcodes.OPERANDS[code[jump]] + 1 == length && !uses.isEmpty() && uses.get(uses.size() - 1) == jump + 1) {
+                uses.remove(uses.size() - 1);
+
+                if(code[jump] == Opcodes.STEP_JUMP) {
+                    code[jump] = Opcodes.STEP;
+                    code[jump + 1] = code[jump + 2];
+                    length--;
+                } else {
+                    length = jump;
+                }
+
+                jump = -1;
+
+                // The labels after the jump move with the end of the code.
+                if(marked > length) {
+                    for(Label label : labels) {
+                        label.position = length;
+
+                        for(int use : label.uses) {
+                            code[use] = length;
+                        }
+                    }
+
+                    marked = length;
+                }
+            }
+
+            if(marked != length) {
+                labels.clear();
+                marked = length;
+            }
+
+            labels.add(this);
+            position = length;
+
+            for(int use : uses) {
+                code[use] = position;
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,564 @@
+package com.florianwoelki.flow.vm;
+
+import com.florianwoelki.flow.compiler.CompiledMethod;
+import com.florianwoelki.flow.exception.InvalidCodeException;
+import com.florianwoelki.flow.function.CallSite;
+import com.florianwoelki.flow.lang.Block;
+import com.florianwoelki.flow.lang.ConditionalBlock;
+import com.florianwoelki.flow.lang.For;
+import com.florianwoelki.flow.lang.Foreach;
+import com.florianwoelki.flow.lang.Frame;
+import com.florianwoelki.flow.lang.Method;
+import com.florianwoelki.flow.lang.Slot;
+import com.florianwoelki.flow.lang.Variable;
+
+import java.util.Arrays;
+
+/**
+ * The Flow bytecode of one method and the loop which runs it. The registers are allocated for every call, so a
+ * method can call itself and run on many threads at once. Calls of methods which also run on the VM do not use the
+ * Java stack, see {@link #execute(Frame)}. The integer and decimal variables of the method are kept
+ * in registers, <code>SPILL</code> and <code>FILL</code> copy them between the registers and the frame.
+ * <p>
+ * The time of the loop goes to the dispatch of its switch, so {@link VmCompiler} saves instructions where it can.
+ * Compared with the tree walk a loop with integer and decimal math runs 10 to 25% faster and a loop which only counts
+ * up 5 to 20% faster, recursion runs about as fast. A foreach whose body is a single short statement is still up to
+ * 40% slower, the JIT compiler inlines the whole turn of the tree walk there.
+ */
+public class VmMethod extends CompiledMethod {
+
+    private final Method method;
+    private final int[] code;
+    private final int integerRegisters, decimalRegisters, referenceRegisters;
+
+    private final Slot[] integerVariables, decimalVariables;
+    private final int[] integerVariableRegisters, decimalVariableRegisters;
+
+    /**
+     * @param registers the number of integer, decimal and reference registers
+     */
+    VmMethod(Block[] nodes, Object[] constants, int[] code, int[] registers, Method method, Slot[] integerVariables, int[] integerVariableRegisters, Slot[] decimalVariables, int[] decimalVariableRegisters) {
+        super(nodes, constants);
+
+        this.method = method;
+        this.code = code;
+        this.integerRegisters = registers[0];
+        this.decimalRegisters = registers[1];
+        this.referenceRegisters = registers[2];
+        this.integerVariables = integerVariables;
+        this.integerVariableRegisters = integerVariableRegisters;
+        this.decimalVariables = decimalVariables;
+        this.decimalVariableRegisters = decimalVariableRegisters;
+    }
+
+    /**
+     * Runs the method and every method it calls which also runs on the VM. The calls are kept as activations on a
+     * stack in the heap, so the depth of the recursion is only limited by the memory.
+     */
+    @Override
+    public void execute(Frame root) throws InvalidCodeException {
+        Activation current = new Activation(this, root, null, false);
+        Activation[] callers = new Activation[8];
+        int depth = 0;
+
+        run:
+        while(true) {
+            final VmMethod method = current.method;
+            final int[] code = method.code;
+            final Object[] constants = method.constants;
+            final Block[] nodes = method.nodes;
+            final Frame frame = current.frame;
+            final int[] i = current.i;
+            final double[] d = current.d;
+            final Object[] r = current.r;
+
+            int pc = current.pc;
+
+            while(true) {
+                switch(code[pc]) {
+                    case Opcodes.END:
+                    case Opcodes.RETURN: {
+                        if(code[pc] == Opcodes.RETURN) {
+                            nodes[code[pc + 1]].run(frame);
+                        }
+
+                        if(depth == 0 && frame == root) {
+                            return;
+                        }
+
+                        Object value = current.leave();
+
+                        if(depth == 0) {
+                            root.doReturn(value);
+                            return;
+                        }
+
+                        if(current.receiver != null) {
+                            current.receiver.setValue(value);
+                        }
+
+                        current = callers[--depth];
+                        callers[depth] = null;
+                        continue run;
+                    }
+                    case Opcodes.JUMP:
+                        pc = code[pc + 1];
+                        break;
+                    case Opcodes.STEP:
+                        frame.step(code[pc + 1]);
+                        pc += 2;
+                        break;
+                    case Opcodes.STEP_JUMP:
+                        frame.step(code[pc + 2]);
+                        pc = code[pc + 1];
+                        break;
+                    case Opcodes.SPILL:
+                        method.spill(frame, i, d);
+                        pc += 1;
+                        break;
+                    case Opcodes.FILL:
+                        method.fill(frame, i, d);
+                        pc += 1;
+                        break;
+                    case Opcodes.I_SPILL: {
+                        Variable variable = declared((Slot) constants[code[pc + 1]], frame);
+
+                        if(variable != null) {
+                            variable.setInteger(i[code[pc + 2]]);
+                        }
+
+                        pc += 3;
+                        break;
+                    }
+                    case Opcodes.I_FILL: {
+                        Variable variable = declared((Slot) constants[code[pc + 2]], frame);
+
+                        if(variable != null) {
+                            i[code[pc + 1]] = variable.getInteger();
+                        }
+
+                        pc += 3;
+                        break;
+                    }
+                    case Opcodes.D_SPILL: {
+                        Variable variable = declared((Slot) constants[code[pc + 1]], frame);
+
+                        if(variable != null) {
+                            variable.setDecimal(d[code[pc + 2]]);
+                        }
+
+                        pc += 3;
+                        break;
+                    }
+                    case Opcodes.D_FILL: {
+                        Variable variable = declared((Slot) constants[code[pc + 2]], frame);
+
+                        if(variable != null) {
+                            d[code[pc + 1]] = variable.getDecimal();
+                        }
+
+                        pc += 3;
+                        break;
+                    }
+                    case Opcodes.RUN:
+                        nodes[code[pc + 1]].run(frame);
+                        pc += 2;
+                        break;
+                    case Opcodes.CALL:
+                        frame.step();
+                        ((CallSite) constants[code[pc + 1]]).call(frame);
+                        pc += 2;
+                        break;
+                    case Opcodes.INVOKE:
+                    case Opcodes.TAIL: {
+                        CallSite callSite = (CallSite) constants[code[pc + 1]];
+                        Method target = callSite.getMethod();
+
+                        frame.step();
+
+                        if(!(target.getCompiled() instanceof VmMethod)) {
+                            callSite.call(frame);
+                            pc += 2;
+                            break;
+                        }
+
+                        if(code[pc] == Opcodes.TAIL) {
+                            Frame callee = target.enter(frame, callSite.evaluateArguments(frame));
+                            current = new Activation((VmMethod) target.getCompiled(), callee, current.receiver, true);
+                        } else {
+                            Variable receiver = callSite.getReceiver() == null ? null : callSite.getReceiver().get(frame);
+                            Frame callee = target.enter(frame, callSite.evaluateArguments(frame));
+
+                            if(depth == callers.length) {
+                                callers = Arrays.copyOf(callers, depth * 2);
+                            }
+
+                            current.pc = pc + 2;
+                            callers[depth++] = current;
+                            current = new Activation((VmMethod) target.getCompiled(), callee, receiver, false);
+                        }
+
+                        continue run;
+                    }
+                    case Opcodes.TEST:
+                        pc = ((ConditionalBlock) nodes[code[pc + 1]]).test(frame) ? pc + 3 : code[pc + 2];
+                        break;
+
+                    case Opcodes.I_CONST:
+                        i[code[pc + 1]] = code[pc + 2];
+                        pc += 3;
+                        break;
+                    case Opcodes.I_MOVE:
+                        i[code[pc + 1]] = i[code[pc + 2]];
+                        pc += 3;
+                        break;
+                    case Opcodes.I_LOAD:
+                        i[code[pc + 1]] = ((Slot) constants[code[pc + 2]]).get(frame).getInteger();
+                        pc += 3;
+                        break;
+                    case Opcodes.I_ELEM:
+                        i[code[pc + 1]] = array(frame, constants[code[pc + 2]]).getInteger(i[code[pc + 3]]);
+                        pc += 4;
+                        break;
+                    case Opcodes.I_STORE:
+                        ((Slot) constants[code[pc + 1]]).get(frame).setInteger(i[code[pc + 2]]);
+                        pc += 3;
+                        break;
+                    case Opcodes.I_ADD:
+                        i[code[pc + 1]] = i[code[pc + 2]] + i[code[pc + 3]];
+                        pc += 4;
+                        break;
+                    case Opcodes.I_SUB:
+                        i[code[pc + 1]] = i[code[pc + 2]] - i[code[pc + 3]];
+                        pc += 4;
+                        break;
+                    case Opcodes.I_MUL:
+                        i[code[pc + 1]] = i[code[pc + 2]] * i[code[pc + 3]];
+                        pc += 4;
+                        break;
+                    case Opcodes.I_DIV:
+                        i[code[pc + 1]] = i[code[pc + 2]] / divisor(i[code[pc + 3]], constants[code[pc + 4]]);
+                        pc += 5;
+                        break;
+                    case Opcodes.I_REM:
+                        i[code[pc + 1]] = i[code[pc + 2]] % divisor(i[code[pc + 3]], constants[code[pc + 4]]);
+                        pc += 5;
+                        break;
+                    case Opcodes.I_ADD_K:
+                        i[code[pc + 1]] = i[code[pc + 2]] + code[pc + 3];
+                        pc += 4;
+                        break;
+                    case Opcodes.I_MUL_K:
+                        i[code[pc + 1]] = i[code[pc + 2]] * code[pc + 3];
+                        pc += 4;
+                        break;
+                    case Opcodes.I_DIV_K:
+                        i[code[pc + 1]] = i[code[pc + 2]] / code[pc + 3];
+                        pc += 4;
+                        break;
+                    case Opcodes.I_REM_K:
+                        i[code[pc + 1]] = i[code[pc + 2]] % code[pc + 3];
+                        pc += 4;
+                        break;
+                    case Opcodes.I_NEG:
+                        i[code[pc + 1]] = -i[code[pc + 2]];
+                        pc += 3;
+                        break;
+                    case Opcodes.I2D:
+                        d[code[pc + 1]] = i[code[pc + 2]];
+                        pc += 3;
+                        break;
+
+                    case Opcodes.D_CONST:
+                        d[code[pc + 1]] = (Double) constants[code[pc + 2]];
+                        pc += 3;
+                        break;
+                    case Opcodes.D_MOVE:
+                        d[code[pc + 1]] = d[code[pc + 2]];
+                        pc += 3;
+                        break;
+                    case Opcodes.D_LOAD:
+                        d[code[pc + 1]] = ((Slot) constants[code[pc + 2]]).get(frame).getDecimal();
+                        pc += 3;
+                        break;
+                    case Opcodes.D_ELEM:
+                        d[code[pc + 1]] = array(frame, constants[code[pc + 2]]).getDecimal(i[code[pc + 3]]);
+                        pc += 4;
+                        break;
+                    case Opcodes.D_STORE:
+                        ((Slot) constants[code[pc + 1]]).get(frame).setDecimal(d[code[pc + 2]]);
+                        pc += 3;
+                        break;
+                    case Opcodes.D_ADD:
+                        d[code[pc + 1]] = d[code[pc + 2]] + d[code[pc + 3]];
+                        pc += 4;
+                        break;
+                    case Opcodes.D_SUB:
+                        d[code[pc + 1]] = d[code[pc + 2]] - d[code[pc + 3]];
+                        pc += 4;
+                        break;
+                    case Opcodes.D_MUL:
+                        d[code[pc + 1]] = d[code[pc + 2]] * d[code[pc + 3]];
+                        pc += 4;
+                        break;
+                    case Opcodes.D_DIV:
+                        d[code[pc + 1]] = d[code[pc + 2]] / d[code[pc + 3]];
+                        pc += 4;
+                        break;
+                    case Opcodes.D_REM:
+                        d[code[pc + 1]] = d[code[pc + 2]] % d[code[pc + 3]];
+                        pc += 4;
+                        break;
+                    case Opcodes.D_NEG:
+                        d[code[pc + 1]] = -d[code[pc + 2]];
+                        pc += 3;
+                        break;
+                    case Opcodes.D2I:
+                        i[code[pc + 1]] = (int) d[code[pc + 2]];
+                        pc += 3;
+                        break;
+                    case Opcodes.D_INC:
+                        d[code[pc + 1]]++;
+                        pc += 2;
+                        break;
+
+                    case Opcodes.I_JEQ:
+                        pc = i[code[pc + 1]] == i[code[pc + 2]] ? code[pc + 3] : pc + 4;
+                        break;
+                    case Opcodes.I_JNE:
+                        pc = i[code[pc + 1]] != i[code[pc + 2]] ? code[pc + 3] : pc + 4;
+                        break;
+                    case Opcodes.I_JLT:
+                        pc = i[code[pc + 1]] < i[code[pc + 2]] ? code[pc + 3] : pc + 4;
+                        break;
+                    case Opcodes.I_JGE:
+                        pc = i[code[pc + 1]] >= i[code[pc + 2]] ? code[pc + 3] : pc + 4;
+                        break;
+                    case Opcodes.I_JGT:
+                        pc = i[code[pc + 1]] > i[code[pc + 2]] ? code[pc + 3] : pc + 4;
+                        break;
+                    case Opcodes.I_JLE:
+                        pc = i[code[pc + 1]] <= i[code[pc + 2]] ? code[pc + 3] : pc + 4;
+                        break;
+                    case Opcodes.D_JEQ:
+                        pc = d[code[pc + 1]] == d[code[pc + 2]] ? code[pc + 3] : pc + 4;
+                        break;
+                    case Opcodes.D_JNE:
+                        pc = d[code[pc + 1]] != d[code[pc + 2]] ? code[pc + 3] : pc + 4;
+                        break;
+                    case Opcodes.D_JLT:
+                        pc = d[code[pc + 1]] < d[code[pc + 2]] ? code[pc + 3] : pc + 4;
+                        break;
+                    case Opcodes.D_JGT:
+                        pc = d[code[pc + 1]] > d[code[pc + 2]] ? code[pc + 3] : pc + 4;
+                        break;
+                    case Opcodes.D_JNGT:
+                        pc = !(d[code[pc + 1]] > d[code[pc + 2]]) ? code[pc + 3] : pc + 4;
+                        break;
+                    case Opcodes.D_JNLT:
+                        pc = !(d[code[pc + 1]] < d[code[pc + 2]]) ? code[pc + 3] : pc + 4;
+                        break;
+                    case Opcodes.I_JEQ_K:
+                        pc = i[code[pc + 1]] == code[pc + 2] ? code[pc + 3] : pc + 4;
+                        break;
+                    case Opcodes.I_JNE_K:
+                        pc = i[code[pc + 1]] != code[pc + 2] ? code[pc + 3] : pc + 4;
+                        break;
+                    case Opcodes.I_JLT_K:
+                        pc = i[code[pc + 1]] < code[pc + 2] ? code[pc + 3] : pc + 4;
+                        break;
+                    case Opcodes.I_JGE_K:
+                        pc = i[code[pc + 1]] >= code[pc + 2] ? code[pc + 3] : pc + 4;
+                        break;
+                    case Opcodes.I_JGT_K:
+                        pc = i[code[pc + 1]] > code[pc + 2] ? code[pc + 3] : pc + 4;
+                        break;
+                    case Opcodes.I_JLE_K:
+                        pc = i[code[pc + 1]] <= code[pc + 2] ? code[pc + 3] : pc + 4;
+                        break;
+
+                    case Opcodes.FOR_INIT: {
+                        For loop = (For) nodes[code[pc + 1]];
+                        double[] bounds = loop.bounds(frame);
+
+                        d[code[pc + 2]] = bounds[0];
+                        d[code[pc + 3]] = bounds[1];
+                        r[code[pc + 4]] = loop.getCounter(frame);
+                        pc += 5;
+                        break;
+                    }
+                    case Opcodes.FOR_NEXT: {
+                        double count = d[code[pc + 2]];
+
+                        if(count < d[code[pc + 3]]) {
+                            ((For) nodes[code[pc + 1]]).count((Variable) r[code[pc + 4]], count);
+                            pc += 6;
+                        } else {
+                            pc = code[pc + 5];
+                        }
+                        break;
+                    }
+                    case Opcodes.FOREACH_INIT: {
+                        Foreach loop = (Foreach) nodes[code[pc + 1]];
+
+                        r[code[pc + 2]] = loop.values(frame);
+                        r[code[pc + 3]] = loop.declareElement(frame);
+                        i[code[pc + 4]] = 0;
+                        pc += 5;
+                        break;
+                    }
+                    case Opcodes.FOREACH_NEXT: {
+                        Variable values = (Variable) r[code[pc + 1]];
+                        int index = i[code[pc + 3]];
+
+                        if(index < values.getLength()) {
+                            ((Variable) r[code[pc + 2]]).copyElement(values, index);
+                            i[code[pc + 3]] = index + 1;
+                            pc += 5;
+                        } else {
+                            pc = code[pc + 4];
+                        }
+                        break;
+                    }
+
+                    case Opcodes.FOREACH_I:
+                    case Opcodes.FOREACH_D: {
+                        Variable values = (Variable) r[code[pc + 1]];
+                        int index = i[code[pc + 2]];
+
+                        if(index > 0) {
+                            frame.step(code[pc + 5]);
+                        }
+
+                        if(index < values.getLength()) {
+                            if(code[pc] == Opcodes.FOREACH_I) {
+                                i[code[pc + 4]] = values.getInteger(index);
+                            } else {
+                                d[code[pc + 4]] = values.getDecimal(index);
+                            }
+
+                            i[code[pc + 2]] = index + 1;
+                            pc = code[pc + 3];
+                        } else {
+                            pc += 6;
+                        }
+                        break;
+                    }
+
+                    default:
+                        throw new IllegalStateException("Invalid opcode " + code[pc] + " at " + pc + ".");
+                }
+            }
+        }
+    }
+
+    /*
+    Variables which are not declared yet are skipped, reading them fails in the frame like in the other engines. So are
+    variables which are declared again with another type.
+     */
+    private void spill(Frame frame, int[] i, double[] d) {
+        for(int n = 0; n < integerVariables.length; n++) {
+            Variable variable = declared(integerVariables[n], frame);
+
+            if(variable != null) {
+                variable.setInteger(i[integerVariableRegisters[n]]);
+            }
+        }
+
+        for(int n = 0; n < decimalVariables.length; n++) {
+            Variable variable = declared(decimalVariables[n], frame);
+
+            if(variable != null) {
+                variable.setDecimal(d[decimalVariableRegisters[n]]);
+            }
+        }
+    }
+
+    private void fill(Frame frame, int[] i, double[] d) {
+        for(int n = 0; n < integerVariables.length; n++) {
+            Variable variable = declared(integerVariables[n], frame);
+
+            if(variable != null) {
+                i[integerVariableRegisters[n]] = variable.getInteger();
+            }
+        }
+
+        for(int n = 0; n < decimalVariables.length; n++) {
+            Variable variable = declared(decimalVariables[n], frame);
+
+            if(variable != null) {
+                d[decimalVariableRegisters[n]] = variable.getDecimal();
+            }
+        }
+    }
+
+    private static Variable array(Frame frame, Object slot) throws InvalidCodeException {
+        return ((Slot) slot).get(frame);
+    }
+
+    /**
+     * A call of a method on the VM: its frame, its registers and where it goes on.
+     */
+    private static class Activation {
+
+        private final VmMethod method;
+        private final Frame frame;
+        private final int[] i;
+        private final double[] d;
+        private final Object[] r;
+
+        /**
+         * The variable of the calling method which gets the result.
+         */
+        private final Variable receiver;
+
+        /**
+         * Whether the method was called by a tail call, its result is then returned by the calling method too.
+         */
+        private final boolean tail;
+
+        private int pc;
+
+        private Activation(VmMethod method, Frame frame, Variable receiver, boolean tail) {
+            this.method = method;
+            this.frame = frame;
+            this.i = new int[method.integerRegisters];
+            this.d = new double[method.decimalRegisters];
+            this.r = new Object[method.referenceRegisters];
+            this.receiver = receiver;
+            this.tail = tail;
+        }
+
+        /**
+         * @return the result, a result which is returned through a tail call is converted like the variable which
+         * received it would have converted it
+         */
+        private Object leave() throws InvalidCodeException {
+            Object value = method.method.leave(frame);
+
+            return tail ? method.method.getReturnType().formatValue(value) : value;
+        }
+
+    }
+
+    /**
+     * @return the instructions, one per line
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+
+        for(int pc = 0; pc < code.length; pc += 1 + Opcodes.OPERANDS[code[pc]]) {
+            builder.append(pc).append(": ").append(Opcodes.NAMES[code[pc]]);
+
+            for(int operand = 1; operand <= Opcodes.OPERANDS[code[pc]]; operand++) {
+                builder.append(' ').append(code[pc + operand]);
+            }
+
+            builder.append('\n');
+        }
+
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,58 @@
+package com.florianwoelki.flow;
+
+import com.florianwoelki.flow.console.MemoryConsole;
+import com.florianwoelki.flow.lang.Class;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+public class ExecutionServiceTest {
+
+    @Test(timeout = 30000)
+    public void programsRunConcurrently() throws Exception {
+        try(ExecutionService service = new ExecutionService(4)) {
+            List<Future<ExecutionResult>> results = new ArrayList<>();
+
+            for(int i = 0; i < 100; i++) {
+                results.add(service.submit(new String[]{"fn main:void", "declare(integer, x, 0)", "getinput() x", "math(x * 2) x", "println(x)", "end main"}, String.valueOf(i)));
+            }
+
+            for(int i = 0; i < results.size(); i++) {
+                ExecutionResult result = results.get(i).get();
+
+                Assert.assertEquals(Runner.OK, result.getStatus());
+                Assert.assertEquals((i * 2) + "\n", result.getOutput());
+                Assert.assertTrue(result.getWallTime() > 0);
+            }
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void oneClassRunsTwiceWithoutSharingState() throws Exception {
+        Class program = new Class(new String[]{"fn main:void", "declare(integer, x, 0)", "getinput() x", "println(x)", "end main"});
+
+        try(ExecutionService service = new ExecutionService(2)) {
+            MemoryConsole a = new MemoryConsole("1"), b = new MemoryConsole("2");
+            Future<ExecutionResult> first = service.submit(program, a), second = service.submit(program, b);
+
+            Assert.assertEquals(Runner.OK, first.get().getStatus());
+            Assert.assertEquals(Runner.OK, second.get().getStatus());
+            Assert.assertEquals("1\n", a.getOutput());
+            Assert.assertEquals("2\n", b.getOutput());
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void invalidCodeIsReported() throws Exception {
+        try(ExecutionService service = new ExecutionService(1)) {
+            ExecutionResult result = service.submit(new String[]{"fn main:void", "nope()", "end main"}).get();
+
+            Assert.assertEquals(Runner.INVALID_CODE, result.getStatus());
+            Assert.assertTrue(result.getInfo().startsWith("Error: "));
+        }
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.florianwoelki.flow;
+
+import com.florianwoelki.flow.console.MemoryConsole;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RunnerTest {
+
+    @Test
+    public void runExample() {
+        MemoryConsole console = new MemoryConsole("7");
+
+        Assert.assertEquals(Runner.OK, Runner.run(new String[]{"run", "src/main/resources/examples/GetInput.flow"}, console));
+        Assert.assertEquals("Input was 7\n", console.getOutput());
+        Assert.assertEquals("--Terminated.", console.getInfo());
+    }
+
+    @Test
+    public void invalidCode() {
+        Assert.assertEquals(Runner.INVALID_CODE, Runner.run(new String[]{"run", "src/main/resources/examples/GetInput.flow"}, new MemoryConsole()));
+    }
+
+    @Test
+    public void usage() {
+        Assert.assertEquals(Runner.USAGE, Runner.run(new String[]{"run"}, new MemoryConsole()));
+    }
+
+}
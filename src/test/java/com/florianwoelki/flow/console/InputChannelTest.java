@@ -0,0 +1,45 @@
+package com.florianwoelki.flow.console;
+
+import com.florianwoelki.flow.exception.InvalidCodeException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class InputChannelTest {
+
+    @Test(timeout = 5000)
+    public void lineIsHandedToTheWaitingThread() throws Exception {
+        InputChannel channel = new InputChannel();
+        String[] received = new String[1];
+
+        Thread program = new Thread(() -> {
+            try {
+                received[0] = channel.receive();
+            } catch(InvalidCodeException e) {
+                received[0] = e.getMessage();
+            }
+        });
+        program.start();
+        channel.send("42");
+        program.join();
+
+        Assert.assertEquals("42", received[0]);
+    }
+
+    @Test
+    public void closedChannelKeepsItsLines() throws Exception {
+        InputChannel channel = new InputChannel("a");
+        channel.close();
+
+        Assert.assertEquals("a", channel.receive());
+
+        for(int i = 0; i < 2; i++) {
+            try {
+                channel.receive();
+                Assert.fail();
+            } catch(InvalidCodeException e) {
+                Assert.assertEquals("No more input.", e.getMessage());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,58 @@
+package com.florianwoelki.flow.expression;
+
+import com.florianwoelki.flow.exception.InvalidCodeException;
+import com.florianwoelki.flow.lang.Scope;
+import com.florianwoelki.flow.lang.Variable;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ExpressionParserTest {
+
+    @Test
+    public void precedence() throws Exception {
+        Expression expression = parse("2 + 3 * (4 - 1) % 5 - -1");
+
+        Assert.assertTrue(expression.isConstant());
+        Assert.assertEquals(7, expression.evaluateInteger(null));
+    }
+
+    @Test
+    public void integerAndDecimal() throws Exception {
+        Assert.assertEquals(Variable.VariableType.INTEGER, parse("7 / 2").getType());
+        Assert.assertEquals(3, parse("7 / 2").evaluateInteger(null));
+        Assert.assertEquals(Variable.VariableType.DECIMAL, parse("7 / 2.0").getType());
+        Assert.assertEquals(3.5, parse("7 / 2.0").evaluateDecimal(null), 0);
+    }
+
+    @Test
+    public void variablesAreNotFolded() throws Exception {
+        Scope scope = new Scope(null, true);
+        scope.declare("x", Variable.VariableType.INTEGER, false);
+
+        Expression expression = new ExpressionParser("x * (1 + 1)", scope).parse();
+
+        Assert.assertFalse(expression.isConstant());
+        Assert.assertEquals("(x * 2)", expression.toString());
+    }
+
+    @Test
+    public void nestedIndices() throws Exception {
+        Scope scope = new Scope(null, true);
+        scope.declare("a", Variable.VariableType.INTEGER, true);
+        scope.declare("b", Variable.VariableType.INTEGER, true);
+
+        Expression expression = new ExpressionParser("a[b[0] + 1] * 2", scope).parse();
+
+        Assert.assertEquals("(a[(b[0] + 1)] * 2)", expression.toString());
+    }
+
+    @Test(expected = InvalidCodeException.class)
+    public void divisionByZero() throws Exception {
+        parse("1 / (2 - 2)");
+    }
+
+    private Expression parse(String source) throws InvalidCodeException {
+        return new ExpressionParser(source, new Scope(null, true)).parse();
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.florianwoelki.flow.function;
+
+import com.florianwoelki.flow.exception.InvalidCodeException;
+import com.florianwoelki.flow.lang.Class;
+import org.junit.Test;
+
+public class FunctionManagerTest {
+
+    @Test(expected = InvalidCodeException.class)
+    public void unknownFunctionIsReportedBeforeRunning() throws Exception {
+        new Class(new String[]{"fn main:void", "declare(integer, x, 1)", "prnt(x)", "end main"}).parse();
+    }
+
+    @Test(expected = InvalidCodeException.class)
+    public void methodDeclaredTwice() throws Exception {
+        new Class(new String[]{"fn main:void", "end main", "fn main:void", "end main"}).parse();
+    }
+
+    @Test
+    public void methodsComeBeforeFunctions() throws Exception {
+        new Class(new String[]{"fn main:void", "print(1, 2)", "end main", "fn print:void integer:a integer:b", "end print"}).parse();
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.florianwoelki.flow.gui;
+
+import com.florianwoelki.flow.console.OutputType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class OutputBufferTest {
+
+    @Test
+    public void writesOfTheSameTypeAreJoined() {
+        OutputBuffer buffer = new OutputBuffer();
+        buffer.write(OutputType.OUTPUT, "a");
+        buffer.write(OutputType.OUTPUT, "b");
+        buffer.write(OutputType.INFO, "c");
+
+        List<OutputBuffer.Chunk> chunks = buffer.drain();
+
+        Assert.assertEquals(2, chunks.size());
+        Assert.assertEquals("ab", chunks.get(0).text);
+        Assert.assertEquals(OutputType.INFO, chunks.get(1).outputType);
+        Assert.assertTrue(buffer.drain().isEmpty());
+    }
+
+    @Test
+    public void clearDropsEarlierOutput() {
+        OutputBuffer buffer = new OutputBuffer();
+        buffer.write(OutputType.OUTPUT, "a");
+        buffer.clear();
+        buffer.write(OutputType.OUTPUT, "b");
+
+        List<OutputBuffer.Chunk> chunks = buffer.drain();
+
+        Assert.assertEquals(2, chunks.size());
+        Assert.assertSame(OutputBuffer.Chunk.CLEAR, chunks.get(0));
+        Assert.assertEquals("b", chunks.get(1).text);
+    }
+
+}
@@ -0,0 +1,165 @@
+package com.florianwoelki.flow.lang;
+
+import com.florianwoelki.flow.console.MemoryConsole;
+import com.florianwoelki.flow.exception.InvalidCodeException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ClassTest {
+
+    @Test
+    public void updateReusesUnchangedMethods() throws Exception {
+        Class clazz = new Class(new String[]{
+                "fn twice:integer integer:n",
+                "math(n * 2) n",
+                "return n",
+                "end twice",
+                "fn main:void",
+                "declare(integer, a, 0)",
+                "twice(4) a",
+                "println(a)",
+                "end main"
+        });
+        MemoryConsole console = new MemoryConsole();
+        clazz.run(console);
+
+        Method twice = clazz.getMethod("twice"), main = clazz.getMethod("main");
+
+        clazz.update(new String[]{
+                "fn twice:integer integer:n",
+                "math(n * 2) n",
+                "return n",
+                "end twice",
+                "fn main:void",
+                "declare(integer, a, 0)",
+                "twice(5) a",
+                "println(a)",
+                "end main"
+        });
+        clazz.run(console);
+
+        Assert.assertEquals("10\n", console.getOutput());
+        Assert.assertSame(twice, clazz.getMethod("twice"));
+        Assert.assertNotSame(main, clazz.getMethod("main"));
+
+        clazz.update(new String[]{
+                "declare(integer, g, 7)",
+                "fn twice:integer integer:n",
+                "math(n * 2) n",
+                "return n",
+                "end twice",
+                "fn main:void",
+                "declare(integer, a, 0)",
+                "twice(g) a",
+                "println(a)",
+                "end main"
+        });
+        clazz.run(console);
+
+        Assert.assertEquals("14\n", console.getOutput());
+    }
+
+    @Test
+    public void updateAfterParseError() throws Exception {
+        Class clazz = new Class(new String[]{
+                "declare(integer, g, 7",
+                "fn main:void",
+                "println(g)",
+                "end main"
+        });
+        MemoryConsole console = new MemoryConsole();
+
+        try {
+            clazz.run(console);
+            Assert.fail();
+        } catch(InvalidCodeException e) {
+            Assert.assertEquals("Missing ) after arguments of declare.", e.getMessage());
+        }
+
+        // The broken declaration is not kept for the next parse.
+
+        clazz.update(new String[]{
+                "declare(integer, g, 7)",
+                "fn main:void",
+                "math(g + 1) g",
+                "println(g)",
+                "end main"
+        });
+        clazz.run(console);
+
+        Assert.assertEquals("8\n", console.getOutput());
+    }
+
+    @Test
+    public void commasInStringsDoNotSplitArguments() throws Exception {
+        Class clazz = new Class(new String[]{
+                "fn main:void",
+                "declare(string, s, \"This is a test, String.\")",
+                "println(s)",
+                "println(\"a, b\", s)",
+                "end main"
+        });
+        MemoryConsole console = new MemoryConsole();
+        clazz.run(console);
+
+        Assert.assertEquals("This is a test, String.\na, bThis is a test, String.\n", console.getOutput());
+    }
+
+    @Test
+    public void variablesCanBeDeclaredAgainWithAnotherType() throws Exception {
+        Class clazz = new Class(new String[]{
+                "fn main:void",
+                "declare(integer, x, 1)",
+                "math(x + 1) x",
+                "declare(decimal, x, 2.5)",
+                "math(x * 2) x",
+                "println(x)",
+                "declare(integer, x, 7)",
+                "math(x + 1) x",
+                "println(x)",
+                "end main"
+        });
+        MemoryConsole console = new MemoryConsole();
+        clazz.run(console);
+
+        Assert.assertEquals("5.0\n8\n", console.getOutput());
+    }
+
+    @Test
+    public void literalsAreInTheConstantPoolOnce() throws Exception {
+        Class clazz = new Class(new String[]{
+                "fn main:void",
+                "declare(integer, a, 10)",
+                "random(10) a",
+                "for 0 < 3",
+                "set(10) a",
+                "end",
+                "println(a)",
+                "end main"
+        });
+        MemoryConsole console = new MemoryConsole();
+        clazz.run(console);
+
+        ConstantPool constants = clazz.getConstants();
+
+        Assert.assertEquals("10\n", console.getOutput());
+        Assert.assertEquals(3, constants.size());
+        Assert.assertEquals(10, constants.getInteger(constants.add(10)));
+        Assert.assertEquals(3, constants.size());
+    }
+
+    @Test
+    public void constantPoolStartsOverWithoutReusedMethods() throws Exception {
+        Class clazz = new Class(new String[]{"fn main:void", "declare(integer, a, 0)", "end main"});
+        MemoryConsole console = new MemoryConsole();
+
+        for(int i = 1; i <= 10; i++) {
+            clazz.update(new String[]{"fn main:void", "declare(integer, a, " + i + ")", "println(a)", "end main"});
+            clazz.run(console);
+        }
+
+        Assert.assertEquals("10\n", console.getOutput());
+        Assert.assertEquals(1, clazz.getConstants().size());
+    }
+
+}
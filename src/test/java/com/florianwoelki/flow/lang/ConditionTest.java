@@ -0,0 +1,49 @@
+package com.florianwoelki.flow.lang;
+
+import com.florianwoelki.flow.exception.InvalidCodeException;
+import com.florianwoelki.flow.console.MemoryConsole;
+import com.florianwoelki.flow.lexer.Lexer;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConditionTest {
+
+    private final Scope scope = new Scope(null, true);
+    private final Frame frame = new Frame(new MemoryConsole(), 2);
+
+    @Test
+    public void decimals() throws Exception {
+        Slot d = scope.declare("d", Variable.VariableType.DECIMAL, false);
+        d.set(frame, new Variable(Variable.VariableType.DECIMAL, "d", false, 2.5));
+
+        Assert.assertTrue(compile("d > 2").test(frame));
+        Assert.assertTrue(compile("d == 2.5").test(frame));
+        Assert.assertFalse(compile("d < -1").test(frame));
+    }
+
+    @Test
+    public void text() throws Exception {
+        Slot s = scope.declare("s", Variable.VariableType.STRING, false);
+        s.set(frame, new Variable(Variable.VariableType.STRING, "s", false, "a b"));
+
+        Assert.assertTrue(compile("s == \"a b\"").test(frame));
+        Assert.assertTrue(compile("s != \"a\"").test(frame));
+    }
+
+    @Test(expected = InvalidCodeException.class)
+    public void booleansHaveNoOrder() throws Exception {
+        compile("true < false");
+    }
+
+    private Condition compile(String source) throws InvalidCodeException {
+        Lexer lexer = new Lexer(source);
+        lexer.next();
+
+        Argument a = Argument.read(lexer, true);
+        ConditionalBlock.CompareOperation op = ConditionalBlock.CompareOperation.match(lexer.getText());
+        lexer.next();
+
+        return Condition.compile(a, op, Argument.read(lexer, true), scope);
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.florianwoelki.flow.lang;
+
+import com.florianwoelki.flow.console.MemoryConsole;
+import com.florianwoelki.flow.exception.InvalidCodeException;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+
+public class FlowcTest {
+
+    private static final String[] CODE = {
+            "declare(integer, limit, 3)",
+            "fn half:decimal integer:n",
+            "return n",
+            "end half",
+            "fn main:void",
+            "declare(integer[], a, 1, 2, 3, 4)",
+            "foreach x a",
+            "if x > limit",
+            "println(\"big \", x)",
+            "end",
+            "elseif x == 2",
+            "println(\"two\")",
+            "end",
+            "else",
+            "println(x)",
+            "end",
+            "end",
+            "declare(decimal, d, 0.0)",
+            "half(7) d",
+            "println(d)",
+            "end main"
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writeAndRead() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("program.flowc");
+        Class clazz = new Class(CODE);
+        clazz.parse();
+
+        Flowc.write(clazz, Flowc.hash(CODE), path);
+
+        MemoryConsole expected = new MemoryConsole(), actual = new MemoryConsole();
+        new Class(CODE).run(expected);
+        Flowc.read(path, Flowc.hash(CODE)).run(actual);
+
+        Assert.assertEquals("1\ntwo\n3\nbig 4\n7.0\n", actual.getOutput());
+        Assert.assertEquals(expected.getOutput(), actual.getOutput());
+    }
+
+    @Test(expected = InvalidCodeException.class)
+    public void otherSource() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("program.flowc");
+        Class clazz = new Class(CODE);
+        clazz.parse();
+
+        Flowc.write(clazz, Flowc.hash(CODE), path);
+        Flowc.read(path, Flowc.hash(new String[]{"fn main:void", "end main"}));
+    }
+
+}
@@ -0,0 +1,141 @@
+package com.florianwoelki.flow.lang;
+
+import com.florianwoelki.flow.console.InputChannel;
+import com.florianwoelki.flow.console.MemoryConsole;
+import com.florianwoelki.flow.exception.ExecutionStoppedException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GovernorTest {
+
+    private static final String[] ENDLESS = {"fn main:void", "while 5 == 5", "end", "end main"};
+
+    @Test(timeout = 10000)
+    public void stepLimit() throws Exception {
+        Governor governor = new Governor(10000, Governor.UNLIMITED, Governor.UNLIMITED);
+
+        try {
+            new Class(ENDLESS).run(new MemoryConsole(), governor);
+            Assert.fail();
+        } catch(ExecutionStoppedException e) {
+            Assert.assertEquals("Step limit of 10000 exceeded.", e.getMessage());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void parallelStepsAreCounted() throws Exception {
+        Class clazz = new Class(new String[]{
+                "fn main:void",
+                "range(xs, 0, 1000)",
+                "parallel foreach x xs",
+                "for 0 < 100",
+                "end",
+                "end",
+                "end main"
+        });
+        Governor governor = new Governor();
+        clazz.run(new MemoryConsole(), governor);
+
+        Assert.assertTrue(governor.getSteps() > 100000);
+
+        try {
+            clazz.run(new MemoryConsole(), new Governor(50000, Governor.UNLIMITED, Governor.UNLIMITED));
+            Assert.fail();
+        } catch(ExecutionStoppedException e) {
+            Assert.assertEquals("Step limit of 50000 exceeded.", e.getMessage());
+        }
+    }
+
+    @Test(timeout = 10000, expected = ExecutionStoppedException.class)
+    public void timeLimit() throws Exception {
+        new Class(ENDLESS).run(new MemoryConsole(), new Governor(Governor.UNLIMITED, 50, Governor.UNLIMITED));
+    }
+
+    @Test(timeout = 10000)
+    public void outputLimit() throws Exception {
+        MemoryConsole console = new MemoryConsole();
+
+        try {
+            new Class(new String[]{"fn main:void", "while 5 == 5", "print(\"ab\")", "end", "end main"}).run(console, new Governor(Governor.UNLIMITED, Governor.UNLIMITED, 5));
+            Assert.fail();
+        } catch(ExecutionStoppedException e) {
+            Assert.assertEquals("ababa", console.getOutput());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void waitingForInputIsCounted() throws Exception {
+        InputChannel input = new InputChannel();
+        MemoryConsole console = new MemoryConsole(input);
+        Governor governor = new Governor();
+
+        new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch(InterruptedException ignored) {
+            }
+
+            input.send("4");
+        }).start();
+
+        new Class(new String[]{"fn main:void", "declare(integer, x, 0)", "getinput() x", "println(x)", "end main"}).run(console, governor);
+
+        Assert.assertEquals("4\n", console.getOutput());
+        Assert.assertTrue(governor.getWaitTime() >= 90000000L);
+    }
+
+    @Test(timeout = 10000)
+    public void parallelOutputStaysWithinTheLimit() throws Exception {
+        MemoryConsole console = new MemoryConsole();
+        Class clazz = new Class(new String[]{
+                "fn main:void",
+                "range(xs, 0, 10000)",
+                "parallel foreach x xs",
+                "print(\"abc\")",
+                "end",
+                "end main"
+        });
+
+        try {
+            clazz.run(console, new Governor(Governor.UNLIMITED, Governor.UNLIMITED, 1000));
+            Assert.fail();
+        } catch(ExecutionStoppedException e) {
+            Assert.assertEquals("Output limit of 1000 characters exceeded.", e.getMessage());
+        }
+
+        Assert.assertEquals(1000, console.getOutput().length());
+    }
+
+    @Test(timeout = 10000)
+    public void stoppedGovernorCanRunAgain() throws Exception {
+        Governor governor = new Governor(Governor.UNLIMITED, Governor.UNLIMITED, 10);
+
+        try {
+            new Class(new String[]{"fn main:void", "while 5 == 5", "print(\"ab\")", "end", "end main"}).run(new MemoryConsole(), governor);
+            Assert.fail();
+        } catch(ExecutionStoppedException ignored) {
+        }
+
+        MemoryConsole console = new MemoryConsole();
+        new Class(new String[]{"fn main:void", "println(\"again\")", "end main"}).run(console, governor);
+
+        Assert.assertEquals("again\n", console.getOutput());
+    }
+
+    @Test(timeout = 10000, expected = ExecutionStoppedException.class)
+    public void stopFromAnotherThread() throws Exception {
+        Governor governor = new Governor();
+
+        new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch(InterruptedException ignored) {
+            }
+
+            governor.stop();
+        }).start();
+
+        new Class(ENDLESS).run(new MemoryConsole(), governor);
+    }
+
+}
@@ -0,0 +1,31 @@
+package com.florianwoelki.flow.lang;
+
+import com.florianwoelki.flow.console.MemoryConsole;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MethodTest {
+
+    @Test
+    public void recursion() throws Exception {
+        Class clazz = new Class(new String[]{
+                "fn fib:integer integer:n",
+                "if n < 2",
+                "return n",
+                "end",
+                "declare(integer, a, 0)",
+                "declare(integer, b, 0)",
+                "math(n - 1) a",
+                "fib(a) a",
+                "math(n - 2) b",
+                "fib(b) b",
+                "math(a + b) a",
+                "return a",
+                "end fib"
+        });
+        clazz.parse();
+
+        Assert.assertEquals(55, clazz.getMethod("fib").invoke(new Frame(new MemoryConsole(), 0), new Object[]{10}));
+    }
+
+}
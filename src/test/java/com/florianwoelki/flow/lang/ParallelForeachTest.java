@@ -0,0 +1,112 @@
+package com.florianwoelki.flow.lang;
+
+import com.florianwoelki.flow.console.MemoryConsole;
+import com.florianwoelki.flow.exception.InvalidCodeException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ParallelForeachTest {
+
+    @Test
+    public void sums() throws Exception {
+        MemoryConsole console = new MemoryConsole();
+
+        new Class(new String[]{
+                "fn main:void",
+                "declare(integer[], a, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20)",
+                "declare(integer, total, 100)",
+                "declare(decimal, half, 0.0)",
+                "parallel foreach x a",
+                "declare(integer, square, 0)",
+                "math(x * x) square",
+                "math(total + square) total",
+                "math(half + x / 2.0) half",
+                "end",
+                "println(total, \" \", half)",
+                "end main"
+        }).run(console);
+
+        Assert.assertEquals("2970 105.0\n", console.getOutput());
+    }
+
+    @Test
+    public void outerWrite() throws Exception {
+        try {
+            new Class(new String[]{
+                    "fn main:void",
+                    "declare(integer[], a, 1, 2, 3)",
+                    "declare(integer, n, 0)",
+                    "parallel foreach x a",
+                    "math(n * x) n",
+                    "end",
+                    "end main"
+            }).parse();
+            Assert.fail();
+        } catch(InvalidCodeException e) {
+            Assert.assertEquals("Attempted to change n in parallel foreach.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void globalWriteInMethod() throws Exception {
+        String[] code = {
+                "declare(integer, count, 0)",
+                "fn add:void integer:x",
+                "math(count + x) count",
+                "end add",
+                "fn twice:void integer:x",
+                "if x > 0",
+                "add(x)",
+                "end",
+                "add(x)",
+                "end twice",
+                "fn main:void",
+                "declare(integer[], a, 1, 2, 3)",
+                "parallel foreach x a",
+                "twice(x)",
+                "end",
+                "println(count)",
+                "end main"
+        };
+
+        try {
+            new Class(code).parse();
+            Assert.fail();
+        } catch(InvalidCodeException e) {
+            Assert.assertEquals("Attempted to change global count in parallel foreach through method add.", e.getMessage());
+        }
+
+        // The same method may be called outside of a parallel foreach.
+        code[12] = "foreach x a";
+        MemoryConsole console = new MemoryConsole();
+        Class clazz = new Class(code);
+        clazz.run(console);
+
+        Assert.assertEquals("12\n", console.getOutput());
+    }
+
+    @Test
+    public void sumRead() throws Exception {
+        String[] reads = {"if total > 10", "println(total)"};
+
+        for(String read : reads) {
+            try {
+                new Class(new String[]{
+                        "fn main:void",
+                        "declare(integer[], a, 1, 2, 3)",
+                        "declare(integer, total, 0)",
+                        "parallel foreach x a",
+                        "math(total + x) total",
+                        read,
+                        read.startsWith("if") ? "end" : "",
+                        "end",
+                        "end main"
+                }).parse();
+                Assert.fail(read);
+            } catch(InvalidCodeException e) {
+                Assert.assertEquals("Attempted to read total in parallel foreach, it can only be added to.", e.getMessage());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.florianwoelki.flow.lang;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ScopeTest {
+
+    @Test
+    public void nestedBlocksShareTheFrameOfTheirMethod() {
+        Scope globals = new Scope(null, true);
+        globals.declare("g", Variable.VariableType.INTEGER, false);
+
+        Scope method = new Scope(globals, true);
+        Slot x = method.declare("x", Variable.VariableType.INTEGER, false);
+        Slot inner = new Scope(method).declare("x", Variable.VariableType.INTEGER, false);
+
+        Assert.assertEquals(0, x.getIndex());
+        Assert.assertEquals(1, inner.getIndex());
+        Assert.assertEquals(2, method.getFrameSize());
+    }
+
+    @Test
+    public void lookupCountsFrames() {
+        Scope globals = new Scope(null, true);
+        globals.declare("g", Variable.VariableType.INTEGER, false);
+
+        Scope body = new Scope(new Scope(globals, true));
+        Slot g = body.lookup("g");
+
+        Assert.assertEquals(1, g.getDepth());
+        Assert.assertEquals(0, g.getIndex());
+        Assert.assertNull(body.lookup("missing"));
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.florianwoelki.flow.lang;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TableTest {
+
+    @Test
+    public void keysAreFoundAfterGrowingAndRemoving() throws Exception {
+        Table table = new Table(Variable.VariableType.INTEGER, Variable.VariableType.INTEGER);
+
+        for(int i = 0; i < 1000; i++) {
+            table.setValue(table.add(i * 16), i);
+        }
+
+        for(int i = 0; i < 1000; i += 2) {
+            Assert.assertTrue(table.remove(i * 16));
+        }
+
+        Variable value = new Variable(Variable.VariableType.INTEGER, "v", false, null);
+        table.copyValue(table.indexOf(999 * 16), value);
+
+        Assert.assertEquals(500, table.size());
+        Assert.assertEquals(-1, table.indexOf(998 * 16));
+        Assert.assertEquals(999, value.getInteger());
+    }
+
+    @Test
+    public void setOfStrings() throws Exception {
+        Table table = new Table(Variable.VariableType.STRING, null);
+
+        table.add("a");
+        table.add("b");
+        table.add("a");
+
+        Assert.assertEquals(2, table.size());
+        Assert.assertEquals(2, table.keys("k").getLength());
+        Assert.assertNotEquals(-1, table.indexOf("b"));
+    }
+
+}
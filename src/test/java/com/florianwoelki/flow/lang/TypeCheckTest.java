@@ -0,0 +1,37 @@
+package com.florianwoelki.flow.lang;
+
+import com.florianwoelki.flow.exception.InvalidCodeException;
+import org.junit.Test;
+
+public class TypeCheckTest {
+
+    @Test
+    public void textCanBeSetToAnInteger() throws Exception {
+        parse("declare(string, s, \"5\")", "declare(integer, i, 0)", "set(s) i");
+    }
+
+    @Test(expected = InvalidCodeException.class)
+    public void decimalCanNotBeSetToAnInteger() throws Exception {
+        parse("declare(decimal, d, 2.5)", "declare(integer, i, 0)", "set(d) i");
+    }
+
+    @Test(expected = InvalidCodeException.class)
+    public void invalidConstant() throws Exception {
+        parse("declare(integer, i, \"nope\")");
+    }
+
+    @Test(expected = InvalidCodeException.class)
+    public void wrongNumberOfArguments() throws Exception {
+        new Class(new String[]{"fn main:void", "twice(1, 2)", "end main", "fn twice:integer integer:x", "return x", "end twice"}).parse();
+    }
+
+    private void parse(String... body) throws InvalidCodeException {
+        String[] code = new String[body.length + 2];
+        code[0] = "fn main:void";
+        System.arraycopy(body, 0, code, 1, body.length);
+        code[code.length - 1] = "end main";
+
+        new Class(code).parse();
+    }
+
+}
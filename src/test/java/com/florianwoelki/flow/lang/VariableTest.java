@@ -0,0 +1,91 @@
+package com.florianwoelki.flow.lang;
+
+import com.florianwoelki.flow.exception.InvalidCodeException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class VariableTest {
+
+    @Test
+    public void valuesAreConvertedToTheirType() throws Exception {
+        Variable integer = new Variable(Variable.VariableType.INTEGER, "i", false, "30");
+        Variable decimal = new Variable(Variable.VariableType.DECIMAL, "d", false, null);
+
+        decimal.setValue(integer);
+
+        Assert.assertEquals(30, integer.getInteger());
+        Assert.assertEquals(30.0, decimal.getDecimal(), 0);
+        Assert.assertEquals("30.0", decimal.getText());
+    }
+
+    @Test
+    public void arraysOverwriteAndGrow() throws Exception {
+        Variable array = new Variable(Variable.VariableType.INTEGER, "a", true, "4,5,6");
+
+        array.setValue("9", 1);
+
+        for(int i = 0; i < 100; i++) {
+            array.push(i);
+        }
+
+        Assert.assertEquals(103, array.getLength());
+        Assert.assertEquals(9, array.getInteger(1));
+        Assert.assertEquals(6, array.getInteger(2));
+        Assert.assertEquals(99.0, array.getDecimal(102), 0);
+    }
+
+    @Test
+    public void rangeIsStoredWhenChanged() throws Exception {
+        Variable range = Variable.range("r", 10, -3, 4);
+        Variable copy = range.copy();
+
+        range.setValue(0, 3);
+
+        Assert.assertEquals("[10, 7, 4, 0]", Arrays.toString(range.getValues()));
+        Assert.assertEquals(1, copy.getInteger(3));
+    }
+
+    @Test
+    public void fixedArrayIsOffHeap() throws Exception {
+        Variable array = Variable.fixed(Variable.VariableType.DECIMAL, "d", 1000);
+
+        array.setValue("2.5", 999);
+
+        Assert.assertEquals(1000, array.getLength());
+        Assert.assertEquals(2.5, array.getDecimal(999), 0);
+        Assert.assertEquals(0.0, array.getDecimal(0), 0);
+
+        Variable copy = array.copy();
+        array.setValue("1.5", 0);
+
+        Assert.assertEquals(0.0, copy.getDecimal(0), 0);
+        Assert.assertEquals(2.5, copy.getDecimal(999), 0);
+    }
+
+    @Test
+    public void viewOfFixedArrayKeepsItsElements() throws Exception {
+        Variable array = Variable.fixed(Variable.VariableType.INTEGER, "a", 3);
+        array.setValue(5, 1);
+
+        Variable view = array.view();
+        array.setValue(7, 1);
+        array.setValue(9, 2);
+
+        Assert.assertEquals(5, view.getInteger(1));
+        Assert.assertEquals(0, view.getInteger(2));
+        Assert.assertEquals("[0, 7, 9]", Arrays.toString(array.getValues()));
+    }
+
+    @Test(expected = InvalidCodeException.class)
+    public void arrayIndexOutOfBounds() throws Exception {
+        new Variable(Variable.VariableType.INTEGER, "a", true, "4,5,6").getValue(3);
+    }
+
+    @Test(expected = InvalidCodeException.class)
+    public void invalidInteger() throws Exception {
+        new Variable(Variable.VariableType.INTEGER, "i", false, "nope");
+    }
+
+}
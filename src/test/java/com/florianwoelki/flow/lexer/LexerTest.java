@@ -0,0 +1,73 @@
+package com.florianwoelki.flow.lexer;
+
+import com.florianwoelki.flow.exception.InvalidCodeException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LexerTest {
+
+    @Test
+    public void call() throws Exception {
+        Lexer lexer = new Lexer("declare(integer[], x, -1) y");
+
+        assertToken(lexer, TokenType.IDENTIFIER, "declare");
+        assertToken(lexer, TokenType.LPAREN, "(");
+        assertToken(lexer, TokenType.IDENTIFIER, "integer");
+        assertToken(lexer, TokenType.INDEX, "");
+        assertToken(lexer, TokenType.COMMA, ",");
+        assertToken(lexer, TokenType.IDENTIFIER, "x");
+        assertToken(lexer, TokenType.COMMA, ",");
+        assertToken(lexer, TokenType.NUMBER, "-1");
+        assertToken(lexer, TokenType.RPAREN, ")");
+        assertToken(lexer, TokenType.IDENTIFIER, "y");
+        Assert.assertEquals(TokenType.EOF, lexer.next());
+    }
+
+    @Test
+    public void stringWithComma() throws Exception {
+        Lexer lexer = new Lexer("\"This is a test, String.\", x");
+
+        assertToken(lexer, TokenType.STRING, "This is a test, String.");
+        Assert.assertEquals(0, lexer.getStart());
+        Assert.assertEquals(25, lexer.getEnd());
+        assertToken(lexer, TokenType.COMMA, ",");
+    }
+
+    @Test
+    public void operators() throws Exception {
+        Lexer lexer = new Lexer("x-1 != x[2] // comment");
+
+        assertToken(lexer, TokenType.IDENTIFIER, "x");
+        assertToken(lexer, TokenType.OPERATOR, "-");
+        assertToken(lexer, TokenType.NUMBER, "1");
+        assertToken(lexer, TokenType.OPERATOR, "!=");
+        assertToken(lexer, TokenType.IDENTIFIER, "x");
+        assertToken(lexer, TokenType.INDEX, "2");
+        Assert.assertEquals(TokenType.EOF, lexer.next());
+    }
+
+    @Test
+    public void nestedIndices() throws Exception {
+        Lexer lexer = new Lexer("a[b[c[0]] + 1] - 2");
+
+        assertToken(lexer, TokenType.IDENTIFIER, "a");
+        assertToken(lexer, TokenType.INDEX, "b[c[0]] + 1");
+        assertToken(lexer, TokenType.OPERATOR, "-");
+        assertToken(lexer, TokenType.NUMBER, "2");
+        Assert.assertEquals(TokenType.EOF, lexer.next());
+    }
+
+    @Test(expected = InvalidCodeException.class)
+    public void unclosedNestedIndex() throws Exception {
+        Lexer lexer = new Lexer("a[b[0]");
+
+        lexer.next();
+        lexer.next();
+    }
+
+    private void assertToken(Lexer lexer, TokenType type, String value) throws Exception {
+        Assert.assertEquals(type, lexer.next());
+        Assert.assertEquals(value, lexer.getValue());
+    }
+
+}
@@ -0,0 +1,155 @@
+package com.florianwoelki.flow.vm;
+
+import com.florianwoelki.flow.console.MemoryConsole;
+import com.florianwoelki.flow.exception.InvalidCodeException;
+import com.florianwoelki.flow.lang.Class;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class VmCompilerTest {
+
+    @Test
+    public void loopsAndCalls() throws Exception {
+        Assert.assertEquals("55\n4.5\n0 1 2 \n", run(
+                "fn fib:integer integer:n",
+                "if n < 2",
+                "return n",
+                "end",
+                "declare(integer, a, 0)",
+                "declare(integer, b, 0)",
+                "math(n - 1) a",
+                "fib(a) a",
+                "math(n - 2) b",
+                "fib(b) b",
+                "math(a + b) a",
+                "return a",
+                "end fib",
+                "fn main:void",
+                "declare(integer, f, 0)",
+                "fib(10) f",
+                "println(f)",
+                "declare(integer, i, 0)",
+                "declare(decimal, x, 0.0)",
+                "while i < 9",
+                "math(x + 0.5) x",
+                "math(i + 1) i",
+                "end",
+                "println(x)",
+                "range(r, 0, 3)",
+                "foreach e r",
+                "print(e, \" \")",
+                "end",
+                "println(\"\")",
+                "end main"));
+    }
+
+    @Test
+    public void divisionByZero() throws Exception {
+        try {
+            run("fn main:void", "declare(integer, a, 0)", "math(5 / a) a", "end main");
+            Assert.fail();
+        } catch(InvalidCodeException e) {
+            Assert.assertEquals("Division by zero in (5 / a).", e.getMessage());
+        }
+    }
+
+    @Test
+    public void deepRecursion() throws Exception {
+        String[] code = {
+                "fn down:integer integer:n",
+                "if n == 0",
+                "return 0",
+                "end",
+                "declare(integer, m, 0)",
+                "math(n - 1) m",
+                "down(m) m",
+                "math(m + 1) m",
+                "return m",
+                "end down",
+                "fn count:decimal integer:n decimal:total",
+                "if n == 0",
+                "return total",
+                "end",
+                "declare(integer, m, 0)",
+                "declare(decimal, x, 0.0)",
+                "math(n - 1) m",
+                "math(total + 0.5) x",
+                "count(m, x) x",
+                "return x",
+                "end count",
+                "fn main:void",
+                "declare(integer, r, 0)",
+                "down(100000) r",
+                "declare(decimal, t, 0.0)",
+                "count(100000, 0.0) t",
+                "println(r, \" \", t)",
+                "end main"
+        };
+
+        Assert.assertEquals("100000 50000.0\n", run(code));
+
+        Class clazz = new Class(code);
+        clazz.parse();
+
+        Assert.assertTrue(VmCompiler.compile(clazz.getMethod("count")).toString().contains("TAIL"));
+    }
+
+    @Test
+    public void superinstructions() throws Exception {
+        String[] code = {
+                "fn main:void",
+                "declare(integer, i, 0)",
+                "declare(integer, s, 0)",
+                "declare(decimal, z, 0.0)",
+                "declare(decimal, nan, 0.0)",
+                "math(z / z) nan",
+                "if nan < 1.0",
+                "println(\"lt\")",
+                "end",
+                "if nan > 1.0",
+                "println(\"gt\")",
+                "end",
+                "while 10 > i",
+                "math(i + 1) i",
+                "math(s + i * 3 - 7 / 2 + i % 4 - 2) s",
+                "end",
+                "println(i, \" \", s)",
+                "declare(decimal[], xs, 1.5, 2.5)",
+                "foreach e xs",
+                "math(s - e) s",
+                "end",
+                "println(s, \" \", xs[1])",
+                "end main"
+        };
+
+        Assert.assertEquals("10 130\n125 2.5\n", run(code));
+
+        Class clazz = new Class(code);
+        clazz.parse();
+        String instructions = VmCompiler.compile(clazz.getMethod("main")).toString();
+
+        for(String instruction : new String[]{"I_ADD_K", "I_JGE_K", "D_JNLT", "D_JNGT", "FOREACH_D", "STEP_JUMP"}) {
+            Assert.assertTrue(instruction, instructions.contains(": " + instruction + " "));
+        }
+
+        // Only the jump into the foreach loop is left, the jumps at the end of the ifs and loops are gone.
+        Assert.assertEquals(1, instructions.split(": JUMP ", -1).length - 1);
+    }
+
+    private static String run(String... code) throws InvalidCodeException {
+        Class clazz = new Class(code);
+        clazz.parse();
+
+        for(String name : new String[]{"main", "fib", "down", "count"}) {
+            if(clazz.indexOfMethod(name) != -1) {
+                clazz.getMethod(name).setCompiled(VmCompiler.compile(clazz.getMethod(name)));
+            }
+        }
+
+        MemoryConsole console = new MemoryConsole();
+        clazz.run(console);
+
+        return console.getOutput();
+    }
+
+}